@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.twdata.maven.mojoexecutor.MojoExecutor.Element;
+import pl.allegro.tdr.gruntmaven.executable.ExecPluginConfiguration;
+import pl.allegro.tdr.gruntmaven.executable.Executable;
+
+/**
+ * Building command line of executable from user options and turning it into
+ * exec-maven-plugin configuration, as done for each npm, bower and Grunt
+ * execution.
+ *
+ * @author Adam Dubiel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ExecutableBenchmark {
+
+    @Param({"4", "64"})
+    private int options;
+
+    @Param({"false", "true"})
+    private boolean windows;
+
+    private String[] userOptions;
+
+    private Map<String, String> environment;
+
+    private Executable executable;
+
+    @Setup
+    public void createOptions() {
+        userOptions = new String[options];
+        for (int index = 0; index < options; ++index) {
+            userOptions[index] = index % 2 == 0 ? "--option-" + index + " value " + index : "--flag-" + index;
+        }
+        environment = new HashMap<String, String>();
+        environment.put("NODE_ENV", "production");
+        executable = normalizedExecutable();
+    }
+
+    @Benchmark
+    public Executable normalizeArguments() {
+        return normalizedExecutable();
+    }
+
+    @Benchmark
+    public Element[] buildExecPluginConfiguration() {
+        return ExecPluginConfiguration.of(executable, windows, "/home/builder/projects/app/target-grunt");
+    }
+
+    private Executable normalizedExecutable() {
+        Executable command = new Executable("grunt", new String[]{"0", "3"});
+        command.addArgument("build");
+        command.addNormalizedArguments(userOptions, "=");
+        command.addEnvironmentVars(environment);
+        return command;
+    }
+}
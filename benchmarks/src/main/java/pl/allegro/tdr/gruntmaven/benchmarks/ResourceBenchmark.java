@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.allegro.tdr.gruntmaven.resources.Resource;
+
+/**
+ * Filtering of templates with placeholder values, the way create-resources
+ * goal writes grunt-maven.json. Small template is the one shipped with
+ * plugin, large template repeats placeholders in 400 entries.
+ *
+ * @author Adam Dubiel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ResourceBenchmark {
+
+    @Param({"/grunt-maven.json", "/benchmarks/large-template.json"})
+    private String template;
+
+    private final SilentLog log = new SilentLog();
+
+    private File workDirectory;
+
+    private String targetPath;
+
+    @Setup
+    public void createWorkDirectory() throws IOException {
+        workDirectory = File.createTempFile("resource-benchmark", "");
+        workDirectory.delete();
+        workDirectory.mkdirs();
+        targetPath = new File(workDirectory, "grunt-maven.json").getPath();
+    }
+
+    @TearDown
+    public void removeWorkDirectory() throws IOException {
+        FileUtils.deleteDirectory(workDirectory);
+    }
+
+    @Benchmark
+    public void filterAndWrite() {
+        Resource.from(template, log)
+                .withFilter("filesToWatch", "C:\\projects\\app\\src\\main\\webapp\\static\\**")
+                .withFilter("directoryToWatch", "C:\\projects\\app\\src\\main\\webapp\\static")
+                .withFilter("projectRootPath", "/home/builder/projects/app")
+                .withFilter("targetPath", "/home/builder/projects/app/target")
+                .withFilter("sourceDirectory", "src/main/webapp")
+                .withFilter("jsSourceDirectory", "static")
+                .withFilter("warTargetDirectory", "static")
+                .withFilter("filteredFiles", "[\"index.html\", \"config.js\"]")
+                .copyAndOverwrite(targetPath);
+    }
+}
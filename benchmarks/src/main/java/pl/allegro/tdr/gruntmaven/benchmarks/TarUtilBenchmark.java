@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
+import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+
+/**
+ * Extraction of synthetic node_modules-like archive, which spreads files over
+ * nested package directories. All files have the same contents, which is
+ * the best case for deduplication. Target directory is removed before each
+ * invocation, so every invocation extracts all files.
+ *
+ * @author Adam Dubiel
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class TarUtilBenchmark {
+
+    private static final int FILES_PER_PACKAGE = 20;
+
+    @Param({"100", "2000"})
+    private int files;
+
+    @Param({"512", "65536"})
+    private int fileSize;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    @Param({"false", "true"})
+    private boolean deduplicate;
+
+    private final SilentLog log = new SilentLog();
+
+    private File workDirectory;
+
+    private File archive;
+
+    private File target;
+
+    @Setup(Level.Trial)
+    public void createArchive() throws IOException {
+        workDirectory = File.createTempFile("tar-benchmark", "");
+        workDirectory.delete();
+        workDirectory.mkdirs();
+        archive = new File(workDirectory, "node_modules.tar");
+        target = new File(workDirectory, "target");
+
+        byte[] contents = new byte[fileSize];
+        new Random(files).nextBytes(contents);
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new BufferedOutputStream(new FileOutputStream(archive)));
+        try {
+            output.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            for (int index = 0; index < files; ++index) {
+                TarArchiveEntry entry = new TarArchiveEntry("node_modules/package-" + (index / FILES_PER_PACKAGE)
+                        + "/lib/file-" + index + ".js");
+                entry.setSize(contents.length);
+                output.putArchiveEntry(entry);
+                output.write(contents);
+                output.closeArchiveEntry();
+            }
+        } finally {
+            IOUtils.closeQuietly(output);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void cleanTarget() throws IOException {
+        FileUtils.deleteDirectory(target);
+    }
+
+    @TearDown(Level.Trial)
+    public void removeArchive() throws IOException {
+        FileUtils.deleteDirectory(workDirectory);
+    }
+
+    @Benchmark
+    public ExtractionStatistics untar() {
+        return TarUtil.untar(archive, target, threads, deduplicate, null, log);
+    }
+}
@@ -15,10 +15,23 @@
  */
 package pl.allegro.tdr.gruntmaven;
 
+import pl.allegro.tdr.gruntmaven.executable.ExecPluginConfiguration;
 import pl.allegro.tdr.gruntmaven.executable.Executable;
-
-import java.util.ArrayList;
-import java.util.Arrays;
+import pl.allegro.tdr.gruntmaven.executable.ExecutableFailureException;
+import pl.allegro.tdr.gruntmaven.executable.ExecutableScheduler;
+import pl.allegro.tdr.gruntmaven.executable.ExecutableTimeoutException;
+import pl.allegro.tdr.gruntmaven.executable.ExecutionLimits;
+import pl.allegro.tdr.gruntmaven.executable.ExecutionListener;
+import pl.allegro.tdr.gruntmaven.executable.ExecutionPermits;
+import pl.allegro.tdr.gruntmaven.executable.ExecutorType;
+import pl.allegro.tdr.gruntmaven.executable.OutputMode;
+import pl.allegro.tdr.gruntmaven.executable.OutputSettings;
+import pl.allegro.tdr.gruntmaven.executable.ProcessExecutor;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -29,7 +42,8 @@ import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
 
 /**
  * Abstract mojo which uses MojoExecutor to execute exec-maven-plugin,
- * which in turn executes system command - command line only.
+ * which in turn executes system command - command line only. When native
+ * executor is chosen, commands are started directly by the plugin.
  *
  * Compatible with Windows via
  * <pre>cmd /C</pre>.
@@ -58,10 +72,6 @@ public abstract class AbstractExecutableMojo extends BaseMavenGruntMojo {
      */
     private static final String EXEC_GOAL = "exec";
 
-    private static final String EXEC_SUCCESS_CODES_ELEMENT = "successCodes";
-
-    private static final String EXEC_SUCCESS_CODE_ELEMENT = "successCode";
-
     /**
      * Inject building OS name.
      */
@@ -74,118 +84,255 @@ public abstract class AbstractExecutableMojo extends BaseMavenGruntMojo {
     @Parameter(property = "showColors", defaultValue = "false")
     protected boolean showColors;
 
+    /**
+     * Name of node executable in PATH, defaults to node.
+     */
+    @Parameter(property = "nodeExecutable", defaultValue = "node")
+    protected String nodeExecutable;
+
     /**
      * Version of exec plugin to use (defaults to 1.2.1).
      */
     @Parameter(property = "execMavenPluginVersion", defaultValue = "1.2.1")
     protected String execMavenPluginVersion;
 
-    @Override
-    public void executeInternal() throws MojoExecutionException, MojoFailureException {
-        for (Executable executable : getExecutables()) {
-            runExecutable(executable);
-        }
-    }
+    /**
+     * How commands are run: "plugin" delegates to exec-maven-plugin, "native" starts processes directly, defaults to plugin.
+     */
+    @Parameter(property = "executor", defaultValue = "plugin")
+    protected String executor;
 
-    private void runExecutable(Executable executable) throws MojoExecutionException, MojoFailureException {
-        Element[] configuration = buildConfigForOS(executable);
-        if (executable.overrideSuccessCodes()) {
-            Element customSuccessCodes = overwriteSuccessCodes(executable);
-            configuration = concat(configuration, customSuccessCodes);
-        }
+    /**
+     * Maximum number of commands run in parallel by native executor, when they don't depend on each other, defaults to 0 (number of
+     * available processors).
+     */
+    @Parameter(property = "executorThreads", defaultValue = "0")
+    protected int executorThreads;
 
-        executeMojo(plugin(
-                groupId(EXEC_MAVEN_GROUP),
-                artifactId(EXEC_MAVEN_ARTIFACT),
-                version(execMavenPluginVersion)),
-                goal(EXEC_GOAL),
-                configuration(configuration),
-                pluginExecutionEnvironment());
-    }
+    /**
+     * Maximum number of concurrent executions of each kind (npm, bower, grunt) on this machine, shared by parallel module builds
+     * and other Maven processes, ex. &lt;npm&gt;2&lt;/npm&gt;, defaults to no limits.
+     */
+    @Parameter
+    protected Map<String, String> maxConcurrentExecutions;
 
     /**
-     * Create
-     * <pre>configuration</pre> element for host OS.
-     *
-     * @return <pre>configuration</pre> element
+     * Path to directory with lock files used to limit concurrent executions across processes, defaults to
+     * ~/.m2/grunt-maven-plugin/locks.
      */
-    private Element[] buildConfigForOS(Executable executable) {
-        Element[] configuration;
+    @Parameter(property = "executionLocksDirectory", defaultValue = "${user.home}/.m2/grunt-maven-plugin/locks")
+    protected String executionLocksDirectory;
 
-        getLog().info("OS Name: " + osName);
+    /**
+     * How output of commands run by native executor is shown: "full" logs every line, "summary" logs number of lines and last line
+     * at most once per processOutputInterval, defaults to full. In both modes full output is written to
+     * target/grunt-maven-logs/&lt;execution id&gt;.
+     */
+    @Parameter(property = "processOutput", defaultValue = "full")
+    protected String processOutput;
 
-        if (osName.toUpperCase().contains(WINDOWS_OS_FAMILY.toUpperCase())) {
-            configuration = buildConfigForWindows(executable);
-        } else {
-            configuration = buildConfigForProperOS(executable);
-        }
+    /**
+     * Number of last lines of output printed again when command run by native executor fails, defaults to 50.
+     */
+    @Parameter(property = "processOutputTail", defaultValue = "50")
+    protected int processOutputTail;
 
-        configuration = concat(configuration, new Element[]{element(name("workingDirectory"), gruntBuildDirectory)});
+    /**
+     * Minimal number of seconds between two lines logged in summary output mode, defaults to 10.
+     */
+    @Parameter(property = "processOutputInterval", defaultValue = "10")
+    protected int processOutputInterval;
 
-        if (executable.hasEnvironmentVars()) {
-            configuration = concat(configuration, element("environmentVariables", elementsFromMap(executable.environmentVars())));
-        }
+    /**
+     * Number of seconds after which command run by native executor is killed together with its child processes, defaults to 0
+     * (no limit).
+     */
+    @Parameter(property = "executionTimeout", defaultValue = "0")
+    protected int executionTimeout;
 
-        return configuration;
-    }
+    /**
+     * Number of seconds without any output after which command run by native executor is considered stalled and killed together
+     * with its child processes, defaults to 0 (no limit).
+     */
+    @Parameter(property = "executionStallTimeout", defaultValue = "0")
+    protected int executionStallTimeout;
 
     /**
-     * Create
-     * <pre>configuration</pre> element for proper *nix OSes.
-     *
-     * @return configuration
+     * How many times command killed after timeout is started again before build fails, defaults to 0.
      */
-    private Element[] buildConfigForProperOS(Executable executable) {
-        Element[] osConfiguration = new Element[]{
-            element(name("executable"), executable.executableName()),
-            element(name("arguments"), executable.argumentsArray())
-        };
+    @Parameter(property = "executionTimeoutRetries", defaultValue = "0")
+    protected int executionTimeoutRetries;
 
-        return osConfiguration;
+    @Override
+    public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        runExecutables(getExecutables());
     }
 
     /**
-     * Create
-     * <pre>configuration</pre> element for strange Windows OS.
-     *
-     * @return configuration
+     * Kind of executions run by this mojo, used to limit number of concurrent executions of executables which don't declare
+     * their own kind.
      */
-    private Element[] buildConfigForWindows(Executable executable) {
-        Element[] arguments = new Element[]{
-            element(name("argument"), "/C"),
-            element(name("argument"), executable.executableName())
-        };
-        arguments = concat(arguments, executable.argumentsArray());
+    protected abstract String executionKind();
 
-        Element[] osConfiguration = new Element[]{
-            element(name("executable"), "cmd"),
-            element(name("arguments"), arguments)
-        };
+    protected ExecutionLimits executionLimits() {
+        return new ExecutionLimits(maxConcurrentExecutions, executionKind(), new File(executionLocksDirectory), getLog());
+    }
+
+    protected ExecutionPermits.Permit acquireExecutionPermit() throws MojoExecutionException {
+        return acquireExecutionPermit(executionKind());
+    }
 
-        return osConfiguration;
+    private ExecutionPermits.Permit acquireExecutionPermit(String kind) throws MojoExecutionException {
+        ExecutionLimits limits = executionLimits();
+        BuildStep step = startStep("execution-permit").with("kind", kind).with("limit", limits.limitOf(kind));
+        try {
+            ExecutionPermits.Permit permit = limits.acquire(kind);
+            step.finish();
+            return permit;
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to acquire " + kind + " execution permit in " + executionLocksDirectory, exception);
+        } catch (InterruptedException exception) {
+            step.fail();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for " + kind + " execution permit.", exception);
+        }
     }
 
     /**
-     * Don't want to use any dependencies like Apache Commons - sorry.
+     * Native executor runs independent executables in parallel, exec-maven-plugin runs them one by one in order of dependencies.
      *
-     * @param <T>    type of array entries
-     * @param array1 first array
-     * @param array2 second array
-     * @return first array + second array
+     * @return true if every executable exited with 0, false if failure was ignored thanks to custom success codes (exit code of
+     * executable with custom success codes run by exec-maven-plugin is unknown, so it is never counted as 0)
      */
-    protected <T> T[] concat(T[] array1, T... array2) {
-        T[] result = Arrays.copyOf(array1, array1.length + array2.length);
-        System.arraycopy(array2, 0, result, array1.length, array2.length);
-        return result;
+    protected boolean runExecutables(List<Executable> executables) throws MojoExecutionException, MojoFailureException {
+        if (ExecutorType.fromString(executor) == ExecutorType.PLUGIN) {
+            boolean allExitedWithZero = true;
+            for (Executable executable : ExecutableScheduler.inDependencyOrder(executables)) {
+                runWithExecPlugin(executable);
+                allExitedWithZero &= !executable.overrideSuccessCodes();
+            }
+            return allExitedWithZero;
+        }
+
+        for (Executable executable : executables) {
+            applyTimeouts(executable);
+        }
+        int threads = executorThreads > 0 ? executorThreads : Runtime.getRuntime().availableProcessors();
+        try {
+            return new ExecutableScheduler(processExecutor(), threads, new ReportingListener(), executionLimits(), getLog())
+                    .execute(executables);
+        } catch (ExecutableFailureException exception) {
+            throw new MojoExecutionException(exception.getMessage(), exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while executing " + executables.size() + " commands.", exception);
+        }
     }
 
-    private Element[] elementsFromMap(Map<String, String> elements) {
-        List<Element> elementList = new ArrayList<Element>();
-        for (Map.Entry<String, String> entry : elements.entrySet()) {
-            elementList.add(element(entry.getKey(), entry.getValue()));
+    protected void runExecutable(Executable executable) throws MojoExecutionException, MojoFailureException {
+        if (ExecutorType.fromString(executor) == ExecutorType.NATIVE) {
+            runNatively(executable);
+        } else {
+            runWithExecPlugin(executable);
         }
+    }
+
+    private ExecutionPermits.Permit acquireExecutionPermit(Executable executable) throws MojoExecutionException {
+        return acquireExecutionPermit(executionLimits().kindOf(executable));
+    }
+
+    protected ProcessExecutor processExecutor() {
+        File logDirectory = new File(new File(target(), "grunt-maven-logs"), mojoExecution.getExecutionId());
+        OutputSettings outputSettings = new OutputSettings(OutputMode.fromString(processOutput), logDirectory, processOutputTail,
+                processOutputInterval * 1000L);
+        return new ProcessExecutor(new File(gruntBuildDirectory), isWindows(), outputSettings, getLog());
+    }
 
-        return elementList.toArray(new Element[elementList.size()]);
+    private void applyTimeouts(Executable executable) {
+        executable.timeoutAfter(executionTimeout * 1000L);
+        executable.stallTimeoutAfter(executionStallTimeout * 1000L);
+        executable.retryOnTimeout(executionTimeoutRetries);
+    }
+
+    private void runNatively(Executable executable) throws MojoExecutionException {
+        applyTimeouts(executable);
+        ExecutionPermits.Permit permit = acquireExecutionPermit(executable);
+        try {
+            runNativelyWithPermit(executable);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private void runNativelyWithPermit(Executable executable) throws MojoExecutionException {
+        BuildStep step = startExecutableStep(executable);
+        int exitCode;
+        try {
+            exitCode = processExecutor().execute(executable);
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to execute " + executable.commandLine(), exception);
+        } catch (ExecutableTimeoutException exception) {
+            step.with("timedOut", true).fail();
+            throw new MojoExecutionException(exception.getMessage());
+        } catch (InterruptedException exception) {
+            step.fail();
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while executing " + executable.commandLine(), exception);
+        }
+        finishExecutableStep(step, executable, exitCode);
+        verifyExitCode(executable, exitCode);
+    }
+
+    private BuildStep startExecutableStep(Executable executable) {
+        StringBuilder name = new StringBuilder("exec:").append(executable.executableName());
+        if (!executable.arguments().isEmpty()) {
+            name.append(' ').append(executable.arguments().get(0));
+        }
+        return startStep(name.toString()).with("commandLine", executable.commandLine().toArray(new String[0]));
+    }
+
+    private void finishExecutableStep(BuildStep step, Executable executable, int exitCode) {
+        step.with("exitCode", exitCode);
+        if (executable.isSuccess(exitCode)) {
+            step.finish();
+        } else {
+            step.fail();
+        }
+    }
+
+    protected void verifyExitCode(Executable executable, int exitCode) throws MojoExecutionException {
+        if (!executable.isSuccess(exitCode)) {
+            throw new MojoExecutionException("Result of " + executable.commandLine() + " execution is: '" + exitCode + "'.");
+        }
+    }
+
+    private boolean isWindows() {
+        return osName.toUpperCase().contains(WINDOWS_OS_FAMILY.toUpperCase());
+    }
+
+    private void runWithExecPlugin(Executable executable) throws MojoExecutionException, MojoFailureException {
+        getLog().info("OS Name: " + osName);
+        Element[] configuration = ExecPluginConfiguration.of(executable, isWindows(), gruntBuildDirectory);
+
+        ExecutionPermits.Permit permit = acquireExecutionPermit(executable);
+        BuildStep step = startExecutableStep(executable);
+        try {
+            executeMojo(plugin(
+                    groupId(EXEC_MAVEN_GROUP),
+                    artifactId(EXEC_MAVEN_ARTIFACT),
+                    version(execMavenPluginVersion)),
+                    goal(EXEC_GOAL),
+                    configuration(configuration),
+                    pluginExecutionEnvironment());
+            step.finish();
+        } catch (MojoExecutionException exception) {
+            step.fail();
+            throw exception;
+        } finally {
+            permit.release();
+        }
     }
 
     /**
@@ -197,11 +344,41 @@ public abstract class AbstractExecutableMojo extends BaseMavenGruntMojo {
      */
     protected abstract List<Executable> getExecutables();
 
-    private Element overwriteSuccessCodes(Executable executable) {
-        Element[] successCodesElements = new Element[executable.successCodes().length];
-        for (int index = 0; index < executable.successCodes().length; ++index) {
-            successCodesElements[index] = element(EXEC_SUCCESS_CODE_ELEMENT, executable.successCodes()[index]);
+    /**
+     * Records timing of each executable run by scheduler.
+     */
+    private final class ReportingListener implements ExecutionListener {
+
+        private final Map<Executable, BuildStep> steps = new IdentityHashMap<Executable, BuildStep>();
+
+        @Override
+        public void executableStarted(Executable executable) {
+            BuildStep step = startExecutableStep(executable);
+            synchronized (steps) {
+                steps.put(executable, step);
+            }
+        }
+
+        @Override
+        public void executableFinished(Executable executable, int exitCode) {
+            BuildStep step;
+            synchronized (steps) {
+                step = steps.remove(executable);
+            }
+            if (step != null) {
+                finishExecutableStep(step, executable, exitCode);
+            }
+        }
+
+        @Override
+        public void executableTimedOut(Executable executable) {
+            BuildStep step;
+            synchronized (steps) {
+                step = steps.remove(executable);
+            }
+            if (step != null) {
+                step.with("timedOut", true).fail();
+            }
         }
-        return element(EXEC_SUCCESS_CODES_ELEMENT, successCodesElements);
     }
 }
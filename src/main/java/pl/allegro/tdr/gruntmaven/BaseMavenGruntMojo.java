@@ -20,6 +20,7 @@ import java.io.IOException;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.BuildPluginManager;
+import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugin.PluginManager;
@@ -28,6 +29,10 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 import org.twdata.maven.mojoexecutor.MojoExecutor;
+import pl.allegro.tdr.gruntmaven.report.BuildReports;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
+import pl.allegro.tdr.gruntmaven.report.ModuleReport;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
 
 /**
  * Common properties for all maven-grunt goals.
@@ -62,7 +67,8 @@ public abstract class BaseMavenGruntMojo extends AbstractMojo {
     protected String warTargetDirectory = null;
 
     /**
-     * Name of packed node_modules TAR file, defaults to node_modules.tar.
+     * Name of packed node_modules TAR file, defaults to node_modules.tar. Archive can be compressed using gzip, bzip2 or xz,
+     * compression is detected automatically.
      */
     @Parameter(property = "npmOfflineModulesFile", defaultValue = "node_modules.tar")
     protected String npmOfflineModulesFile;
@@ -76,9 +82,19 @@ public abstract class BaseMavenGruntMojo extends AbstractMojo {
     @Parameter(property = "npmOfflineModulesFilePath", defaultValue = "")
     protected String npmOfflineModulesFilePath;
 
+    /**
+     * Should timings of build steps be written to target/grunt-maven-report.json and summed up at the end of the build, defaults
+     * to false.
+     */
+    @Parameter(property = "buildReport", defaultValue = "false")
+    private boolean buildReport;
+
     @Parameter(property = "project", readonly = true, required = true)
     private MavenProject mavenProject;
 
+    @Parameter(defaultValue = "${mojoExecution}", readonly = true)
+    protected MojoExecution mojoExecution;
+
     @Parameter(property = "session", readonly = true, required = true)
     private MavenSession mavenSession;
 
@@ -89,16 +105,64 @@ public abstract class BaseMavenGruntMojo extends AbstractMojo {
     @SuppressWarnings("deprecation")
     private PluginManager pluginManager;
 
+    private ModuleReport report;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
         initializeParameters();
         if (!disabled) {
-            executeInternal();
+            executeReported();
         } else {
             getLog().info("Execution disabled using configuration option.");
         }
     }
 
+    private void executeReported() throws MojoExecutionException, MojoFailureException {
+        String module = mavenProject.getGroupId() + ":" + mavenProject.getArtifactId();
+        if (buildReport) {
+            report = BuildReports.module(module);
+            BuildReports.summarizeAtSessionEnd(mavenSession, getLog());
+        } else {
+            report = BuildReports.detached(module);
+        }
+
+        BuildStep goal = report.startGoal(mojoExecution.getGoal()).with("executionId", mojoExecution.getExecutionId());
+        try {
+            executeInternal();
+            goal.finish();
+        } catch (MojoExecutionException exception) {
+            goal.fail();
+            throw exception;
+        } catch (MojoFailureException exception) {
+            goal.fail();
+            throw exception;
+        } catch (RuntimeException exception) {
+            goal.fail();
+            throw exception;
+        } finally {
+            writeReport();
+        }
+    }
+
+    private void writeReport() {
+        if (!buildReport) {
+            return;
+        }
+        File reportFile = new File(target(), "grunt-maven-report.json");
+        try {
+            report.write(reportFile);
+        } catch (IOException exception) {
+            getLog().warn("Failed to write build report to " + reportFile + ": " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Start timing step of build, step has to be finished (or failed) by caller.
+     */
+    protected BuildStep startStep(String name) {
+        return report.start(name);
+    }
+
     protected abstract void executeInternal() throws MojoExecutionException, MojoFailureException;
 
     private void initializeParameters() {
@@ -115,6 +179,14 @@ public abstract class BaseMavenGruntMojo extends AbstractMojo {
         }
     }
 
+    protected MavenProject mavenProject() {
+        return mavenProject;
+    }
+
+    protected MavenSession mavenSession() {
+        return mavenSession;
+    }
+
     protected String target() {
         return mavenProject.getBuild().getDirectory();
     }
@@ -127,6 +199,31 @@ public abstract class BaseMavenGruntMojo extends AbstractMojo {
         return sourceDirectory + File.separator + jsSourceDirectory;
     }
 
+    /**
+     * Packed node_modules archive used by npm-offline goal.
+     */
+    protected File offlineModulesFile() {
+        if (npmOfflineModulesFilePath == null) {
+            npmOfflineModulesFilePath = relativeJsSourceDirectory();
+        }
+        return new File(basedir() + File.separator + npmOfflineModulesFilePath + File.separator + npmOfflineModulesFile);
+    }
+
+    /**
+     * Paths in jsSourceDirectory that are not staged in Grunt build directory: excluded and filtered resources and packed
+     * node_modules archive.
+     */
+    protected PathPatterns stagingPatterns(String[] excludedResources, String[] filteredResources) {
+        return new PathPatterns(concat(concat(excludedResources, filteredResources), "**/" + npmOfflineModulesFile + "*"));
+    }
+
+    protected String[] concat(String[] array, String... appended) {
+        String[] result = new String[array.length + appended.length];
+        System.arraycopy(array, 0, result, 0, array.length);
+        System.arraycopy(appended, 0, result, array.length, appended.length);
+        return result;
+    }
+
     protected MojoExecutor.ExecutionEnvironment pluginExecutionEnvironment() {
         MojoExecutor.ExecutionEnvironment environment;
         try {
@@ -15,11 +15,19 @@
  */
 package pl.allegro.tdr.gruntmaven;
 
+import java.io.File;
+import java.io.IOException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.clean.CleanMode;
+import pl.allegro.tdr.gruntmaven.clean.CleaningStatistics;
+import pl.allegro.tdr.gruntmaven.clean.DirectoryCleaner;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
+import pl.allegro.tdr.gruntmaven.report.SessionEndListener;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.artifactId;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
@@ -59,8 +67,28 @@ public class CleanResourcesMojo extends BaseMavenGruntMojo {
     @Parameter(property = "mavenCleanPluginVersion", defaultValue = "2.5")
     protected String mavenCleanPluginVersion;
 
+    /**
+     * How Grunt build directory is deleted: "plugin" uses maven-clean-plugin, "parallel" deletes it in-process using cleanThreads
+     * threads, "background" moves it aside into Maven build directory and deletes it in parallel on background thread while build
+     * continues, build waits for deletion when it ends, defaults to plugin.
+     */
+    @Parameter(property = "cleanMode", defaultValue = "plugin")
+    private String cleanMode;
+
+    /**
+     * Number of threads deleting Grunt build directory in parallel and background modes, defaults to 0 (number of available
+     * processors).
+     */
+    @Parameter(property = "cleanThreads", defaultValue = "0")
+    private int cleanThreads;
+
     @Override
     public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        CleanMode mode = CleanMode.fromString(cleanMode);
+        if (mode != CleanMode.PLUGIN) {
+            clean(mode);
+            return;
+        }
         executeMojo(plugin(
                 groupId(CLEAN_MAVEN_GROUP),
                 artifactId(CLEAN_MAVEN_ARTIFACT),
@@ -74,4 +102,46 @@ public class CleanResourcesMojo extends BaseMavenGruntMojo {
                         element(name("excludeDefaultDirectories"), "true")),
                 pluginExecutionEnvironment());
     }
+
+    private void clean(CleanMode mode) throws MojoExecutionException {
+        File directory = new File(gruntBuildDirectory);
+        DirectoryCleaner cleaner = new DirectoryCleaner(cleanThreads > 0 ? cleanThreads : Runtime.getRuntime().availableProcessors(),
+                getLog());
+        BuildStep step = startStep("clean").with("mode", mode.name().toLowerCase());
+        try {
+            if (mode == CleanMode.BACKGROUND) {
+                File trash = cleaner.deleteInBackground(directory, new File(target()));
+                step.with("background", trash != null).finish();
+                if (trash != null) {
+                    getLog().info("Moved " + directory + " to " + trash + ", deleting it in background.");
+                }
+                awaitDeletionAtSessionEnd(cleaner, directory);
+            } else {
+                CleaningStatistics statistics = cleaner.delete(directory);
+                step.with("files", statistics.files()).with("directories", statistics.directories()).finish();
+                getLog().info("Deleted " + directory + ": " + statistics);
+            }
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to delete " + directory, exception);
+        }
+    }
+
+    /**
+     * Maven does not wait for daemon threads, whatever is left would stay in build directory until next clean.
+     */
+    private void awaitDeletionAtSessionEnd(final DirectoryCleaner cleaner, final File directory) {
+        final Log logger = getLog();
+        SessionEndListener.register(mavenSession(), "background-clean:" + directory.getAbsolutePath(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    cleaner.awaitBackgroundDeletion();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    logger.warn("Interrupted while waiting for background deletion of " + directory);
+                }
+            }
+        });
+    }
 }
@@ -16,14 +16,28 @@
 package pl.allegro.tdr.gruntmaven;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import pl.allegro.tdr.gruntmaven.filtering.FilteringEngine;
+import pl.allegro.tdr.gruntmaven.filtering.FilteringMode;
+import pl.allegro.tdr.gruntmaven.filtering.FilteringStatistics;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
 import pl.allegro.tdr.gruntmaven.resources.Resource;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+import pl.allegro.tdr.gruntmaven.staging.StagingEngine;
+import pl.allegro.tdr.gruntmaven.staging.StagingMode;
+import pl.allegro.tdr.gruntmaven.staging.StagingStatistics;
 import static org.twdata.maven.mojoexecutor.MojoExecutor.*;
 
 /**
@@ -79,40 +93,158 @@ public class CreateResourcesMojo extends BaseMavenGruntMojo {
     @Parameter(property = "excludedResources")
     private String[] excludedResources;
 
+    /**
+     * How resources are put in Grunt build directory: "plugin" copies all of them using maven-resources-plugin, "copy" copies only
+     * new and changed resources (and removes deleted ones) in-process, "link" works like "copy" but creates hard links (or
+     * symbolic links) instead of copies, defaults to plugin. Filtered resources are processed as set by resourcesFilteringMode.
+     */
+    @Parameter(property = "resourcesStagingMode", defaultValue = "plugin")
+    private String resourcesStagingMode;
+
+    /**
+     * How filteredResources are filtered: "plugin" uses maven-resources-plugin, "native" streams them through placeholder scanner
+     * in-process and skips resources which sources and used values did not change since last build, defaults to plugin.
+     */
+    @Parameter(property = "resourcesFilteringMode", defaultValue = "plugin")
+    private String resourcesFilteringMode;
+
     @Override
     public void executeInternal() throws MojoExecutionException, MojoFailureException {
-        executeMojo(plugin(
-                groupId(RESOURCES_MAVEN_GROUP),
-                artifactId(RESOURCES_MAVEN_ARTIFACT),
-                version(mavenResourcesPluginVersion)),
-                goal(RESOURCES_GOAL),
-                configuration(
-                        element(name("overwrite"), Boolean.toString(overwriteResources)),
-                        element(name("outputDirectory"), gruntBuildDirectory),
-                        element(name("resources"), createResourceElements())
-                ),
-                pluginExecutionEnvironment());
+        StagingMode stagingMode = StagingMode.fromString(resourcesStagingMode);
+        FilteringMode filteringMode = FilteringMode.fromString(resourcesFilteringMode);
+        if (stagingMode != StagingMode.PLUGIN) {
+            stageResources(stagingMode);
+        }
+
+        Element[] resourceElements = createResourceElements(stagingMode == StagingMode.PLUGIN, filteringMode == FilteringMode.PLUGIN);
+        if (resourceElements.length > 0) {
+            BuildStep step = startStep("copy-resources").with("resources", resourceElements.length);
+            try {
+                executeMojo(plugin(
+                        groupId(RESOURCES_MAVEN_GROUP),
+                        artifactId(RESOURCES_MAVEN_ARTIFACT),
+                        version(mavenResourcesPluginVersion)),
+                        goal(RESOURCES_GOAL),
+                        configuration(
+                                element(name("overwrite"), Boolean.toString(overwriteResources)),
+                                element(name("outputDirectory"), gruntBuildDirectory),
+                                element(name("resources"), resourceElements)
+                        ),
+                        pluginExecutionEnvironment());
+                step.finish();
+            } catch (MojoExecutionException exception) {
+                step.fail();
+                throw exception;
+            }
+        }
+        if (filteringMode == FilteringMode.NATIVE) {
+            filterResources();
+        }
 
         createWorkflowTasksDirectory();
         createInnerPropertiesResource();
     }
 
-    private Element[] createResourceElements() {
+    private void stageResources(StagingMode stagingMode) throws MojoExecutionException {
+        PathPatterns patterns = stagingPatterns(excludedResources, filteredResources);
+        StagingEngine engine = new StagingEngine(new File(fullJsSourceDirectory()), new File(gruntBuildDirectory), patterns, stagingMode,
+                Runtime.getRuntime().availableProcessors(), getLog());
+        BuildStep step = startStep("stage-resources").with("mode", stagingMode.name().toLowerCase());
+        try {
+            StagingStatistics statistics = engine.stage();
+            step.with("stagedFiles", statistics.stagedFiles())
+                    .with("stagedBytes", statistics.stagedBytes())
+                    .with("unchangedFiles", statistics.unchangedFiles())
+                    .with("removedFiles", statistics.removedFiles())
+                    .finish();
+            getLog().info("Staged resources in " + gruntBuildDirectory + ": " + statistics);
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to stage resources from " + fullJsSourceDirectory(), exception);
+        }
+    }
+
+    private void filterResources() throws MojoExecutionException {
+        FilteringEngine engine = new FilteringEngine(new File(fullJsSourceDirectory()), new File(gruntBuildDirectory), filteredResources,
+                excludedResources, filteringValues(), filteringCharset(), getLog());
+        BuildStep step = startStep("filter-resources");
+        try {
+            FilteringStatistics statistics = engine.filter();
+            step.with("filteredFiles", statistics.filteredFiles())
+                    .with("filteredBytes", statistics.filteredBytes())
+                    .with("unchangedFiles", statistics.unchangedFiles())
+                    .with("removedFiles", statistics.removedFiles())
+                    .finish();
+            getLog().info("Filtered resources in " + gruntBuildDirectory + ": " + statistics);
+            if (!statistics.unresolvedPlaceholders().isEmpty()) {
+                getLog().warn("No values for placeholders " + statistics.unresolvedPlaceholders()
+                        + " in filtered resources, leaving them as they are.");
+            }
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to filter resources from " + fullJsSourceDirectory(), exception);
+        }
+    }
+
+    /**
+     * Same sources of values as maven-resources-plugin uses, later ones override earlier ones.
+     */
+    private Map<String, String> filteringValues() {
+        MavenProject project = mavenProject();
+        Map<String, String> values = new HashMap<String, String>();
+        putIfNotNull(values, "project.groupId", project.getGroupId());
+        putIfNotNull(values, "project.artifactId", project.getArtifactId());
+        putIfNotNull(values, "project.version", project.getVersion());
+        putIfNotNull(values, "project.name", project.getName());
+        putIfNotNull(values, "project.description", project.getDescription());
+        putIfNotNull(values, "project.packaging", project.getPackaging());
+        putIfNotNull(values, "project.basedir", basedir());
+        putIfNotNull(values, "basedir", basedir());
+        putIfNotNull(values, "project.build.directory", project.getBuild().getDirectory());
+        putIfNotNull(values, "project.build.outputDirectory", project.getBuild().getOutputDirectory());
+        putIfNotNull(values, "project.build.finalName", project.getBuild().getFinalName());
+        putAll(values, project.getProperties());
+        putAll(values, mavenSession().getSystemProperties());
+        putAll(values, mavenSession().getUserProperties());
+        return values;
+    }
+
+    private void putIfNotNull(Map<String, String> values, String name, String value) {
+        if (value != null) {
+            values.put(name, value);
+        }
+    }
+
+    private void putAll(Map<String, String> values, Properties properties) {
+        for (String name : properties.stringPropertyNames()) {
+            values.put(name, properties.getProperty(name));
+        }
+    }
+
+    private Charset filteringCharset() {
+        String encoding = mavenProject().getProperties().getProperty("project.build.sourceEncoding");
+        return encoding != null ? Charset.forName(encoding) : Charset.defaultCharset();
+    }
+
+    private Element[] createResourceElements(boolean includeNormalResources, boolean includeFilteredResources) {
         List<Element> resourceElements = new ArrayList<Element>(2);
 
-        Element normalResourcesElement = element(name("resource"),
-                element(name("directory"), sourceDirectory + "/" + jsSourceDirectory),
-                element(name("includes"),
-                        element(name("include"), "**/*")
-                ),
-                element(name("excludes"),
-                        createResourcesListElement(excludedResources, "exclude", element(name("exclude"), "**/" + npmOfflineModulesFile))
-                ),
-                element(name("filtering"), "false")
-        );
-        resourceElements.add(normalResourcesElement);
-
-        if (filteredResources.length > 0) {
+        if (includeNormalResources) {
+            String[] excludes = includeFilteredResources ? excludedResources : concat(excludedResources, filteredResources);
+            Element normalResourcesElement = element(name("resource"),
+                    element(name("directory"), sourceDirectory + "/" + jsSourceDirectory),
+                    element(name("includes"),
+                            element(name("include"), "**/*")
+                    ),
+                    element(name("excludes"),
+                            createResourcesListElement(excludes, "exclude", element(name("exclude"), "**/" + npmOfflineModulesFile + "*"))
+                    ),
+                    element(name("filtering"), "false")
+            );
+            resourceElements.add(normalResourcesElement);
+        }
+
+        if (includeFilteredResources && filteredResources.length > 0) {
             Element filteredResourcesElement = element(name("resource"),
                     element(name("directory"), sourceDirectory + "/" + jsSourceDirectory),
                     element(name("includes"), createResourcesListElement(filteredResources, "include")),
@@ -162,7 +294,7 @@ public class CreateResourcesMojo extends BaseMavenGruntMojo {
         StringBuilder builder = new StringBuilder(FILTERED_RESOURCES_JSON_LENGTH);
         builder.append("[");
 
-        builder.append("\"").append("**/").append(npmOfflineModulesFile).append("\"").append(", ");
+        builder.append("\"").append("**/").append(npmOfflineModulesFile).append("*\"").append(", ");
         for (int index = 0; index < filteredResources.length; ++index) {
             builder.append("\"").append(filteredResources[index]).append("\"").append(", ");
         }
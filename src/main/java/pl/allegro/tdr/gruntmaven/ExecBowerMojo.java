@@ -29,9 +29,6 @@ import pl.allegro.tdr.gruntmaven.executable.Executable;
 @Mojo(name = "bower", defaultPhase = LifecyclePhase.COMPILE, threadSafe = true)
 public class ExecBowerMojo extends AbstractExecutableMojo {
 
-    private static final String BOWER_INSTALL_COMMAND = "install";
-    private static final String BOWER_NON_INTERACTIVE_MODE = "--config.interactive=false";
-
     /**
      * Name of bower executable in PATH, defaults to bower.
      */
@@ -45,19 +42,12 @@ public class ExecBowerMojo extends AbstractExecutableMojo {
     private String[] bowerOptions;
 
     @Override
-    protected List<Executable> getExecutables() {
-        Executable executable = new Executable(bowerExecutable);
-
-        executable.addArgument(BOWER_INSTALL_COMMAND);
-        executable.addArgument(BOWER_NON_INTERACTIVE_MODE);
-        if (!showColors) {
-            executable.addArgument("--color=false");
-        }
-
-        for(String opt: bowerOptions) {
-            executable.addNormalizedArgument(opt, "=");
-        }
+    protected String executionKind() {
+        return ExecutableFactory.BOWER_KIND;
+    }
 
-        return Arrays.asList(executable);
+    @Override
+    protected List<Executable> getExecutables() {
+        return Arrays.asList(ExecutableFactory.bowerInstall(bowerExecutable, bowerOptions, showColors));
     }
 }
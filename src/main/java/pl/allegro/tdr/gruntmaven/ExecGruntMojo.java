@@ -15,12 +15,29 @@
  */
 package pl.allegro.tdr.gruntmaven;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.TreeMap;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+import pl.allegro.tdr.gruntmaven.cache.Fingerprint;
+import pl.allegro.tdr.gruntmaven.cache.OutputsCache;
+import pl.allegro.tdr.gruntmaven.cache.UpToDateState;
 import pl.allegro.tdr.gruntmaven.executable.Executable;
+import pl.allegro.tdr.gruntmaven.executable.ExecutionPermits;
+import pl.allegro.tdr.gruntmaven.executable.GruntWorkerPool;
+import pl.allegro.tdr.gruntmaven.executable.NodeRuntime;
+import pl.allegro.tdr.gruntmaven.npm.PackageJson;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
+import pl.allegro.tdr.gruntmaven.report.SessionEndListener;
 
 /**
  * Executes grunt.
@@ -38,6 +55,13 @@ public class ExecGruntMojo extends AbstractExecutableMojo {
 
     private static final String[] IGNORE_ALL_GRUNT_ERRORS_CUSTOM_CODES = {"0", "1", "2", "3", "4", "5", "6"};
 
+    private static final String UP_TO_DATE_STATE_FILE_PREFIX = ".grunt-maven-state-";
+
+    private static final String[] BUILD_DESCRIPTORS = {"Gruntfile.js", "Gruntfile.coffee", "package.json", "npm-shrinkwrap.json",
+        "package-lock.json"};
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
     /**
      * Name of grunt target, will be passed directly to grunt.
      */
@@ -45,10 +69,12 @@ public class ExecGruntMojo extends AbstractExecutableMojo {
     private String target;
 
     /**
-     * Name of node executable in PATH, defaults to node.
+     * Stages of grunt targets, each stage is comma separated list of targets run as separate grunt processes, in parallel when
+     * native executor is used, ex. &lt;stage&gt;jshint,less,uglify&lt;/stage&gt;&lt;stage&gt;karma&lt;/stage&gt;. Stage starts when all
+     * targets of previous stage succeeded. Takes precedence over target.
      */
-    @Parameter(property = "nodeExecutable", defaultValue = "node")
-    private String nodeExecutable;
+    @Parameter(property = "gruntTargets")
+    private String[] gruntTargets;
 
     /**
      * Path to local grunt executable, defaults to grunt (global PATH).
@@ -81,27 +107,286 @@ public class ExecGruntMojo extends AbstractExecutableMojo {
     @Parameter(property = "ignoreAllErrors", defaultValue = "false")
     private boolean ignoreAllErrors;
 
+    /**
+     * Should Grunt be run by long-lived node worker shared by all modules in Maven session, instead of starting node and loading
+     * Grunt each time, defaults to false. Requires Grunt installed in node_modules of Grunt build directory.
+     */
+    @Parameter(property = "gruntWorker", defaultValue = "false")
+    private boolean gruntWorker;
+
+    /**
+     * List of files (or expressions) relative to jsSourceDirectory that Grunt execution depends on, ex. **&#47;*.js, Gruntfile.js,
+     * package.json. When set, Grunt is not run if inputs, outputs and command line did not change since last successful run.
+     */
+    @Parameter(property = "gruntInputs")
+    private String[] gruntInputs;
+
+    /**
+     * List of directories relative to gruntBuildDirectory that Grunt execution produces, Grunt is run again if any file in them
+     * has been changed or removed since last successful run.
+     */
+    @Parameter(property = "gruntOutputs")
+    private String[] gruntOutputs;
+
+    /**
+     * Should gruntOutputs be restored from cache addressed by contents of gruntInputs, Gruntfile, package.json, lock files,
+     * Grunt command line and node version instead of running Grunt, defaults to false. Requires gruntInputs and gruntOutputs.
+     */
+    @Parameter(property = "gruntCache", defaultValue = "false")
+    private boolean gruntCache;
+
+    /**
+     * Path to Grunt outputs cache directory, can be shared by concurrent builds and machines (ex. NFS mount), defaults to
+     * ~/.m2/grunt-maven-plugin/grunt-cache.
+     */
+    @Parameter(property = "gruntCacheDirectory", defaultValue = "${user.home}/.m2/grunt-maven-plugin/grunt-cache")
+    private String gruntCacheDirectory;
+
+    /**
+     * Maximum total size of Grunt outputs cache in megabytes, least recently used entries are evicted first, defaults to 1024.
+     */
+    @Parameter(property = "gruntCacheMaxSize", defaultValue = "1024")
+    private long gruntCacheMaxSize;
+
+
+    @Override
+    protected String executionKind() {
+        return ExecutableFactory.GRUNT_KIND;
+    }
+
+    @Override
+    public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        if (gruntInputs == null || gruntInputs.length == 0) {
+            runGrunt();
+            return;
+        }
+
+        UpToDateState state = new UpToDateState(new File(gruntBuildDirectory,
+                UP_TO_DATE_STATE_FILE_PREFIX + mojoExecution.getExecutionId()));
+        BuildStep check = startStep("up-to-date-check");
+        try {
+            String inputsHash = inputsHash();
+            boolean upToDate = state.isUpToDate(inputsHash, outputsHash());
+            check.with("upToDate", upToDate).finish();
+            if (upToDate) {
+                getLog().info("Grunt inputs and outputs did not change since last run, skipping " + describeTarget() + ".");
+                return;
+            }
+            state.invalidate();
+            boolean allExitedWithZero = outputsCacheEnabled() ? runGruntWithCache() : runGrunt();
+            if (allExitedWithZero) {
+                state.save(inputsHash, outputsHash());
+            } else {
+                getLog().info("Grunt errors were ignored, not marking " + describeTarget() + " as up to date.");
+            }
+        } catch (IOException exception) {
+            check.fail();
+            throw new MojoExecutionException("Failed to check if Grunt outputs are up to date.", exception);
+        }
+    }
+
+    private boolean outputsCacheEnabled() {
+        if (gruntCache && (gruntOutputs == null || gruntOutputs.length == 0)) {
+            getLog().warn("Grunt outputs cache requires gruntOutputs to be set, not using cache.");
+            return false;
+        }
+        return gruntCache;
+    }
+
+    /**
+     * Outputs are published only when every Grunt process exited with 0, outputs of run with ignored errors may be broken.
+     */
+    private boolean runGruntWithCache() throws MojoExecutionException, MojoFailureException, IOException {
+        OutputsCache cache = new OutputsCache(new File(gruntCacheDirectory), gruntCacheMaxSize * BYTES_IN_MEGABYTE,
+                new File(gruntBuildDirectory), getLog());
+        String key = outputsCacheKey();
+        BuildStep lookup = startStep("grunt-cache");
+        boolean restored = cache.restore(key, gruntOutputs, TarUtil.defaultThreads());
+        lookup.with("hit", restored).finish();
+        if (restored) {
+            return true;
+        }
+        boolean allExitedWithZero = runGrunt();
+        if (allExitedWithZero) {
+            cache.store(key, gruntOutputs);
+        } else {
+            getLog().info("Grunt errors were ignored, not storing outputs of " + describeTarget() + " in cache.");
+        }
+        return allExitedWithZero;
+    }
+
+    private String outputsCacheKey() throws IOException {
+        File sourceDirectory = new File(fullJsSourceDirectory());
+        Fingerprint fingerprint = Fingerprint.create()
+                .withFileContents("inputs", sourceDirectory, gruntInputs, null);
+        for (String descriptor : BUILD_DESCRIPTORS) {
+            fingerprint.withFile(descriptor, new File(sourceDirectory, descriptor));
+        }
+        for (Executable executable : getExecutables()) {
+            fingerprint.with("commandLine", executable.commandLine().toArray(new String[0]))
+                    .with("successCodes", executable.successCodes());
+        }
+        return fingerprint.with("stages", gruntTargets)
+                .with("outputs", gruntOutputs)
+                .with("node", NodeRuntime.of(nodeExecutable).version())
+                .hash();
+    }
+
+    private String inputsHash() throws IOException {
+        Fingerprint fingerprint = Fingerprint.create()
+                .withFileStates("inputs", new File(fullJsSourceDirectory()), gruntInputs, null);
+        for (Executable executable : getExecutables()) {
+            fingerprint.with("commandLine", executable.commandLine().toArray(new String[0]))
+                    .with("successCodes", executable.successCodes())
+                    .with("environment", new TreeMap<String, String>(executable.environmentVars()).toString());
+        }
+        fingerprint.with("stages", gruntTargets)
+                .with("node", nodeExecutable)
+                .with("gruntWorker", Boolean.toString(gruntWorker));
+        return fingerprint.hash();
+    }
+
+    private String outputsHash() {
+        Fingerprint fingerprint = Fingerprint.create();
+        if (gruntOutputs != null) {
+            for (String output : gruntOutputs) {
+                fingerprint.withFileStates(output, new File(gruntBuildDirectory, output), null, null);
+            }
+        }
+        return fingerprint.hash();
+    }
+
+    private String describeTarget() {
+        if (hasTargetStages()) {
+            return "targets " + Arrays.toString(gruntTargets);
+        }
+        return target == null || target.isEmpty() ? "default target" : "target " + target;
+    }
+
+    private boolean hasTargetStages() {
+        return gruntTargets != null && gruntTargets.length > 0;
+    }
+
+    /**
+     * @return true if every Grunt process exited with 0, false if errors were ignored
+     */
+    private boolean runGrunt() throws MojoExecutionException, MojoFailureException {
+        String gruntVersion = useGruntWorker() ? installedGruntVersion() : null;
+        if (gruntVersion == null) {
+            if (useGruntWorker()) {
+                getLog().info("Grunt not found in " + gruntBuildDirectory + "/node_modules, running Grunt without worker.");
+            }
+            return runExecutables(getExecutables());
+        }
+
+        List<String> tasks = new ArrayList<String>();
+        if (target != null && !target.isEmpty()) {
+            tasks.add(target);
+        }
+        Executable gruntCommand = new Executable(gruntExecutable, customSuccessCodes());
+        appendOptions(gruntCommand);
+
+        shutdownWorkersAtSessionEnd();
+        int exitCode;
+        ExecutionPermits.Permit permit = acquireExecutionPermit();
+        BuildStep step = startStep("grunt-worker").with("tasks", tasks.toArray(new String[0]));
+        try {
+            exitCode = GruntWorkerPool.run(nodeExecutable, gruntVersion, new File(gruntBuildDirectory), tasks, gruntCommand.arguments(),
+                    getLog());
+            step.with("exitCode", exitCode);
+            if (gruntCommand.isSuccess(exitCode)) {
+                step.finish();
+            } else {
+                step.fail();
+            }
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Grunt worker failed to run " + tasks + " in " + gruntBuildDirectory, exception);
+        } finally {
+            permit.release();
+        }
+        verifyExitCode(gruntCommand, exitCode);
+        return exitCode == 0;
+    }
+
+    private void shutdownWorkersAtSessionEnd() {
+        final Log logger = getLog();
+        SessionEndListener.register(mavenSession(), "grunt-workers", new Runnable() {
+            @Override
+            public void run() {
+                GruntWorkerPool.shutdown(logger);
+            }
+        });
+    }
+
+    private boolean useGruntWorker() {
+        if (gruntWorker && hasTargetStages()) {
+            getLog().debug("Grunt worker runs one target at a time, running gruntTargets as separate processes.");
+            return false;
+        }
+        return gruntWorker;
+    }
+
+    private String installedGruntVersion() throws MojoExecutionException {
+        try {
+            return PackageJson.version(new File(gruntBuildDirectory, "node_modules" + File.separator + "grunt"));
+        } catch (IOException exception) {
+            throw new MojoExecutionException("Failed to read version of Grunt installed in " + gruntBuildDirectory, exception);
+        }
+    }
+
     @Override
     protected List<Executable> getExecutables() {
+        if (!hasTargetStages()) {
+            return Arrays.asList(createGruntExecutable(target));
+        }
+
+        List<Executable> executables = new ArrayList<Executable>();
+        List<Executable> previousStage = new ArrayList<Executable>();
+        for (String stage : gruntTargets) {
+            List<Executable> currentStage = new ArrayList<Executable>();
+            for (String stageTarget : stage.split(",")) {
+                if (stageTarget.trim().isEmpty()) {
+                    continue;
+                }
+                Executable executable = createGruntExecutable(stageTarget.trim());
+                executable.labelOutput(stageTarget.trim());
+                executable.dependsOn(previousStage.toArray(new Executable[previousStage.size()]));
+                currentStage.add(executable);
+            }
+            if (!currentStage.isEmpty()) {
+                executables.addAll(currentStage);
+                previousStage = currentStage;
+            }
+        }
+        return executables;
+    }
+
+    private Executable createGruntExecutable(String gruntTarget) {
         Executable executable;
         if (runGruntWithNode) {
             executable = new Executable(nodeExecutable, customSuccessCodes());
         } else {
             executable = new Executable(gruntExecutable, customSuccessCodes());
         }
+        executable.ofKind(executionKind());
 
-        appendArguments(executable);
+        appendArguments(executable, gruntTarget);
 
-        return Arrays.asList(executable);
+        return executable;
     }
 
-    private void appendArguments(Executable executable) {
+    private void appendArguments(Executable executable, String gruntTarget) {
         if (runGruntWithNode) {
             executable.addArgument(gruntExecutable);
         }
-        if (target != null && !target.isEmpty()) {
-            executable.addArgument(target);
+        if (gruntTarget != null && !gruntTarget.isEmpty()) {
+            executable.addArgument(gruntTarget);
         }
+        appendOptions(executable);
+    }
+
+    private void appendOptions(Executable executable) {
         if (!showColors) {
             executable.addArgument("--no-color");
         }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.executable.Executable;
+
+/**
+ * Executes npm install and bower install, which don't depend on each other,
+ * so they run in parallel when native executor is used.
+ *
+ * @author Adam Dubiel
+ */
+@Mojo(name = "npm-bower", defaultPhase = LifecyclePhase.COMPILE, threadSafe = true)
+public class ExecNpmBowerMojo extends AbstractExecutableMojo {
+
+    /**
+     * Name of npm executable in PATH, defaults to npm.
+     */
+    @Parameter(property = "npmExecutable", defaultValue = "npm")
+    private String npmExecutable;
+
+    /**
+     * List of additional options passed to npm when calling install.
+     */
+    @Parameter(property = "npmOptions")
+    private String[] npmOptions;
+
+    /**
+     * Map of environment variables passed to npm install.
+     */
+    @Parameter
+    private Map<String, String> npmEnvironmentVar;
+
+    /**
+     * Name of bower executable in PATH, defaults to bower.
+     */
+    @Parameter(property = "bowerExecutable", defaultValue = "bower")
+    private String bowerExecutable;
+
+    /**
+     * List of options passed to bower.
+     */
+    @Parameter(property = "bowerOptions")
+    private String[] bowerOptions;
+
+    /**
+     * Executables run by this goal declare their own kinds, npm install and bower install take npm and bower permits.
+     */
+    @Override
+    protected String executionKind() {
+        return ExecutableFactory.NPM_KIND;
+    }
+
+    @Override
+    protected List<Executable> getExecutables() {
+        return Arrays.asList(
+                ExecutableFactory.npmInstall(npmExecutable, npmOptions, npmEnvironmentVar, showColors),
+                ExecutableFactory.bowerInstall(bowerExecutable, bowerOptions, showColors));
+    }
+}
@@ -15,14 +15,24 @@
  */
 package pl.allegro.tdr.gruntmaven;
 
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+import pl.allegro.tdr.gruntmaven.cache.Fingerprint;
+import pl.allegro.tdr.gruntmaven.cache.NodeModulesCache;
 import pl.allegro.tdr.gruntmaven.executable.Executable;
+import pl.allegro.tdr.gruntmaven.executable.NodeRuntime;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Executes npm install to download all dependencies declared in
@@ -35,6 +45,10 @@ public class ExecNpmMojo extends AbstractExecutableMojo {
 
     protected static final String NPM_INSTALL_COMMAND = "install";
 
+    private static final String[] DEPENDENCY_DESCRIPTORS = {"package.json", "npm-shrinkwrap.json", "package-lock.json"};
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
     /**
      * Name of npm executable in PATH, defaults to npm.
      */
@@ -53,17 +67,86 @@ public class ExecNpmMojo extends AbstractExecutableMojo {
     @Parameter
     protected Map<String, String> npmEnvironmentVar;
 
+    /**
+     * Should node_modules be restored from local cache instead of running npm install when package.json, npm-shrinkwrap.json,
+     * package-lock.json, npm options and node runtime did not change, defaults to false.
+     */
+    @Parameter(property = "npmCache", defaultValue = "false")
+    private boolean npmCache;
+
+    /**
+     * Path to node_modules cache directory, can be shared by concurrent builds, defaults to ~/.m2/grunt-maven-plugin/npm-cache.
+     */
+    @Parameter(property = "npmCacheDirectory", defaultValue = "${user.home}/.m2/grunt-maven-plugin/npm-cache")
+    private String npmCacheDirectory;
+
+    /**
+     * Maximum total size of node_modules cache in megabytes, least recently used entries are evicted first, defaults to 2048.
+     */
+    @Parameter(property = "npmCacheMaxSize", defaultValue = "2048")
+    private long npmCacheMaxSize;
+
     @Override
-    protected List<Executable> getExecutables() {
-        Executable executable = new Executable(npmExecutable);
+    public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        if (!nodeModulesCacheEnabled()) {
+            super.executeInternal();
+            return;
+        }
 
-        executable.addEnvironmentVars(npmEnvironmentVar);
+        NodeModulesCache cache = new NodeModulesCache(new File(npmCacheDirectory), npmCacheMaxSize * BYTES_IN_MEGABYTE,
+                new File(gruntBuildDirectory), getLog());
+        try {
+            String key = nodeModulesCacheKey();
+            BuildStep lookup = startStep("npm-cache");
+            boolean restored = cache.restore(key, TarUtil.defaultThreads());
+            lookup.with("hit", restored).finish();
+            if (restored) {
+                return;
+            }
+            cache.invalidate();
+            super.executeInternal();
+            cache.store(key);
+        } catch (IOException exception) {
+            throw new MojoExecutionException("Failed to use node_modules cache at " + npmCacheDirectory, exception);
+        }
+    }
 
-        executable.addArgument(NPM_INSTALL_COMMAND);
-        appendNoColorsArgument(executable);
-        appendNpmOptions(executable);
+    protected boolean nodeModulesCacheEnabled() {
+        return npmCache;
+    }
+
+    @Override
+    protected String executionKind() {
+        return ExecutableFactory.NPM_KIND;
+    }
+
+    private String nodeModulesCacheKey() throws IOException {
+        return installFingerprint().hash();
+    }
+
+    /**
+     * Everything npm install result depends on: dependency descriptors, node runtime, npm options and environment.
+     */
+    protected Fingerprint installFingerprint() throws IOException {
+        Fingerprint fingerprint = Fingerprint.create();
+        for (String descriptor : DEPENDENCY_DESCRIPTORS) {
+            fingerprint.withFile(descriptor, new File(gruntBuildDirectory, descriptor));
+        }
+        NodeRuntime runtime = NodeRuntime.of(nodeExecutable);
+        fingerprint.with("node", runtime.version())
+                .with("abi", runtime.abi())
+                .with("platform", runtime.platform())
+                .with("arch", runtime.arch())
+                .with("npmOptions", npmOptions);
+        if (npmEnvironmentVar != null) {
+            fingerprint.with("npmEnvironmentVar", new TreeMap<String, String>(npmEnvironmentVar).toString());
+        }
+        return fingerprint;
+    }
 
-        return Arrays.asList(executable);
+    @Override
+    protected List<Executable> getExecutables() {
+        return Arrays.asList(ExecutableFactory.npmInstall(npmExecutable, npmOptions, npmEnvironmentVar, showColors));
     }
 
     protected void appendNpmOptions(Executable executable) {
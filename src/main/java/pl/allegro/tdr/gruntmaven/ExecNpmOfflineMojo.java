@@ -18,14 +18,29 @@ package pl.allegro.tdr.gruntmaven;
 import java.io.*;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.archive.ArchiveStamp;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
 import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+import pl.allegro.tdr.gruntmaven.cache.Fingerprint;
+import pl.allegro.tdr.gruntmaven.cache.NativeAddonCache;
 import pl.allegro.tdr.gruntmaven.executable.Executable;
+import pl.allegro.tdr.gruntmaven.executable.NodeRuntime;
+import pl.allegro.tdr.gruntmaven.npm.NativePackage;
+import pl.allegro.tdr.gruntmaven.npm.NativePackageDetector;
+import pl.allegro.tdr.gruntmaven.npm.PackageJson;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
 
 /**
- * Run NPM rebuild.
+ * Run NPM rebuild. Stamp of extracted archive is kept in node_modules, so
+ * nothing is done as long as archive, node runtime, package.json and npm
+ * options do not change.
  *
  * @author Adam Dubiel
  */
@@ -36,40 +51,199 @@ public class ExecNpmOfflineMojo extends ExecNpmMojo {
 
     private static final String NPM_REBUILD_COMMAND = "rebuild";
 
+    static final String STAMP_FILE_NAME = ".grunt-maven-offline-stamp";
+
+    private static final long BYTES_IN_MEGABYTE = 1024 * 1024;
+
     /**
      * List of additional options passed to npm when callign rebuild.
      */
     @Parameter(property = "npmRebuildOptions")
     private String[] npmRebuildOptions;
 
+    /**
+     * Number of threads writing files extracted from offline modules archive, defaults to 0 (number of available processors, at least 2).
+     */
+    @Parameter(property = "npmOfflineExtractionThreads", defaultValue = "0")
+    private int npmOfflineExtractionThreads;
+
+    /**
+     * Should files with identical contents be extracted once and hard linked, defaults to false.
+     */
+    @Parameter(property = "npmOfflineDeduplicate", defaultValue = "false")
+    private boolean npmOfflineDeduplicate;
+
+    /**
+     * Should only production dependencies (and their dependencies) declared in package.json be extracted from offline modules
+     * archive, skipping dev dependencies, defaults to false. Works with uncompressed archives only, which are indexed on first
+     * use, compressed archives are extracted as a whole.
+     */
+    @Parameter(property = "npmOfflineProductionOnly", defaultValue = "false")
+    private boolean npmOfflineProductionOnly;
+
+    /**
+     * Should npm rebuild only packages with native addons (detected by presence of binding.gyp) instead of all packages, compiled
+     * addons are cached and restored instead of being rebuilt when possible, defaults to false.
+     */
+    @Parameter(property = "npmRebuildNativeOnly", defaultValue = "false")
+    private boolean npmRebuildNativeOnly;
+
+    /**
+     * Path to compiled native addons cache directory, can be shared by concurrent builds, defaults to
+     * ~/.m2/grunt-maven-plugin/native-cache.
+     */
+    @Parameter(property = "npmNativeCacheDirectory", defaultValue = "${user.home}/.m2/grunt-maven-plugin/native-cache")
+    private String npmNativeCacheDirectory;
+
+    /**
+     * Maximum total size of native addons cache in megabytes, least recently used entries are evicted first, defaults to 512.
+     */
+    @Parameter(property = "npmNativeCacheMaxSize", defaultValue = "512")
+    private long npmNativeCacheMaxSize;
+
+    /**
+     * Offline modules come from archive, not from npm.
+     */
+    @Override
+    protected boolean nodeModulesCacheEnabled() {
+        return false;
+    }
+
+    @Override
+    public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        File offlineModules = offlineModulesFile();
+        File nodeModules = new File(gruntBuildDirectory, NODE_MODULES_DIR_NAME);
+        BuildStep step = startStep("offline-modules-check");
+        try {
+            Set<String> selectedPackages = npmOfflineProductionOnly ? PackageJson.dependencies(new File(gruntBuildDirectory)) : null;
+            File stampFile = new File(nodeModules, stampFileName(selectedPackages));
+            String environment = installEnvironment();
+            ArchiveStamp installedStamp = ArchiveStamp.read(stampFile);
+            if (installedStamp != null && installedStamp.describes(offlineModules, environment)) {
+                step.with("upToDate", true).with("digestComputed", false).finish();
+                getLog().info("node_modules at " + nodeModules + " are up to date with " + offlineModules.getName() + ", skipping.");
+                return;
+            }
+
+            ArchiveStamp currentStamp = ArchiveStamp.of(offlineModules, environment);
+            boolean sameContents = installedStamp != null && installedStamp.sameContents(currentStamp);
+            step.with("upToDate", sameContents).with("digestComputed", true).finish();
+            if (sameContents) {
+                getLog().info("node_modules at " + nodeModules + " are up to date with " + offlineModules.getName()
+                        + " (digest " + currentStamp.digest() + "), skipping.");
+                currentStamp.write(stampFile);
+                return;
+            }
+
+            getLog().info("node_modules at " + nodeModules + " are missing or outdated, extracting " + offlineModules.getName() + ".");
+            FileUtils.deleteDirectory(nodeModules);
+            NativePackageDetector nativePackages = new NativePackageDetector();
+            step = startStep("untar").with("archive", offlineModules.getName()).with("productionOnly", npmOfflineProductionOnly);
+            ExtractionStatistics statistics = extract(offlineModules, selectedPackages, nativePackages);
+            step.with("files", statistics.files()).with("bytes", statistics.bytes())
+                    .with("deduplicatedFiles", statistics.deduplicatedFiles()).with("deduplicatedBytes", statistics.deduplicatedBytes())
+                    .finish();
+            if (npmRebuildNativeOnly) {
+                installAndRebuild(nativePackages.packages());
+            } else {
+                super.executeInternal();
+            }
+            currentStamp.write(stampFile);
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to extract offline modules from " + offlineModules, exception);
+        } catch (IllegalStateException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to extract offline modules from " + offlineModules, exception);
+        }
+    }
+
+    /**
+     * Installed modules depend not only on archive, but also on node runtime native addons were compiled for, package.json
+     * (dependencies missing in archive are installed from it) and options of install and rebuild.
+     */
+    private String installEnvironment() throws IOException {
+        return installFingerprint()
+                .with("npmRebuildOptions", npmRebuildOptions)
+                .with("npmRebuildNativeOnly", String.valueOf(npmRebuildNativeOnly))
+                .with("npmOfflineDeduplicate", String.valueOf(npmOfflineDeduplicate))
+                .hash();
+    }
+
+    /**
+     * Stamp of selective extraction is named after selected packages, so changing selection extracts archive again.
+     */
+    private String stampFileName(Set<String> selectedPackages) {
+        if (selectedPackages == null) {
+            return STAMP_FILE_NAME;
+        }
+        return STAMP_FILE_NAME + "-" + Fingerprint.create().with("packages", selectedPackages.toArray(new String[0])).hash();
+    }
+
+    private ExtractionStatistics extract(File offlineModules, Set<String> selectedPackages, NativePackageDetector nativePackages) {
+        if (selectedPackages == null) {
+            return TarUtil.untar(offlineModules, new File(gruntBuildDirectory), extractionThreads(), npmOfflineDeduplicate,
+                    nativePackages, getLog());
+        }
+        if (npmOfflineDeduplicate) {
+            getLog().warn("npmOfflineDeduplicate is ignored when extracting production dependencies only.");
+        }
+        return TarUtil.untarPackages(offlineModules, new File(gruntBuildDirectory), selectedPackages, extractionThreads(),
+                nativePackages, getLog());
+    }
+
     @Override
     protected List<Executable> getExecutables() {
-        unpackModules();
-        return Arrays.asList(createNpmInstallExecutable(), createNpmRebuildExecutable());
+        Executable install = createNpmInstallExecutable();
+        Executable rebuild = createNpmRebuildExecutable();
+        rebuild.dependsOn(install);
+        return Arrays.asList(install, rebuild);
     }
 
-    private void unpackModules() {
-        String nodeModulesPath = gruntBuildDirectory + File.separator + NODE_MODULES_DIR_NAME;
-        File targetModulesPath = new File(nodeModulesPath);
-        if (targetModulesPath.exists()) {
-            getLog().info("Found existing node_modules at " + nodeModulesPath + " , not going to overwrite them.");
+    private void installAndRebuild(List<NativePackage> nativePackages) throws MojoExecutionException, MojoFailureException, IOException {
+        runExecutable(createNpmInstallExecutable());
+
+        NativeAddonCache cache = new NativeAddonCache(new File(npmNativeCacheDirectory), npmNativeCacheMaxSize * BYTES_IN_MEGABYTE,
+                new File(gruntBuildDirectory), NodeRuntime.of(nodeExecutable), getLog());
+        BuildStep lookup = startStep("native-addon-cache").with("packages", nativePackages.size());
+        List<NativePackage> packagesToRebuild;
+        try {
+            packagesToRebuild = cache.restore(nativePackages, extractionThreads());
+        } catch (IOException exception) {
+            lookup.fail();
+            throw exception;
+        }
+        lookup.with("misses", packagesToRebuild.size()).finish();
+        getLog().info("Found " + nativePackages.size() + " packages with native addons, "
+                + packagesToRebuild.size() + " of them need to be rebuilt.");
+        if (packagesToRebuild.isEmpty()) {
             return;
         }
 
-        if (npmOfflineModulesFilePath == null) {
-            npmOfflineModulesFilePath = relativeJsSourceDirectory();
+        Executable rebuild = createNpmRebuildExecutable();
+        for (NativePackage nativePackage : packagesToRebuild) {
+            rebuild.addArgument(nativePackage.name());
         }
+        cache.beforeRebuild(packagesToRebuild);
+        runExecutable(rebuild);
+        cache.store(packagesToRebuild);
+    }
 
-        File offlineModules = new File(basedir() + File.separator + npmOfflineModulesFilePath + File.separator + npmOfflineModulesFile);
-        File targetPath = new File(gruntBuildDirectory);
-
-        TarUtil.untar(offlineModules, targetPath, getLog());
+    private int extractionThreads() {
+        if (npmOfflineExtractionThreads > 0) {
+            return npmOfflineExtractionThreads;
+        }
+        return TarUtil.defaultThreads();
     }
 
     private Executable createNpmInstallExecutable() {
         Executable executable = new Executable(npmExecutable);
+        executable.ofKind(ExecutableFactory.NPM_KIND);
         executable.addArgument(NPM_INSTALL_COMMAND);
         executable.addArgument("--ignore-scripts");
+        if (npmOfflineProductionOnly) {
+            executable.addArgument("--production");
+        }
         appendNoColorsArgument(executable);
         appendNpmOptions(executable);
 
@@ -80,6 +254,7 @@ public class ExecNpmOfflineMojo extends ExecNpmMojo {
 
     private Executable createNpmRebuildExecutable() {
         Executable executable = new Executable(npmExecutable);
+        executable.ofKind(ExecutableFactory.NPM_KIND);
         executable.addArgument(NPM_REBUILD_COMMAND);
         appendNoColorsArgument(executable);
         executable.addNormalizedArguments(npmRebuildOptions, "=");
@@ -16,12 +16,58 @@
 
 package pl.allegro.tdr.gruntmaven;
 
+import java.util.Map;
+import pl.allegro.tdr.gruntmaven.executable.Executable;
+
 /**
+ * Creates executables shared by goals that run the same tools.
  *
  * @author Adam Dubiel
  */
-public class ExecutableFactory {
+public final class ExecutableFactory {
+
+    static final String INSTALL_COMMAND = "install";
+
+    /**
+     * Kinds of executions limited by maxConcurrentExecutions.
+     */
+    static final String NPM_KIND = "npm";
+
+    static final String BOWER_KIND = "bower";
+
+    static final String GRUNT_KIND = "grunt";
+
+    private static final String BOWER_NON_INTERACTIVE_MODE = "--config.interactive=false";
+
+    private ExecutableFactory() {
+    }
+
+    static Executable npmInstall(String npmExecutable, String[] npmOptions, Map<String, String> npmEnvironmentVar, boolean showColors) {
+        Executable executable = new Executable(npmExecutable);
+        executable.ofKind(NPM_KIND);
+
+        executable.addEnvironmentVars(npmEnvironmentVar);
+
+        executable.addArgument(INSTALL_COMMAND);
+        if (!showColors) {
+            executable.addArgument("--color=false");
+        }
+        executable.addNormalizedArguments(npmOptions, "=");
+
+        return executable;
+    }
+
+    static Executable bowerInstall(String bowerExecutable, String[] bowerOptions, boolean showColors) {
+        Executable executable = new Executable(bowerExecutable);
+        executable.ofKind(BOWER_KIND);
 
-    
+        executable.addArgument(INSTALL_COMMAND);
+        executable.addArgument(BOWER_NON_INTERACTIVE_MODE);
+        if (!showColors) {
+            executable.addArgument("--color=false");
+        }
+        executable.addNormalizedArguments(bowerOptions, "=");
 
+        return executable;
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.archive.ArchiveCompression;
+import pl.allegro.tdr.gruntmaven.archive.PackingStatistics;
+import pl.allegro.tdr.gruntmaven.archive.ReproducibleTarPacker;
+import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+import pl.allegro.tdr.gruntmaven.report.BuildStep;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+
+/**
+ * Packs node_modules into archive used by npm-offline goal. Archive is
+ * reproducible: the same node_modules always produce the same bytes, so
+ * archive changes only when dependencies do.
+ *
+ * @author Adam Dubiel
+ */
+@Mojo(name = "pack-node-modules", threadSafe = true)
+public class PackNodeModulesMojo extends BaseMavenGruntMojo {
+
+    private static final String NODE_MODULES_DIR_NAME = "node_modules";
+
+    private static final String DIGEST_FILE_EXTENSION = ".sha256";
+
+    /**
+     * Caches, logs and plugin own files, never needed in packed node_modules.
+     */
+    private static final String[] DEFAULT_EXCLUDES = {
+        "**/" + ExecNpmOfflineMojo.STAMP_FILE_NAME + "*", "node_modules/.cache/**", "**/.nyc_output/**", "**/npm-debug.log", "**/.DS_Store"
+    };
+
+    /**
+     * Path to node_modules directory to pack, defaults to node_modules in gruntBuildDirectory.
+     */
+    @Parameter(property = "nodeModulesDirectory")
+    private String nodeModulesDirectory;
+
+    /**
+     * List of files (or expressions) relative to node_modules parent (ex. node_modules/**&#47;test/**) that won't be packed, on top
+     * of SCM files, caches and logs excluded by default.
+     */
+    @Parameter(property = "packExcludes")
+    private String[] packExcludes;
+
+    /**
+     * Compression of packed archive: none, gzip, bzip2 or xz, defaults to none (fastest to extract).
+     */
+    @Parameter(property = "packCompression", defaultValue = "none")
+    private String packCompression;
+
+    /**
+     * Should SHA-256 digest of archive be written next to it, in sha256sum format, defaults to true.
+     */
+    @Parameter(property = "packDigest", defaultValue = "true")
+    private boolean packDigest;
+
+    /**
+     * Number of threads walking node_modules and reading files, defaults to 0 (number of available processors).
+     */
+    @Parameter(property = "packThreads", defaultValue = "0")
+    private int packThreads;
+
+    @Override
+    protected void executeInternal() throws MojoExecutionException, MojoFailureException {
+        File nodeModules = nodeModulesDirectory != null ? new File(nodeModulesDirectory)
+                : new File(gruntBuildDirectory, NODE_MODULES_DIR_NAME);
+        if (!nodeModules.isDirectory()) {
+            throw new MojoExecutionException("There is no node_modules directory to pack at " + nodeModules + ".");
+        }
+        File archive = offlineModulesFile();
+        ArchiveCompression compression = ArchiveCompression.fromString(packCompression);
+
+        BuildStep step = startStep("pack").with("archive", archive.getName()).with("compression", compression.name());
+        try {
+            ReproducibleTarPacker packer = new ReproducibleTarPacker(excludes(), compression, threads(), getLog());
+            PackingStatistics statistics = packer.pack(nodeModules, archive);
+            if (packDigest) {
+                FileUtils.writeStringToFile(new File(archive.getPath() + DIGEST_FILE_EXTENSION),
+                        statistics.digest() + "  " + archive.getName() + "\n", "UTF-8");
+            }
+            step.with("files", statistics.files()).with("bytes", statistics.bytes()).finish();
+            getLog().info("Packed " + nodeModules + " into " + archive + ": " + statistics);
+        } catch (IOException exception) {
+            step.fail();
+            throw new MojoExecutionException("Failed to pack " + nodeModules + " into " + archive, exception);
+        }
+    }
+
+    private PathPatterns excludes() {
+        List<String> excludes = new ArrayList<String>(Arrays.asList(DEFAULT_EXCLUDES));
+        if (packExcludes != null) {
+            excludes.addAll(Arrays.asList(packExcludes));
+        }
+        return new PathPatterns(excludes.toArray(new String[excludes.size()]));
+    }
+
+    private int threads() {
+        return packThreads > 0 ? packThreads : TarUtil.defaultThreads();
+    }
+}
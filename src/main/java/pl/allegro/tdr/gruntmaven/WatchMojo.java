@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+import pl.allegro.tdr.gruntmaven.staging.StagingEngine;
+import pl.allegro.tdr.gruntmaven.staging.StagingMode;
+import pl.allegro.tdr.gruntmaven.staging.StagingStatistics;
+import pl.allegro.tdr.gruntmaven.watch.SourceWatcher;
+
+/**
+ * Watches sources for changes, stages changed files in Grunt build directory
+ * and runs Grunt target each time something changed. Runs until stopped.
+ *
+ * @author Adam Dubiel
+ */
+@Mojo(name = "watch", threadSafe = true)
+public class WatchMojo extends ExecGruntMojo {
+
+    /**
+     * Resources that should not be staged, same as in create-resources goal.
+     */
+    @Parameter(property = "excludedResources")
+    private String[] excludedResources;
+
+    /**
+     * Resources filtered by create-resources goal, they are not staged by watch.
+     */
+    @Parameter(property = "filteredResources")
+    private String[] filteredResources;
+
+    /**
+     * How changed resources are put in Grunt build directory: "copy" or "link" (see create-resources goal), "plugin" means "copy"
+     * for this goal, defaults to plugin.
+     */
+    @Parameter(property = "resourcesStagingMode", defaultValue = "plugin")
+    private String resourcesStagingMode;
+
+    /**
+     * Time in milliseconds without new changes after which collected changes are staged and Grunt is run, defaults to 100.
+     */
+    @Parameter(property = "watchDebounce", defaultValue = "100")
+    private long watchDebounce;
+
+    @Override
+    public void executeInternal() throws MojoExecutionException, MojoFailureException {
+        File sourceDirectory = new File(fullJsSourceDirectory());
+        PathPatterns patterns = stagingPatterns(excludedResources, filteredResources);
+        StagingEngine engine = new StagingEngine(sourceDirectory, new File(gruntBuildDirectory), patterns, stagingMode(),
+                Runtime.getRuntime().availableProcessors(), getLog());
+
+        SourceWatcher watcher = null;
+        try {
+            watcher = new SourceWatcher(sourceDirectory, patterns, watchDebounce, getLog());
+            getLog().info("Staged resources in " + gruntBuildDirectory + ": " + engine.stage());
+            runGruntReportingFailures();
+
+            getLog().info("Watching " + sourceDirectory + " for changes.");
+            while (true) {
+                SourceWatcher.Changes changes = watcher.awaitChanges();
+                StagingStatistics statistics = changes.overflow() ? engine.stage() : engine.stage(changes.paths());
+                getLog().info("Staged changes in " + gruntBuildDirectory + ": " + statistics);
+                if (statistics.stagedFiles() > 0 || statistics.removedFiles() > 0) {
+                    runGruntReportingFailures();
+                }
+            }
+        } catch (IOException exception) {
+            throw new MojoExecutionException("Failed to watch " + sourceDirectory, exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            getLog().info("Stopped watching " + sourceDirectory);
+        } finally {
+            IOUtils.closeQuietly(watcher);
+        }
+    }
+
+    private StagingMode stagingMode() {
+        StagingMode mode = StagingMode.fromString(resourcesStagingMode);
+        return mode == StagingMode.PLUGIN ? StagingMode.COPY : mode;
+    }
+
+    /**
+     * Failing Grunt run should not stop watching, next change might fix it.
+     */
+    private void runGruntReportingFailures() {
+        try {
+            super.executeInternal();
+        } catch (MojoExecutionException exception) {
+            getLog().error(exception.getMessage());
+        } catch (MojoFailureException exception) {
+            getLog().error(exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.apache.commons.compress.compressors.xz.XZCompressorInputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compression of TAR archive, detected using magic bytes at the beginning of
+ * archive rather than file extension. Compressed output carries no timestamps
+ * or file names, so the same TAR always compresses to the same bytes.
+ *
+ * @author Adam Dubiel
+ */
+public enum ArchiveCompression {
+
+    NONE {
+        @Override
+        boolean matches(byte[] signature, int length) {
+            return false;
+        }
+
+        @Override
+        InputStream decompressing(InputStream input) {
+            return input;
+        }
+
+        @Override
+        OutputStream compressing(OutputStream output) {
+            return output;
+        }
+    },
+    GZIP {
+        @Override
+        boolean matches(byte[] signature, int length) {
+            return GzipCompressorInputStream.matches(signature, length);
+        }
+
+        @Override
+        InputStream decompressing(InputStream input) throws IOException {
+            return new GzipCompressorInputStream(input, true);
+        }
+
+        @Override
+        OutputStream compressing(OutputStream output) throws IOException {
+            GzipParameters parameters = new GzipParameters();
+            parameters.setModificationTime(0);
+            parameters.setOperatingSystem(GZIP_UNKNOWN_OPERATING_SYSTEM);
+            return new GzipCompressorOutputStream(output, parameters);
+        }
+    },
+    BZIP2 {
+        @Override
+        boolean matches(byte[] signature, int length) {
+            return BZip2CompressorInputStream.matches(signature, length);
+        }
+
+        @Override
+        InputStream decompressing(InputStream input) throws IOException {
+            return new BZip2CompressorInputStream(input, true);
+        }
+
+        @Override
+        OutputStream compressing(OutputStream output) throws IOException {
+            return new BZip2CompressorOutputStream(output);
+        }
+    },
+    XZ {
+        @Override
+        boolean matches(byte[] signature, int length) {
+            return XZUtils.matches(signature, length);
+        }
+
+        @Override
+        InputStream decompressing(InputStream input) throws IOException {
+            return new XZCompressorInputStream(input, true);
+        }
+
+        @Override
+        OutputStream compressing(OutputStream output) throws IOException {
+            return new XZCompressorOutputStream(output);
+        }
+    };
+
+    private static final int SIGNATURE_LENGTH = 12;
+
+    private static final int GZIP_UNKNOWN_OPERATING_SYSTEM = 255;
+
+    abstract boolean matches(byte[] signature, int length);
+
+    abstract InputStream decompressing(InputStream input) throws IOException;
+
+    abstract OutputStream compressing(OutputStream output) throws IOException;
+
+    public static ArchiveCompression fromString(String compression) {
+        try {
+            return valueOf(compression.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unknown compression: " + compression + ", expected one of: none, gzip, bzip2, xz.",
+                    exception);
+        }
+    }
+
+    /**
+     * Detect compression by peeking at first bytes of stream, stream has to support mark/reset.
+     */
+    public static ArchiveCompression detect(InputStream input) throws IOException {
+        byte[] signature = new byte[SIGNATURE_LENGTH];
+        input.mark(SIGNATURE_LENGTH);
+        int length = IOUtils.read(input, signature);
+        input.reset();
+
+        for (ArchiveCompression compression : values()) {
+            if (compression.matches(signature, length)) {
+                return compression;
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
+
+/**
+ * Byte ranges of uncompressed TAR archive occupied by each package, saved
+ * in sidecar file next to archive (archive name + .index). Index is built
+ * by reading entry headers only, contents are skipped. First line holds
+ * size and modification time of indexed archive, each following line holds
+ * start offset, end offset and package path. Package is
+ * node_modules/&lt;name&gt; (or node_modules/@scope/&lt;name&gt;), so
+ * nested dependencies belong to package that contains them.
+ *
+ * @author Adam Dubiel
+ */
+public final class ArchiveIndex {
+
+    static final String FILE_EXTENSION = ".index";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int BLOCK_SIZE = 512;
+
+    private static final String ARCHIVE_PREFIX = "#archive ";
+
+    private static final String FIELD_SEPARATOR = " ";
+
+    private static final int FIELDS = 3;
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private final long archiveSize;
+
+    private final long archiveLastModified;
+
+    private final Map<String, List<Range>> packages;
+
+    private ArchiveIndex(long archiveSize, long archiveLastModified, Map<String, List<Range>> packages) {
+        this.archiveSize = archiveSize;
+        this.archiveLastModified = archiveLastModified;
+        this.packages = packages;
+    }
+
+    /**
+     * Read index from sidecar file or build it when sidecar is missing or describes other archive. Built index is saved, if
+     * possible.
+     *
+     * @throws IOException when archive is compressed, so it can't be indexed
+     */
+    public static ArchiveIndex of(File archive) throws IOException {
+        File indexFile = new File(archive.getPath() + FILE_EXTENSION);
+        ArchiveIndex index = load(indexFile, archive);
+        if (index == null) {
+            index = build(archive);
+            try {
+                index.save(indexFile);
+            } catch (IOException exception) {
+                // i.e. read only checkout, index is built again next time
+            }
+        }
+        return index;
+    }
+
+    static ArchiveIndex build(File archive) throws IOException {
+        InputStream input = new BufferedInputStream(new FileInputStream(archive), BUFFER_SIZE);
+        try {
+            if (ArchiveCompression.detect(input) != ArchiveCompression.NONE) {
+                throw new IOException("Archive " + archive + " is compressed, only uncompressed archives can be indexed.");
+            }
+            CountingInputStream counter = new CountingInputStream(input);
+            TarArchiveInputStream tarInput = new TarArchiveInputStream(counter);
+            Map<String, List<Range>> packages = new LinkedHashMap<String, List<Range>>();
+
+            long start = 0;
+            TarArchiveEntry entry = tarInput.getNextTarEntry();
+            while (entry != null) {
+                skipContents(tarInput, entry.getSize());
+                long end = blockAligned(counter.getByteCount());
+                add(packages, packageOf(entry.getName()), start, end);
+                start = end;
+                entry = tarInput.getNextTarEntry();
+            }
+            return new ArchiveIndex(archive.length(), archive.lastModified(), packages);
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Skipping on TAR stream seeks in underlying file, instead of reading skipped bytes.
+     */
+    private static void skipContents(TarArchiveInputStream tarInput, long size) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            long skipped = tarInput.skip(remaining);
+            if (skipped <= 0) {
+                if (tarInput.read() < 0) {
+                    return;
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static long blockAligned(long offset) {
+        return (offset + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    private static void add(Map<String, List<Range>> packages, String packagePath, long start, long end) {
+        List<Range> ranges = packages.get(packagePath);
+        if (ranges == null) {
+            ranges = new ArrayList<Range>();
+            packages.put(packagePath, ranges);
+        }
+        Range last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+        if (last != null && last.end == start) {
+            ranges.set(ranges.size() - 1, new Range(last.start, end));
+        } else {
+            ranges.add(new Range(start, end));
+        }
+    }
+
+    /**
+     * node_modules/grunt/lib/grunt.js belongs to node_modules/grunt, node_modules/@types/node/index.d.ts to
+     * node_modules/@types/node, entries outside of packages (node_modules itself, node_modules/.bin) to their own paths.
+     */
+    static String packageOf(String entryName) {
+        String name = entryName;
+        while (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        String[] segments = name.split("/");
+        if (segments.length < 2 || !NODE_MODULES.equals(segments[0])) {
+            return segments[0];
+        }
+        if (segments[1].startsWith("@") && segments.length > 2) {
+            return segments[0] + "/" + segments[1] + "/" + segments[2];
+        }
+        return segments[0] + "/" + segments[1];
+    }
+
+    /**
+     * @return null if there is no index, it can't be parsed or it describes other archive
+     */
+    static ArchiveIndex load(File indexFile, File archive) throws IOException {
+        if (!indexFile.isFile()) {
+            return null;
+        }
+        Map<String, List<Range>> packages = new LinkedHashMap<String, List<Range>>();
+        BufferedReader reader = Files.newBufferedReader(indexFile.toPath(), UTF_8);
+        try {
+            String line = reader.readLine();
+            if (line == null || !line.equals(ARCHIVE_PREFIX + archive.length() + FIELD_SEPARATOR + archive.lastModified())) {
+                return null;
+            }
+            line = reader.readLine();
+            while (line != null) {
+                String[] fields = line.split(FIELD_SEPARATOR, FIELDS);
+                if (fields.length != FIELDS) {
+                    return null;
+                }
+                add(packages, fields[2], Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+                line = reader.readLine();
+            }
+        } catch (NumberFormatException exception) {
+            return null;
+        } finally {
+            reader.close();
+        }
+        return new ArchiveIndex(archive.length(), archive.lastModified(), packages);
+    }
+
+    void save(File indexFile) throws IOException {
+        File temporaryFile = new File(indexFile.getPath() + ".tmp");
+        BufferedWriter writer = Files.newBufferedWriter(temporaryFile.toPath(), UTF_8);
+        try {
+            writer.append(ARCHIVE_PREFIX).append(Long.toString(archiveSize)).append(FIELD_SEPARATOR)
+                    .append(Long.toString(archiveLastModified)).append('\n');
+            for (Map.Entry<String, List<Range>> packageRanges : packages.entrySet()) {
+                for (Range range : packageRanges.getValue()) {
+                    writer.append(Long.toString(range.start)).append(FIELD_SEPARATOR).append(Long.toString(range.end))
+                            .append(FIELD_SEPARATOR).append(packageRanges.getKey()).append('\n');
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        Files.move(temporaryFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public Set<String> packages() {
+        return Collections.unmodifiableSet(packages.keySet());
+    }
+
+    public boolean contains(String packagePath) {
+        return packages.containsKey(packagePath);
+    }
+
+    /**
+     * Ranges of given packages, sorted by offset, adjacent ranges are merged.
+     */
+    List<Range> ranges(Collection<String> packagePaths) {
+        List<Range> selected = new ArrayList<Range>();
+        for (String packagePath : packagePaths) {
+            List<Range> ranges = packages.get(packagePath);
+            if (ranges != null) {
+                selected.addAll(ranges);
+            }
+        }
+        Collections.sort(selected);
+
+        List<Range> merged = new ArrayList<Range>();
+        for (Range range : selected) {
+            Range last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && last.end == range.start) {
+                merged.set(merged.size() - 1, new Range(last.start, range.end));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged;
+    }
+
+    static final class Range implements Comparable<Range> {
+
+        final long start;
+
+        final long end;
+
+        Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start;
+        }
+
+        @Override
+        public int compareTo(Range other) {
+            return start < other.start ? -1 : (start == other.start ? 0 : 1);
+        }
+    }
+}
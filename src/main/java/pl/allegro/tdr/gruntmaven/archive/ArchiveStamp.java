@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import pl.allegro.tdr.gruntmaven.cache.Fingerprint;
+
+/**
+ * Size, modification time and digest of archive that has been extracted,
+ * together with hash of environment it was installed in (node runtime,
+ * package.json, npm options). Comparing size and modification time is enough
+ * to tell that archive did not change, digest is computed only when they
+ * differ (i.e. after fresh checkout).
+ *
+ * @author Adam Dubiel
+ */
+public final class ArchiveStamp {
+
+    private static final String FIELD_SEPARATOR = " ";
+
+    private static final int FIELDS = 4;
+
+    private final long size;
+
+    private final long lastModified;
+
+    private final String digest;
+
+    private final String environment;
+
+    private ArchiveStamp(long size, long lastModified, String digest, String environment) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.digest = digest;
+        this.environment = environment;
+    }
+
+    public static ArchiveStamp of(File archive, String environment) throws IOException {
+        if (!archive.isFile()) {
+            throw new IOException("Archive " + archive + " does not exist.");
+        }
+        return new ArchiveStamp(archive.length(), archive.lastModified(), Fingerprint.create().withFile("archive", archive).hash(),
+                environment);
+    }
+
+    /**
+     * @return null if there is no stamp or it can't be parsed
+     */
+    public static ArchiveStamp read(File stampFile) throws IOException {
+        if (!stampFile.isFile()) {
+            return null;
+        }
+        String[] fields = FileUtils.readFileToString(stampFile, "UTF-8").trim().split(FIELD_SEPARATOR);
+        if (fields.length != FIELDS) {
+            return null;
+        }
+        try {
+            return new ArchiveStamp(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2], fields[3]);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    public void write(File stampFile) throws IOException {
+        String stamp = size + FIELD_SEPARATOR + lastModified + FIELD_SEPARATOR + digest + FIELD_SEPARATOR + environment;
+        FileUtils.writeStringToFile(stampFile, stamp, "UTF-8");
+    }
+
+    /**
+     * Cheap check, only size and modification time of archive are compared.
+     */
+    public boolean describes(File archive, String environment) {
+        return this.environment.equals(environment) && archive.isFile() && archive.length() == size
+                && archive.lastModified() == lastModified;
+    }
+
+    public boolean sameContents(ArchiveStamp other) {
+        return digest.equals(other.digest) && environment.equals(other.environment);
+    }
+
+    public String digest() {
+        return digest;
+    }
+}
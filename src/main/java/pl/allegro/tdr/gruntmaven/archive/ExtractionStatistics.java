@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.util.Locale;
+
+/**
+ * Summary of single archive extraction.
+ *
+ * @author Adam Dubiel
+ */
+public class ExtractionStatistics {
+
+    private static final double BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    private static final double MILLIS_IN_SECOND = 1000;
+
+    private final long files;
+
+    private final long directories;
+
+    private final long bytes;
+
+    private final long deduplicatedFiles;
+
+    private final long deduplicatedBytes;
+
+    private final long elapsedMillis;
+
+    ExtractionStatistics(long files, long directories, long bytes, long deduplicatedFiles, long deduplicatedBytes, long elapsedMillis) {
+        this.files = files;
+        this.directories = directories;
+        this.bytes = bytes;
+        this.deduplicatedFiles = deduplicatedFiles;
+        this.deduplicatedBytes = deduplicatedBytes;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long files() {
+        return files;
+    }
+
+    public long directories() {
+        return directories;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Files hard linked to identical file extracted before, instead of being written.
+     */
+    public long deduplicatedFiles() {
+        return deduplicatedFiles;
+    }
+
+    /**
+     * Bytes not written thanks to deduplication.
+     */
+    public long deduplicatedBytes() {
+        return deduplicatedBytes;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max(elapsedMillis, 1) / MILLIS_IN_SECOND;
+        double megabytes = bytes / BYTES_IN_MEGABYTE;
+        String summary = String.format(Locale.ENGLISH, "%d files, %d directories, %.1f MB in %.2f s (%.1f MB/s, %.0f files/s)",
+                files, directories, megabytes, seconds, megabytes / seconds, files / seconds);
+        if (deduplicatedFiles > 0) {
+            summary += String.format(Locale.ENGLISH, ", %d duplicates hard linked (%.1f MB saved)",
+                    deduplicatedFiles, deduplicatedBytes / BYTES_IN_MEGABYTE);
+        }
+        return summary;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.archive.ArchiveIndex.Range;
+import pl.allegro.tdr.gruntmaven.npm.PackageJson;
+
+/**
+ * Extracts only selected packages from indexed archive, seeking straight to
+ * their byte ranges. Ranges are split between threads, each reading the
+ * archive through its own file channel. Entries outside of packages
+ * (node_modules directory itself, node_modules/.bin) are always extracted.
+ *
+ * Each thread creates links of its own ranges, so hard link to file from
+ * other thread's range may fail - npm never packs hard links, so this is
+ * not a concern for node_modules archives.
+ *
+ * @author Adam Dubiel
+ */
+public class PackageExtractor {
+
+    private static final String NODE_MODULES_PREFIX = "node_modules/";
+
+    private static final String NESTED_NODE_MODULES = "/node_modules/";
+
+    private static final String PACKAGE_JSON = "/package.json";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File archive;
+
+    private final ArchiveIndex index;
+
+    private final int threads;
+
+    private final Log logger;
+
+    public PackageExtractor(File archive, ArchiveIndex index, int threads, Log logger) {
+        this.archive = archive;
+        this.index = index;
+        this.threads = Math.max(threads, 1);
+        this.logger = logger;
+    }
+
+    /**
+     * Paths of given packages and packages they depend on, transitively, read from package.json files in archive. Dependencies
+     * of packages nested in selected ones are followed too: each dependency is looked up the way node does it, in node_modules
+     * of dependent package and then in node_modules of packages containing it. Dependencies found nested are extracted
+     * together with their top level package anyway, dependencies hoisted to top level are selected.
+     */
+    public Set<String> withDependencies(Collection<String> packageNames) throws IOException {
+        Set<String> selected = new TreeSet<String>();
+        Deque<String> pending = new ArrayDeque<String>(packageNames);
+        while (!pending.isEmpty()) {
+            String packagePath = NODE_MODULES_PREFIX + pending.removeFirst();
+            if (!index.contains(packagePath) || !selected.add(packagePath)) {
+                continue;
+            }
+            Map<String, String> packageJsons = packageJsons(packagePath);
+            for (Map.Entry<String, String> packageJson : packageJsons.entrySet()) {
+                for (String dependency : PackageJson.dependencies(packageJson.getValue())) {
+                    if (!resolvesToNested(dependency, packageJson.getKey(), packageJsons.keySet())) {
+                        pending.add(dependency);
+                    }
+                }
+            }
+        }
+        return selected;
+    }
+
+    private boolean resolvesToNested(String dependency, String dependentPath, Set<String> nestedPackages) {
+        String owner = dependentPath;
+        while (owner.contains(NESTED_NODE_MODULES)) {
+            if (nestedPackages.contains(owner + NESTED_NODE_MODULES + dependency)) {
+                return true;
+            }
+            owner = owner.substring(0, owner.lastIndexOf(NESTED_NODE_MODULES));
+        }
+        return nestedPackages.contains(owner + NESTED_NODE_MODULES + dependency);
+    }
+
+    /**
+     * Contents of package.json of given top level package and of all packages nested in it, by package path.
+     */
+    private Map<String, String> packageJsons(String packagePath) throws IOException {
+        Map<String, String> packageJsons = new LinkedHashMap<String, String>();
+        FileChannel channel = new FileInputStream(archive).getChannel();
+        try {
+            List<Range> ranges = index.ranges(Collections.singleton(packagePath));
+            TarArchiveInputStream tarInput = new TarArchiveInputStream(rangesStream(channel, ranges));
+            TarArchiveEntry entry = tarInput.getNextTarEntry();
+            while (entry != null) {
+                String name = normalized(entry.getName());
+                if (name.endsWith(PACKAGE_JSON)) {
+                    String directory = name.substring(0, name.length() - PACKAGE_JSON.length());
+                    if (directory.equals(packagePath) || isNestedPackage(directory)) {
+                        packageJsons.put(directory, IOUtils.toString(tarInput, "UTF-8"));
+                    }
+                }
+                entry = tarInput.getNextTarEntry();
+            }
+            return packageJsons;
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Only package.json placed directly in node_modules/name or node_modules/@scope/name describes a package, others (ex. test
+     * fixtures) are ignored.
+     */
+    private boolean isNestedPackage(String directory) {
+        int nodeModules = directory.lastIndexOf(NESTED_NODE_MODULES);
+        if (nodeModules < 0) {
+            return false;
+        }
+        String name = directory.substring(nodeModules + NESTED_NODE_MODULES.length());
+        int separator = name.indexOf('/');
+        return separator < 0 || (name.startsWith("@") && name.indexOf('/', separator + 1) < 0);
+    }
+
+    private String normalized(String entryName) {
+        String name = entryName;
+        while (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        return name;
+    }
+
+    /**
+     * Extract given packages (paths as returned by {@link #withDependencies(Collection)}) into target directory.
+     */
+    public ExtractionStatistics extract(Collection<String> packagePaths, File target, ExtractionListener listener) throws IOException {
+        long startTime = System.currentTimeMillis();
+        List<String> extracted = new ArrayList<String>(packagePaths);
+        for (String packagePath : index.packages()) {
+            if (!packagePath.startsWith(NODE_MODULES_PREFIX) || packagePath.substring(NODE_MODULES_PREFIX.length()).startsWith(".")) {
+                extracted.add(packagePath);
+            }
+        }
+
+        List<List<Range>> chunks = chunks(index.ranges(extracted));
+        ExtractionListener sharedListener = listener == null ? null : new SynchronizedListener(listener);
+        ExecutorService readers = Executors.newFixedThreadPool(Math.max(chunks.size(), 1));
+        try {
+            List<Future<ExtractionStatistics>> results = new ArrayList<Future<ExtractionStatistics>>();
+            for (List<Range> chunk : chunks) {
+                results.add(readers.submit(new ChunkExtraction(chunk, target, sharedListener)));
+            }
+            long files = 0;
+            long directories = 0;
+            long bytes = 0;
+            for (Future<ExtractionStatistics> result : results) {
+                ExtractionStatistics statistics = result.get();
+                files += statistics.files();
+                directories += statistics.directories();
+                bytes += statistics.bytes();
+            }
+            return new ExtractionStatistics(files, directories, bytes, 0, 0, System.currentTimeMillis() - startTime);
+        } catch (ExecutionException exception) {
+            if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw new IllegalStateException(exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting packages from " + archive, exception);
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+
+    /**
+     * Split ranges into at most as many chunks of similar size as there are threads, keeping order of ranges in archive.
+     */
+    private List<List<Range>> chunks(List<Range> ranges) {
+        long total = 0;
+        for (Range range : ranges) {
+            total += range.length();
+        }
+        long chunkSize = Math.max(total / threads, 1);
+
+        List<List<Range>> chunks = new ArrayList<List<Range>>();
+        List<Range> chunk = new ArrayList<Range>();
+        long size = 0;
+        for (Range range : ranges) {
+            chunk.add(range);
+            size += range.length();
+            if (size >= chunkSize && chunks.size() < threads - 1) {
+                chunks.add(chunk);
+                chunk = new ArrayList<Range>();
+                size = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    /**
+     * Ranges read one after another form valid TAR stream, since each range starts with entry header.
+     */
+    private InputStream rangesStream(final FileChannel channel, List<Range> ranges) {
+        final Iterator<Range> iterator = ranges.iterator();
+        return new BufferedInputStream(new SequenceInputStream(new Enumeration<InputStream>() {
+            @Override
+            public boolean hasMoreElements() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                Range range = iterator.next();
+                try {
+                    channel.position(range.start);
+                } catch (IOException exception) {
+                    throw new IllegalStateException("Failed to seek in " + archive, exception);
+                }
+                BoundedInputStream rangeInput = new BoundedInputStream(Channels.newInputStream(channel), range.length());
+                rangeInput.setPropagateClose(false);
+                return rangeInput;
+            }
+        }), BUFFER_SIZE);
+    }
+
+    private final class ChunkExtraction implements Callable<ExtractionStatistics> {
+
+        private final List<Range> ranges;
+
+        private final File target;
+
+        private final ExtractionListener listener;
+
+        ChunkExtraction(List<Range> ranges, File target, ExtractionListener listener) {
+            this.ranges = ranges;
+            this.target = target;
+            this.listener = listener;
+        }
+
+        @Override
+        public ExtractionStatistics call() throws IOException {
+            FileChannel channel = new FileInputStream(archive).getChannel();
+            try {
+                return new TarExtractor(target, 1, listener, logger).extract(rangesStream(channel, ranges));
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    private static final class SynchronizedListener implements ExtractionListener {
+
+        private final ExtractionListener listener;
+
+        SynchronizedListener(ExtractionListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void fileExtracted(String path) {
+            listener.fileExtracted(path);
+        }
+    }
+}
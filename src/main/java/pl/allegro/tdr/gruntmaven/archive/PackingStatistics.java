@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+/**
+ * Summary of single packing run.
+ *
+ * @author Adam Dubiel
+ */
+public class PackingStatistics {
+
+    private final long files;
+
+    private final long bytes;
+
+    private final long excluded;
+
+    private final String digest;
+
+    private final long elapsedMillis;
+
+    PackingStatistics(long files, long bytes, long excluded, String digest, long elapsedMillis) {
+        this.files = files;
+        this.bytes = bytes;
+        this.excluded = excluded;
+        this.digest = digest;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long files() {
+        return files;
+    }
+
+    public long bytes() {
+        return bytes;
+    }
+
+    public long excluded() {
+        return excluded;
+    }
+
+    /**
+     * SHA-256 of written archive, as hex string.
+     */
+    public String digest() {
+        return digest;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files (%d bytes) packed, %d paths excluded in %d ms, sha256: %s",
+                files, bytes, excluded, elapsedMillis, digest);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads source stream on dedicated thread into bounded queue of chunks, so
+ * that producing data (i.e. decompression) overlaps with consuming it.
+ *
+ * @author Adam Dubiel
+ */
+class PrefetchingInputStream extends InputStream {
+
+    private static final byte[] END_OF_STREAM = new byte[0];
+
+    private final InputStream source;
+
+    private final int chunkSize;
+
+    private final BlockingQueue<byte[]> chunks;
+
+    private final Thread reader;
+
+    private volatile IOException readFailure;
+
+    private byte[] currentChunk;
+
+    private int position;
+
+    PrefetchingInputStream(InputStream source, int chunkSize, int queuedChunks, String threadName) {
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<byte[]>(queuedChunks);
+        this.reader = new Thread(new Reader(), threadName);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return currentChunk[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(length, currentChunk.length - position);
+        System.arraycopy(currentChunk, position, buffer, offset, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.interrupt();
+        chunks.clear();
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (currentChunk == null || (currentChunk != END_OF_STREAM && position == currentChunk.length)) {
+            try {
+                currentChunk = chunks.take();
+                position = 0;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for data.");
+            }
+        }
+        if (currentChunk == END_OF_STREAM) {
+            if (readFailure != null) {
+                throw readFailure;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private final class Reader implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                int read;
+                do {
+                    byte[] chunk = new byte[chunkSize];
+                    read = IOUtils.read(source, chunk);
+                    if (read > 0) {
+                        chunks.put(read < chunkSize ? Arrays.copyOf(chunk, read) : chunk);
+                    }
+                } while (read == chunkSize);
+                chunks.put(END_OF_STREAM);
+            } catch (IOException exception) {
+                readFailure = exception;
+                signalEndOfStream();
+            } catch (InterruptedException exception) {
+                // closed by consumer, nothing more to read
+            } finally {
+                IOUtils.closeQuietly(source);
+            }
+        }
+
+        private void signalEndOfStream() {
+            try {
+                chunks.put(END_OF_STREAM);
+            } catch (InterruptedException exception) {
+                // closed by consumer, nobody is waiting for data
+            }
+        }
+    }
+}
@@ -0,0 +1,421 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+
+/**
+ * Packs directory into TAR archive which bytes depend only on packed files:
+ * entries are sorted by path, modification times, owners and modes are
+ * normalized, long names are written as GNU long name entries with
+ * normalized headers as well and compression adds no timestamps. Identical
+ * dependency sets yield identical archives.
+ *
+ * Used both for offline node_modules archives and for cache entries.
+ *
+ * Directory tree is walked in parallel and small files are read ahead on
+ * reader threads while archive is being written.
+ *
+ * @author Adam Dubiel
+ */
+public class ReproducibleTarPacker {
+
+    /**
+     * Modification time of every entry, the same npm uses when packing packages (1985-10-26T08:15:00Z).
+     */
+    static final long ENTRY_MODIFICATION_TIME = 499162500000L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int PRELOADED_FILE_MAX_SIZE = 128 * 1024;
+
+    private static final int PRELOAD_WINDOW = 128;
+
+    private static final int DIRECTORY_MODE = 040755;
+
+    private static final int EXECUTABLE_FILE_MODE = 0100755;
+
+    private static final int FILE_MODE = 0100644;
+
+    private static final int SYMLINK_MODE = 0120777;
+
+    private final PathPatterns excludes;
+
+    private final ArchiveCompression compression;
+
+    private final int threads;
+
+    private final Log logger;
+
+    private final AtomicLong excluded = new AtomicLong();
+
+    public ReproducibleTarPacker(PathPatterns excludes, ArchiveCompression compression, int threads, Log logger) {
+        this.excludes = excludes;
+        this.compression = compression;
+        this.threads = Math.max(threads, 1);
+        this.logger = logger;
+    }
+
+    /**
+     * Pack directory into archive, entry names are relative to its parent, so
+     * packed node_modules is extracted as node_modules. Exclusion patterns are
+     * matched against entry names. Archive is replaced atomically.
+     */
+    public PackingStatistics pack(File directory, File archive) throws IOException {
+        return pack(directory.getParentFile(), Collections.singletonList(directory.getName()), archive);
+    }
+
+    /**
+     * Pack given paths (relative to base directory) into archive, entry names
+     * are relative to base directory as well. Missing paths are skipped.
+     * Archive is replaced atomically.
+     */
+    public PackingStatistics pack(File baseDirectory, List<String> packedPaths, File archive) throws IOException {
+        long startTime = System.currentTimeMillis();
+        excluded.set(0);
+        List<PackedPath> paths = walk(baseDirectory.toPath(), packedPaths);
+
+        File temporaryFile = new File(archive.getPath() + ".tmp");
+        MessageDigest digest = digest();
+        ExecutorService readers = Executors.newFixedThreadPool(threads);
+        long files = 0;
+        long bytes = 0;
+        TarArchiveOutputStream tarOutput = null;
+        try {
+            OutputStream output = new DigestOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE), digest);
+            tarOutput = new TarArchiveOutputStream(compression.compressing(output), UTF_8.name());
+            tarOutput.setLongFileMode(TarArchiveOutputStream.LONGFILE_TRUNCATE);
+            tarOutput.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_STAR);
+
+            Map<Integer, Future<byte[]>> preloaded = new HashMap<Integer, Future<byte[]>>();
+            int nextPreloaded = 0;
+            for (int index = 0; index < paths.size(); index++) {
+                for (; nextPreloaded < paths.size() && nextPreloaded <= index + PRELOAD_WINDOW; nextPreloaded++) {
+                    PackedPath path = paths.get(nextPreloaded);
+                    if (path.type == PathType.FILE && path.size <= PRELOADED_FILE_MAX_SIZE) {
+                        preloaded.put(nextPreloaded, readers.submit(new ReadTask(path.path)));
+                    }
+                }
+                PackedPath path = paths.get(index);
+                write(tarOutput, path, preloaded.remove(index));
+                if (path.type == PathType.FILE) {
+                    files++;
+                    bytes += path.size;
+                }
+            }
+            tarOutput.finish();
+            tarOutput.close();
+        } finally {
+            readers.shutdownNow();
+            IOUtils.closeQuietly(tarOutput);
+        }
+        Files.move(temporaryFile.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        return new PackingStatistics(files, bytes, excluded.get(), hex(digest.digest()), System.currentTimeMillis() - startTime);
+    }
+
+    private List<PackedPath> walk(Path base, List<String> packedPaths) throws IOException {
+        List<String> names = new ArrayList<String>(packedPaths);
+        Collections.sort(names);
+        List<PackedPath> paths = new ArrayList<PackedPath>();
+        ForkJoinPool walkers = new ForkJoinPool(threads);
+        try {
+            for (String name : names) {
+                Path path = base.resolve(name);
+                if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                String entryName = name.replace(File.separatorChar, '/');
+                PackedPath packed = packedPath(path, entryName);
+                if (packed != null) {
+                    paths.add(packed);
+                    if (packed.type == PathType.DIRECTORY) {
+                        paths.addAll(walkers.invoke(new DirectoryListing(path, entryName)));
+                    }
+                }
+            }
+        } catch (IllegalStateException exception) {
+            if (exception.getCause() instanceof IOException) {
+                throw (IOException) exception.getCause();
+            }
+            throw exception;
+        } finally {
+            walkers.shutdownNow();
+        }
+        return paths;
+    }
+
+    /**
+     * @return path to pack or null if it is excluded or is not a directory, regular file or symbolic link
+     */
+    private PackedPath packedPath(Path path, String name) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        if (attributes.isDirectory()) {
+            if (excludes.isPrunable(name)) {
+                excluded.incrementAndGet();
+                return null;
+            }
+            return new PackedPath(name + "/", path, PathType.DIRECTORY, 0, false, null);
+        }
+        if (excludes.isExcluded(name)) {
+            excluded.incrementAndGet();
+            return null;
+        }
+        if (attributes.isSymbolicLink()) {
+            String linkName = Files.readSymbolicLink(path).toString().replace(File.separatorChar, '/');
+            return new PackedPath(name, path, PathType.SYMLINK, 0, false, linkName);
+        }
+        if (attributes.isRegularFile()) {
+            return new PackedPath(name, path, PathType.FILE, attributes.size(), Files.isExecutable(path), null);
+        }
+        return null;
+    }
+
+    private void write(TarArchiveOutputStream tarOutput, PackedPath path, Future<byte[]> preloaded) throws IOException {
+        TarArchiveEntry entry;
+        if (path.type == PathType.DIRECTORY) {
+            entry = normalized(new TarArchiveEntry(path.name, TarConstants.LF_DIR), DIRECTORY_MODE);
+        } else if (path.type == PathType.SYMLINK) {
+            entry = normalized(new TarArchiveEntry(path.name, TarConstants.LF_SYMLINK), SYMLINK_MODE);
+            entry.setLinkName(path.linkName);
+            writeLongName(tarOutput, path.linkName, TarConstants.LF_GNUTYPE_LONGLINK);
+        } else {
+            entry = normalized(new TarArchiveEntry(path.name), path.executable ? EXECUTABLE_FILE_MODE : FILE_MODE);
+            entry.setSize(path.size);
+        }
+        writeLongName(tarOutput, path.name, TarConstants.LF_GNUTYPE_LONGNAME);
+
+        tarOutput.putArchiveEntry(entry);
+        if (preloaded != null) {
+            byte[] contents = contents(path, preloaded);
+            tarOutput.write(contents);
+        } else if (path.type == PathType.FILE) {
+            Files.copy(path.path, tarOutput);
+        }
+        tarOutput.closeArchiveEntry();
+        if (logger.isDebugEnabled()) {
+            logger.debug("packed: " + path.name);
+        }
+    }
+
+    private byte[] contents(PackedPath path, Future<byte[]> preloaded) throws IOException {
+        try {
+            byte[] contents = preloaded.get();
+            if (contents.length != path.size) {
+                throw new IOException("File " + path.path + " changed while packing.");
+            }
+            return contents;
+        } catch (ExecutionException exception) {
+            throw new IOException("Failed to read " + path.path, exception.getCause());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + path.path, exception);
+        }
+    }
+
+    /**
+     * TarArchiveOutputStream would write long names with current time and user, so GNU long name entries are written here
+     * and the name in entry itself is truncated by the stream.
+     */
+    private void writeLongName(TarArchiveOutputStream tarOutput, String name, byte type) throws IOException {
+        byte[] encodedName = name.getBytes(UTF_8);
+        if (encodedName.length < TarConstants.NAMELEN) {
+            return;
+        }
+        TarArchiveEntry longName = normalized(new TarArchiveEntry(TarConstants.GNU_LONGLINK, type), FILE_MODE);
+        longName.setSize(encodedName.length + 1);
+        tarOutput.putArchiveEntry(longName);
+        tarOutput.write(encodedName);
+        tarOutput.write(0);
+        tarOutput.closeArchiveEntry();
+    }
+
+    private TarArchiveEntry normalized(TarArchiveEntry entry, int mode) {
+        entry.setModTime(ENTRY_MODIFICATION_TIME);
+        entry.setIds(0, 0);
+        entry.setNames("", "");
+        entry.setMode(mode);
+        return entry;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported by this JVM.", exception);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte value : bytes) {
+            hex.append(String.format("%02x", value));
+        }
+        return hex.toString();
+    }
+
+    private enum PathType {
+        DIRECTORY, FILE, SYMLINK
+    }
+
+    private static final class PackedPath {
+
+        private final String name;
+
+        private final Path path;
+
+        private final PathType type;
+
+        private final long size;
+
+        private final boolean executable;
+
+        private final String linkName;
+
+        PackedPath(String name, Path path, PathType type, long size, boolean executable, String linkName) {
+            this.name = name;
+            this.path = path;
+            this.type = type;
+            this.size = size;
+            this.executable = executable;
+            this.linkName = linkName;
+        }
+    }
+
+    /**
+     * Lists directory and forks listing of its subdirectories, entries of each subdirectory directly follow its own entry.
+     */
+    @SuppressWarnings("serial")
+    private final class DirectoryListing extends RecursiveTask<List<PackedPath>> {
+
+        private final Path directory;
+
+        private final String name;
+
+        DirectoryListing(Path directory, String name) {
+            this.directory = directory;
+            this.name = name;
+        }
+
+        @Override
+        protected List<PackedPath> compute() {
+            try {
+                return list();
+            } catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private List<PackedPath> list() throws IOException {
+            List<Object> parts = new ArrayList<Object>();
+            for (Path child : sortedChildren(directory)) {
+                String childName = name + "/" + child.getFileName().toString();
+                PackedPath packed = packedPath(child, childName);
+                if (packed == null) {
+                    continue;
+                }
+                parts.add(packed);
+                if (packed.type == PathType.DIRECTORY) {
+                    DirectoryListing listing = new DirectoryListing(child, childName);
+                    listing.fork();
+                    parts.add(listing);
+                }
+            }
+
+            List<PackedPath> paths = new ArrayList<PackedPath>();
+            for (Object part : parts) {
+                if (part instanceof DirectoryListing) {
+                    paths.addAll(((DirectoryListing) part).join());
+                } else {
+                    paths.add((PackedPath) part);
+                }
+            }
+            return paths;
+        }
+    }
+
+    private static List<Path> sortedChildren(Path directory) throws IOException {
+        List<Path> children = new ArrayList<Path>();
+        DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+        try {
+            for (Path child : stream) {
+                children.add(child);
+            }
+        } finally {
+            stream.close();
+        }
+        Collections.sort(children, new Comparator<Path>() {
+            @Override
+            public int compare(Path first, Path second) {
+                return first.getFileName().toString().compareTo(second.getFileName().toString());
+            }
+        });
+        return children;
+    }
+
+    private static final class ReadTask implements Callable<byte[]> {
+
+        private final Path path;
+
+        ReadTask(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public byte[] call() throws IOException {
+            return Files.readAllBytes(path);
+        }
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Extracts TAR stream into target directory. Archive is decoded sequentially
+ * on calling thread, while contents of small files are handed over to bounded
+ * pool of writers. When writers can't keep up, decoding thread writes files on
+ * its own, so memory used for buffered entries stays bounded.
+ *
+ * Symbolic links are recreated (or replaced by copies of their targets when
+ * file system does not support them), hard links are created after all files
+ * have been written.
+ *
+ * In deduplicating mode content of each file is hashed while it is decoded.
+ * Only first file with given content (and executable flag) is written, later
+ * ones become hard links to it, created together with other links. Files too
+ * big to be buffered are hashed while being streamed to disk, so their
+ * duplicates are written and then replaced by links.
+ *
+ * Optional {@link ExtractionListener} is notified about each extracted file on
+ * decoding thread.
+ *
+ * @author Adam Dubiel
+ */
+public class TarExtractor {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Entries bigger than this are streamed to disk by decoding thread instead of being buffered in memory.
+     */
+    private static final long BUFFERED_ENTRY_MAX_SIZE = 256 * 1024;
+
+    private static final int QUEUED_WRITES_PER_THREAD = 4;
+
+    private static final long WRITERS_TERMINATION_TIMEOUT_MINUTES = 10;
+
+    private static final int OWNER_EXECUTE_MODE = 0100;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final File target;
+
+    private final int threads;
+
+    private final boolean deduplicate;
+
+    private final ExtractionListener listener;
+
+    private final Log logger;
+
+    private final Set<String> createdDirectories = new HashSet<String>();
+
+    private final AtomicReference<IOException> writeFailure = new AtomicReference<IOException>();
+
+    private final List<PendingLink> pendingLinks = new ArrayList<PendingLink>();
+
+    private final Map<ContentKey, File> firstCopies = new HashMap<ContentKey, File>();
+
+    private MessageDigest contentDigest;
+
+    private long deduplicatedFiles;
+
+    private long deduplicatedBytes;
+
+    public TarExtractor(File target, int threads, Log logger) {
+        this(target, threads, null, logger);
+    }
+
+    public TarExtractor(File target, int threads, ExtractionListener listener, Log logger) {
+        this(target, threads, false, listener, logger);
+    }
+
+    /**
+     * @param deduplicate should files with the same content be hard linked to first extracted copy instead of being written
+     */
+    public TarExtractor(File target, int threads, boolean deduplicate, ExtractionListener listener, Log logger) {
+        this.target = target;
+        this.threads = Math.max(threads, 1);
+        this.deduplicate = deduplicate;
+        this.listener = listener;
+        this.logger = logger;
+    }
+
+    public ExtractionStatistics extract(InputStream archive) throws IOException {
+        long startTime = System.currentTimeMillis();
+        long files = 0;
+        long directories = 0;
+        long bytes = 0;
+
+        File root = target.getCanonicalFile();
+        String rootPath = root.getPath();
+        contentDigest = deduplicate ? createDigest() : null;
+        TarArchiveInputStream tarInput = new TarArchiveInputStream(archive);
+        ThreadPoolExecutor writers = createWriters();
+        try {
+            TarArchiveEntry entry = tarInput.getNextTarEntry();
+            while (entry != null) {
+                rethrowWriteFailure();
+
+                File outputFile = resolve(rootPath, entry.getName());
+                if (entry.isDirectory()) {
+                    createDirectory(outputFile);
+                    directories++;
+                } else if (entry.isSymbolicLink() || entry.isLink()) {
+                    createDirectory(outputFile.getParentFile());
+                    pendingLinks.add(new PendingLink(root.toPath(), outputFile.toPath(), entry));
+                } else {
+                    createDirectory(outputFile.getParentFile());
+                    writeFile(root.toPath(), tarInput, entry, outputFile, writers);
+                    notifyListener(rootPath, outputFile);
+                    files++;
+                    bytes += entry.getSize();
+                }
+
+                entry = tarInput.getNextTarEntry();
+            }
+        } finally {
+            writers.shutdown();
+            awaitTermination(writers);
+        }
+        rethrowWriteFailure();
+        createLinks();
+
+        return new ExtractionStatistics(files, directories, bytes, deduplicatedFiles, deduplicatedBytes,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private File resolve(String rootPath, String entryName) {
+        String name = entryName;
+        while (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        if (name.startsWith("/") || containsParentReference(name)) {
+            throw new IllegalStateException("Archive entry " + entryName + " points outside of target directory " + rootPath);
+        }
+        return new File(rootPath, name);
+    }
+
+    private void notifyListener(String rootPath, File outputFile) {
+        if (listener != null) {
+            listener.fileExtracted(outputFile.getPath().substring(rootPath.length() + 1).replace(File.separatorChar, '/'));
+        }
+    }
+
+    private boolean containsParentReference(String name) {
+        for (String segment : name.split("[/\\\\]")) {
+            if ("..".equals(segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Directories are created only by decoding thread, so each one is created
+     * at most once and always before any file inside it is handed to writers.
+     */
+    private void createDirectory(File directory) throws IOException {
+        if (directory == null || !createdDirectories.add(directory.getPath())) {
+            return;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("creating dir at: " + directory.getPath());
+        }
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Failed to create directory " + directory.getPath());
+        }
+    }
+
+    private void writeFile(Path root, InputStream input, TarArchiveEntry entry, File outputFile, ThreadPoolExecutor writers)
+            throws IOException {
+        if (logger.isDebugEnabled()) {
+            logger.debug("creating file at: " + outputFile.getPath());
+        }
+        boolean executable = (entry.getMode() & OWNER_EXECUTE_MODE) != 0;
+        boolean hashed = contentDigest != null && entry.getSize() > 0;
+        if (entry.getSize() > BUFFERED_ENTRY_MAX_SIZE) {
+            stream(hashed ? new DigestInputStream(input, contentDigest) : input, outputFile, executable);
+            if (hashed && linkedToFirstCopy(root, new ContentKey(entry.getSize(), executable, contentDigest.digest()), outputFile)) {
+                Files.delete(outputFile.toPath());
+            }
+        } else {
+            byte[] contents = IOUtils.toByteArray(input, entry.getSize());
+            if (hashed) {
+                ContentKey key = new ContentKey(entry.getSize(), executable, contentDigest.digest(contents));
+                if (linkedToFirstCopy(root, key, outputFile)) {
+                    return;
+                }
+            }
+            writers.execute(new WriteTask(outputFile, contents, executable));
+        }
+    }
+
+    /**
+     * Remember file as first copy of its content, or schedule hard link to the first copy.
+     *
+     * @return true if file should not be written, since it will be linked
+     */
+    private boolean linkedToFirstCopy(Path root, ContentKey key, File outputFile) {
+        File firstCopy = firstCopies.get(key);
+        if (firstCopy == null) {
+            firstCopies.put(key, outputFile);
+            return false;
+        }
+        pendingLinks.add(new PendingLink(root, outputFile.toPath(), firstCopy.toPath()));
+        deduplicatedFiles++;
+        deduplicatedBytes += key.size;
+        return true;
+    }
+
+    private void stream(InputStream input, File outputFile, boolean executable) throws IOException {
+        OutputStream output = new FileOutputStream(outputFile);
+        try {
+            IOUtils.copyLarge(input, output, new byte[BUFFER_SIZE]);
+        } finally {
+            output.close();
+        }
+        if (executable) {
+            outputFile.setExecutable(true, false);
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported by this JVM.", exception);
+        }
+    }
+
+    private void createLinks() throws IOException {
+        for (PendingLink link : pendingLinks) {
+            link.create();
+        }
+    }
+
+    private void rethrowWriteFailure() throws IOException {
+        IOException failure = writeFailure.get();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private ThreadPoolExecutor createWriters() {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(threads * QUEUED_WRITES_PER_THREAD),
+                new WriterThreadFactory(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private void awaitTermination(ThreadPoolExecutor writers) throws IOException {
+        try {
+            if (!writers.awaitTermination(WRITERS_TERMINATION_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new IOException("Timed out waiting for extracted files to be written to " + target.getPath());
+            }
+        } catch (InterruptedException exception) {
+            writers.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for extracted files to be written.");
+        }
+    }
+
+    private final class WriteTask implements Runnable {
+
+        private final File outputFile;
+
+        private final byte[] contents;
+
+        private final boolean executable;
+
+        WriteTask(File outputFile, byte[] contents, boolean executable) {
+            this.outputFile = outputFile;
+            this.contents = contents;
+            this.executable = executable;
+        }
+
+        @Override
+        public void run() {
+            if (writeFailure.get() != null) {
+                return;
+            }
+            try {
+                OutputStream output = new FileOutputStream(outputFile);
+                try {
+                    output.write(contents);
+                } finally {
+                    output.close();
+                }
+                if (executable) {
+                    outputFile.setExecutable(true, false);
+                }
+            } catch (IOException exception) {
+                writeFailure.compareAndSet(null, exception);
+            }
+        }
+    }
+
+    private final class PendingLink {
+
+        private final Path root;
+
+        private final Path link;
+
+        private final Path linkTarget;
+
+        private final boolean symbolic;
+
+        PendingLink(Path root, Path link, TarArchiveEntry entry) {
+            this.root = root;
+            this.link = link;
+            this.symbolic = entry.isSymbolicLink();
+            if (symbolic) {
+                this.linkTarget = link.getParent().resolve(entry.getLinkName()).normalize();
+            } else {
+                this.linkTarget = resolve(root.toString(), entry.getLinkName()).toPath();
+            }
+            if (!linkTarget.startsWith(root)) {
+                throw new IllegalStateException("Archive link " + entry.getName() + " points outside of target directory " + root);
+            }
+        }
+
+        /**
+         * Hard link to first copy of deduplicated file.
+         */
+        PendingLink(Path root, Path link, Path linkTarget) {
+            this.root = root;
+            this.link = link;
+            this.linkTarget = linkTarget;
+            this.symbolic = false;
+        }
+
+        void create() throws IOException {
+            if (logger.isDebugEnabled()) {
+                logger.debug("creating link at: " + link + " to " + linkTarget);
+            }
+            Files.deleteIfExists(link);
+            try {
+                if (symbolic) {
+                    Files.createSymbolicLink(link, link.getParent().relativize(linkTarget));
+                } else {
+                    Files.createLink(link, linkTarget);
+                }
+            } catch (IOException exception) {
+                copyInsteadOfLink(exception);
+            } catch (UnsupportedOperationException exception) {
+                copyInsteadOfLink(exception);
+            }
+        }
+
+        private void copyInsteadOfLink(Exception cause) throws IOException {
+            logger.debug("Could not create link " + link + ", copying " + linkTarget + " instead: " + cause.getMessage());
+            if (Files.isRegularFile(linkTarget)) {
+                Files.copy(linkTarget, link, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+        }
+    }
+
+    private static final class ContentKey {
+
+        private final long size;
+
+        private final boolean executable;
+
+        private final byte[] digest;
+
+        ContentKey(long size, boolean executable, byte[] digest) {
+            this.size = size;
+            this.executable = executable;
+            this.digest = digest;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof ContentKey)) {
+                return false;
+            }
+            ContentKey other = (ContentKey) object;
+            return size == other.size && executable == other.executable && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(digest);
+        }
+    }
+
+    private static final class WriterThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "grunt-maven-untar-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
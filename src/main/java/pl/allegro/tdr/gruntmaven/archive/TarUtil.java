@@ -15,12 +15,14 @@
  */
 package pl.allegro.tdr.gruntmaven.archive;
 
-import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
 
 import java.io.*;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -28,38 +30,102 @@ import java.io.*;
  */
 public final class TarUtil {
 
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final int DECOMPRESSED_CHUNK_SIZE = 64 * 1024;
+
+    private static final int DECOMPRESSED_QUEUED_CHUNKS = 32;
+
     private TarUtil() {
     }
 
-    public static void untar(File source, File target, Log logger) {
-        TarArchiveInputStream tarInput = null;
-        ArchiveEntry entry;
-        OutputStream output = null;
+    public static ExtractionStatistics untar(File source, File target, Log logger) {
+        return untar(source, target, defaultThreads(), logger);
+    }
+
+    public static ExtractionStatistics untar(File source, File target, int threads, Log logger) {
+        return untar(source, target, threads, null, logger);
+    }
+
+    public static ExtractionStatistics untar(File source, File target, int threads, ExtractionListener listener, Log logger) {
+        return untar(source, target, threads, false, listener, logger);
+    }
 
+    /**
+     * @param deduplicate hard link files with identical contents to first extracted copy instead of writing them again
+     */
+    public static ExtractionStatistics untar(File source, File target, int threads, boolean deduplicate, ExtractionListener listener,
+            Log logger) {
+        InputStream input = null;
         try {
-            tarInput = new TarArchiveInputStream(new FileInputStream(source));
-
-            entry = tarInput.getNextEntry();
-            while (entry != null) {
-                File outputFile = new File(target.getCanonicalPath() + File.separator + entry.getName());
-                if (entry.isDirectory()) {
-                    logger.debug("creating dir at: " + outputFile.getCanonicalPath());
-                    outputFile.mkdirs();
-                } else {
-                    logger.debug("creating file at: " + outputFile.getCanonicalPath());
-                    output = new FileOutputStream(outputFile);
-                    IOUtils.copy(tarInput, output);
-                    output.flush();
-                    output.close();
-                }
-
-                entry = tarInput.getNextEntry();
-            }
+            input = new BufferedInputStream(new FileInputStream(source), READ_BUFFER_SIZE);
+            ArchiveCompression compression = ArchiveCompression.detect(input);
+            input = decompressing(input, compression);
+
+            ExtractionStatistics statistics = new TarExtractor(target, threads, deduplicate, listener, logger).extract(input);
+            logger.info("Extracted " + source.getName() + " (compression: " + compression + "): " + statistics);
+            return statistics;
         } catch (IOException exception) {
             throw new IllegalStateException(exception);
         } finally {
-            IOUtils.closeQuietly(tarInput);
-            IOUtils.closeQuietly(output);
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Extract only given top level packages and their dependencies, using archive index. Falls back to extracting whole
+     * archive if archive can't be indexed (i.e. it is compressed).
+     *
+     * @param packageNames names of packages, as in package.json dependencies
+     */
+    public static ExtractionStatistics untarPackages(File source, File target, Collection<String> packageNames, int threads,
+            ExtractionListener listener, Log logger) {
+        ArchiveIndex index;
+        try {
+            index = ArchiveIndex.of(source);
+        } catch (IOException exception) {
+            logger.warn("Can't extract selected packages: " + exception.getMessage() + " Extracting whole archive.");
+            return untar(source, target, threads, listener, logger);
+        }
+
+        try {
+            PackageExtractor extractor = new PackageExtractor(source, index, threads, logger);
+            Set<String> packagePaths = extractor.withDependencies(packageNames);
+            ExtractionStatistics statistics = extractor.extract(packagePaths, target, listener);
+            logger.info("Extracted " + packagePaths.size() + " of " + index.packages().size() + " packages from "
+                    + source.getName() + ": " + statistics);
+            return statistics;
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
         }
     }
+
+    /**
+     * Pack paths relative to base directory into uncompressed, reproducible archive.
+     *
+     * @return number of packed files
+     */
+    public static long pack(File baseDirectory, List<String> paths, File archive, Log logger) {
+        try {
+            ReproducibleTarPacker packer = new ReproducibleTarPacker(new PathPatterns(), ArchiveCompression.NONE, defaultThreads(), logger);
+            return packer.pack(baseDirectory, paths, archive).files();
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Decompression runs on its own thread, feeding TAR decoder through bounded buffer.
+     */
+    private static InputStream decompressing(InputStream input, ArchiveCompression compression) throws IOException {
+        if (compression == ArchiveCompression.NONE) {
+            return input;
+        }
+        return new PrefetchingInputStream(compression.decompressing(input),
+                DECOMPRESSED_CHUNK_SIZE, DECOMPRESSED_QUEUED_CHUNKS, "grunt-maven-decompress");
+    }
+
+    public static int defaultThreads() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors());
+    }
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
+import pl.allegro.tdr.gruntmaven.archive.TarExtractor;
+import pl.allegro.tdr.gruntmaven.archive.TarUtil;
+
+/**
+ * Directory of TAR archives addressed by key. Entries are published
+ * atomically by renaming fully written temporary file, entry modification
+ * time marks last use and least recently used entries are evicted when total
+ * size exceeds the limit. Publishing and eviction are guarded by lock shared
+ * with other processes using the same directory.
+ *
+ * @author Adam Dubiel
+ */
+public class ArchiveCache {
+
+    private static final String ENTRY_SUFFIX = ".tar";
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private static final long STALE_TEMPORARY_FILE_AGE_MILLIS = 24L * 60 * 60 * 1000;
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final Log logger;
+
+    public ArchiveCache(File directory, long maxSize, Log logger) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.logger = logger;
+    }
+
+    public boolean contains(String key) {
+        return entryFile(key).isFile();
+    }
+
+    /**
+     * Extract archive stored under given key into target directory.
+     *
+     * @return extraction statistics or null if there is no such entry
+     */
+    public ExtractionStatistics restore(String key, File target, int threads) throws IOException {
+        InputStream input = open(key);
+        if (input == null) {
+            return null;
+        }
+        try {
+            return new TarExtractor(target, threads, logger).extract(new BufferedInputStream(input, READ_BUFFER_SIZE));
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+    }
+
+    /**
+     * Pack paths relative to base directory and publish them under given key.
+     */
+    public void store(String key, File baseDirectory, List<String> paths) throws IOException {
+        ensureDirectoryExists();
+        File temporaryFile = File.createTempFile(key, TEMPORARY_SUFFIX, directory);
+        try {
+            TarUtil.pack(baseDirectory, paths, temporaryFile, logger);
+
+            DirectoryLock lock = new DirectoryLock(directory);
+            lock.lock();
+            try {
+                Files.move(temporaryFile.toPath(), entryFile(key).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                evict();
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile.toPath());
+        }
+    }
+
+    /**
+     * Opened entry stays readable even if it gets evicted in the meantime (at least on *nix).
+     */
+    private InputStream open(String key) throws IOException {
+        if (!directory.isDirectory()) {
+            return null;
+        }
+        DirectoryLock lock = new DirectoryLock(directory);
+        lock.lock();
+        try {
+            File entryFile = entryFile(key);
+            if (!entryFile.isFile()) {
+                return null;
+            }
+            entryFile.setLastModified(System.currentTimeMillis());
+            return new FileInputStream(entryFile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void evict() {
+        File[] entries = directory.listFiles(new SuffixFilter(ENTRY_SUFFIX));
+        Arrays.sort(entries, new LastModifiedComparator());
+
+        long totalSize = 0;
+        for (File entry : entries) {
+            totalSize += entry.length();
+        }
+        for (int index = 0; index < entries.length && totalSize > maxSize; ++index) {
+            long entrySize = entries[index].length();
+            if (entries[index].delete()) {
+                logger.debug("Evicted cache entry " + entries[index].getName());
+                totalSize -= entrySize;
+            }
+        }
+
+        long staleTimestamp = System.currentTimeMillis() - STALE_TEMPORARY_FILE_AGE_MILLIS;
+        for (File temporaryFile : directory.listFiles(new SuffixFilter(TEMPORARY_SUFFIX))) {
+            if (temporaryFile.lastModified() < staleTimestamp) {
+                temporaryFile.delete();
+            }
+        }
+    }
+
+    private void ensureDirectoryExists() throws IOException {
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Failed to create cache directory " + directory.getPath());
+        }
+    }
+
+    private File entryFile(String key) {
+        return new File(directory, key + ENTRY_SUFFIX);
+    }
+
+    private static final class SuffixFilter implements FileFilter {
+
+        private final String suffix;
+
+        SuffixFilter(String suffix) {
+            this.suffix = suffix;
+        }
+
+        @Override
+        public boolean accept(File file) {
+            return file.isFile() && file.getName().endsWith(suffix);
+        }
+    }
+
+    private static final class LastModifiedComparator implements Comparator<File> {
+
+        @Override
+        public int compare(File first, File second) {
+            return Long.compare(first.lastModified(), second.lastModified());
+        }
+    }
+}
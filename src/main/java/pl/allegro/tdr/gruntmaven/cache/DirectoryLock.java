@@ -0,0 +1,83 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Exclusive lock on directory shared by threads of this JVM and by other
+ * processes. File locks are held on behalf of whole JVM, so threads are
+ * serialized using in-memory lock first.
+ *
+ * @author Adam Dubiel
+ */
+class DirectoryLock {
+
+    private static final String LOCK_FILE_NAME = ".lock";
+
+    private static final ConcurrentMap<String, ReentrantLock> JVM_LOCKS = new ConcurrentHashMap<String, ReentrantLock>();
+
+    private final File lockFile;
+
+    private final ReentrantLock jvmLock;
+
+    private RandomAccessFile lockFileAccess;
+
+    private FileLock fileLock;
+
+    DirectoryLock(File directory) throws IOException {
+        this.lockFile = new File(directory, LOCK_FILE_NAME);
+        this.jvmLock = jvmLock(lockFile.getCanonicalPath());
+    }
+
+    private static ReentrantLock jvmLock(String path) {
+        ReentrantLock lock = new ReentrantLock();
+        ReentrantLock existingLock = JVM_LOCKS.putIfAbsent(path, lock);
+        return existingLock != null ? existingLock : lock;
+    }
+
+    void lock() throws IOException {
+        jvmLock.lock();
+        try {
+            lockFileAccess = new RandomAccessFile(lockFile, "rw");
+            fileLock = lockFileAccess.getChannel().lock();
+        } catch (IOException exception) {
+            IOUtils.closeQuietly(lockFileAccess);
+            jvmLock.unlock();
+            throw exception;
+        }
+    }
+
+    void unlock() {
+        try {
+            fileLock.release();
+        } catch (IOException exception) {
+            // closing the file releases the lock anyway
+        } finally {
+            IOUtils.closeQuietly(lockFileAccess);
+            fileLock = null;
+            lockFileAccess = null;
+            jvmLock.unlock();
+        }
+    }
+}
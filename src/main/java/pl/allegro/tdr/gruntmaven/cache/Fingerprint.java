@@ -0,0 +1,163 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.apache.commons.io.IOUtils;
+import org.codehaus.plexus.util.DirectoryScanner;
+
+/**
+ * Builder of SHA-1 digest over named values and file contents, used as cache key.
+ *
+ * @author Adam Dubiel
+ */
+public final class Fingerprint {
+
+    private static final String ALGORITHM = "SHA-1";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final byte[] SEPARATOR = {0};
+
+    private static final String MISSING_FILE_MARKER = "<missing>";
+
+    private final MessageDigest digest;
+
+    private Fingerprint(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    public static Fingerprint create() {
+        try {
+            return new Fingerprint(MessageDigest.getInstance(ALGORITHM));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("JVM does not support " + ALGORITHM + " digest.", exception);
+        }
+    }
+
+    public Fingerprint with(String name, String value) {
+        update(name);
+        update(value == null ? "" : value);
+        return this;
+    }
+
+    public Fingerprint with(String name, String[] values) {
+        update(name);
+        if (values != null) {
+            for (String value : values) {
+                update(value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Include contents of file, missing file is also part of fingerprint.
+     */
+    public Fingerprint withFile(String name, File file) throws IOException {
+        update(name);
+        if (!file.isFile()) {
+            update(MISSING_FILE_MARKER);
+            return this;
+        }
+        InputStream input = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read = input.read(buffer);
+            while (read != -1) {
+                digest.update(buffer, 0, read);
+                read = input.read(buffer);
+            }
+        } finally {
+            IOUtils.closeQuietly(input);
+        }
+        digest.update(SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Include relative path, size and modification time of each file matching
+     * includes in base directory, without reading file contents. Missing
+     * directory is fingerprinted as empty.
+     */
+    public Fingerprint withFileStates(String name, File baseDirectory, String[] includes, String[] excludes) {
+        update(name);
+        for (String path : scan(baseDirectory, includes, excludes)) {
+            File file = new File(baseDirectory, path);
+            update(path.replace(File.separatorChar, '/'));
+            update(file.length() + " " + file.lastModified());
+        }
+        return this;
+    }
+
+    /**
+     * Include relative path and contents of each file matching includes in
+     * base directory, fingerprint does not depend on file system metadata, so
+     * it is the same on any machine.
+     */
+    public Fingerprint withFileContents(String name, File baseDirectory, String[] includes, String[] excludes) throws IOException {
+        update(name);
+        for (String path : scan(baseDirectory, includes, excludes)) {
+            withFile(path.replace(File.separatorChar, '/'), new File(baseDirectory, path));
+        }
+        return this;
+    }
+
+    private String[] scan(File baseDirectory, String[] includes, String[] excludes) {
+        if (!baseDirectory.isDirectory()) {
+            return new String[0];
+        }
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(baseDirectory);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+
+        String[] paths = scanner.getIncludedFiles();
+        Arrays.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Compute hex representation of digest, fingerprint can't be used afterwards.
+     */
+    public String hash() {
+        byte[] bytes = digest.digest();
+        char[] hex = new char[bytes.length * 2];
+        for (int index = 0; index < bytes.length; ++index) {
+            hex[index * 2] = HEX_DIGITS[(bytes[index] >> 4) & 0xf];
+            hex[index * 2 + 1] = HEX_DIGITS[bytes[index] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private void update(String value) {
+        digest.update(value.getBytes(UTF_8));
+        digest.update(SEPARATOR);
+    }
+}
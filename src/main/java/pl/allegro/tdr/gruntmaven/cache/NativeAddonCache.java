@@ -0,0 +1,130 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
+import pl.allegro.tdr.gruntmaven.executable.NodeRuntime;
+import pl.allegro.tdr.gruntmaven.npm.NativePackage;
+
+/**
+ * Cache of compiled native addons. Files produced by rebuild of each package
+ * (found by comparing package tree before and after rebuild, so addons put
+ * outside of build directory, i.e. by node-pre-gyp, are cached as well) are
+ * stored under key made of package name, version and node version, ABI,
+ * platform and architecture, so they can be reused by any project using the
+ * same package.
+ *
+ * @author Adam Dubiel
+ */
+public class NativeAddonCache {
+
+    private final ArchiveCache cache;
+
+    private final File buildDirectory;
+
+    private final NodeRuntime runtime;
+
+    private final Log logger;
+
+    private final Map<NativePackage, PackageFiles> filesBeforeRebuild = new HashMap<NativePackage, PackageFiles>();
+
+    public NativeAddonCache(File cacheDirectory, long maxSize, File buildDirectory, NodeRuntime runtime, Log logger) {
+        this.cache = new ArchiveCache(cacheDirectory, maxSize, logger);
+        this.buildDirectory = buildDirectory;
+        this.runtime = runtime;
+        this.logger = logger;
+    }
+
+    /**
+     * Restore compiled addons of given packages.
+     *
+     * @return packages that were not found in cache and need to be rebuilt
+     */
+    public List<NativePackage> restore(List<NativePackage> packages, int threads) throws IOException {
+        List<NativePackage> missing = new ArrayList<NativePackage>();
+        for (NativePackage nativePackage : packages) {
+            String key = key(nativePackage);
+            File packageDirectory = nativePackage.directory(buildDirectory);
+            if (key == null || !cache.contains(key)) {
+                missing.add(nativePackage);
+                continue;
+            }
+            ExtractionStatistics statistics = cache.restore(key, packageDirectory, threads);
+            if (statistics == null) {
+                missing.add(nativePackage);
+            } else {
+                logger.info("Restored native addon of " + nativePackage + " from cache entry " + key + ": " + statistics);
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Remember state of package files right before rebuild, so that files produced by rebuild can be stored.
+     */
+    public void beforeRebuild(List<NativePackage> packages) throws IOException {
+        for (NativePackage nativePackage : packages) {
+            filesBeforeRebuild.put(nativePackage, PackageFiles.of(nativePackage.directory(buildDirectory)));
+        }
+    }
+
+    /**
+     * Store files produced by rebuild of given packages, packages which state was not taken before rebuild are not stored.
+     */
+    public void store(List<NativePackage> packages) throws IOException {
+        for (NativePackage nativePackage : packages) {
+            String key = key(nativePackage);
+            File packageDirectory = nativePackage.directory(buildDirectory);
+            PackageFiles before = filesBeforeRebuild.get(nativePackage);
+            if (key == null || before == null) {
+                logger.warn("Native addon of " + nativePackage + " can't be cached, no version or state before rebuild.");
+                continue;
+            }
+            List<String> rebuiltFiles = PackageFiles.of(packageDirectory).changedSince(before);
+            if (rebuiltFiles.isEmpty()) {
+                logger.warn("Rebuild of " + nativePackage + " did not change any files, native addon won't be cached.");
+                continue;
+            }
+            cache.store(key, packageDirectory, rebuiltFiles);
+            logger.info("Stored " + rebuiltFiles.size() + " files of native addon of " + nativePackage + " in cache entry " + key + ".");
+        }
+    }
+
+    /**
+     * @return null if package version is unknown
+     */
+    private String key(NativePackage nativePackage) throws IOException {
+        String version = nativePackage.version(buildDirectory);
+        if (version == null) {
+            return null;
+        }
+        return Fingerprint.create()
+                .with("package", nativePackage.name() + "@" + version)
+                .with("node", runtime.version())
+                .with("abi", runtime.abi())
+                .with("platform", runtime.platform())
+                .with("arch", runtime.arch())
+                .with("contents", "rebuilt-files")
+                .hash();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
+
+/**
+ * Cache of node_modules directory installed in Grunt build directory. Key of
+ * restored or stored modules is saved next to them, so up to date
+ * node_modules are not even extracted.
+ *
+ * @author Adam Dubiel
+ */
+public class NodeModulesCache {
+
+    private static final String NODE_MODULES_DIR_NAME = "node_modules";
+
+    private static final String KEY_FILE_NAME = ".grunt-maven-cache-key";
+
+    private final ArchiveCache cache;
+
+    private final File buildDirectory;
+
+    private final File nodeModulesDirectory;
+
+    private final Log logger;
+
+    public NodeModulesCache(File cacheDirectory, long maxSize, File buildDirectory, Log logger) {
+        this.cache = new ArchiveCache(cacheDirectory, maxSize, logger);
+        this.buildDirectory = buildDirectory;
+        this.nodeModulesDirectory = new File(buildDirectory, NODE_MODULES_DIR_NAME);
+        this.logger = logger;
+    }
+
+    /**
+     * Make sure node_modules stored under key are in place.
+     *
+     * @return false on cache miss
+     */
+    public boolean restore(String key, int threads) throws IOException {
+        if (key.equals(installedKey())) {
+            logger.info("node_modules are up to date with cache entry " + key + ", nothing to restore.");
+            return true;
+        }
+        if (!cache.contains(key)) {
+            logger.info("node_modules cache miss for " + key + ".");
+            return false;
+        }
+
+        FileUtils.deleteDirectory(nodeModulesDirectory);
+        ExtractionStatistics statistics = cache.restore(key, buildDirectory, threads);
+        if (statistics == null) {
+            logger.info("node_modules cache entry " + key + " has been evicted before it could be restored.");
+            return false;
+        }
+        writeInstalledKey(key);
+        logger.info("Restored node_modules from cache entry " + key + ": " + statistics);
+        return true;
+    }
+
+    /**
+     * Forget key of installed node_modules, should be called before they are modified.
+     */
+    public void invalidate() throws IOException {
+        FileUtils.deleteQuietly(keyFile());
+    }
+
+    public void store(String key) throws IOException {
+        cache.store(key, buildDirectory, Arrays.asList(NODE_MODULES_DIR_NAME));
+        writeInstalledKey(key);
+        logger.info("Stored node_modules in cache entry " + key + ".");
+    }
+
+    private String installedKey() throws IOException {
+        File keyFile = keyFile();
+        if (!keyFile.isFile()) {
+            return null;
+        }
+        return FileUtils.readFileToString(keyFile, "UTF-8").trim();
+    }
+
+    private void writeInstalledKey(String key) throws IOException {
+        FileUtils.writeStringToFile(keyFile(), key, "UTF-8");
+    }
+
+    private File keyFile() {
+        return new File(nodeModulesDirectory, KEY_FILE_NAME);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionStatistics;
+
+/**
+ * Cache of directories produced by build, addressed by hash of build inputs.
+ * Cache directory can be shared by many machines (ex. mounted over NFS),
+ * entries are published atomically and evicted when cache grows too big.
+ *
+ * @author Adam Dubiel
+ */
+public class OutputsCache {
+
+    private final ArchiveCache cache;
+
+    private final File buildDirectory;
+
+    private final Log logger;
+
+    public OutputsCache(File cacheDirectory, long maxSize, File buildDirectory, Log logger) {
+        this.cache = new ArchiveCache(cacheDirectory, maxSize, logger);
+        this.buildDirectory = buildDirectory;
+        this.logger = logger;
+    }
+
+    /**
+     * Replace outputs with ones stored under key.
+     *
+     * @return false on cache miss
+     */
+    public boolean restore(String key, String[] outputs, int threads) throws IOException {
+        if (!cache.contains(key)) {
+            logger.info("Outputs cache miss for " + key + ".");
+            return false;
+        }
+        for (String output : outputs) {
+            FileUtils.deleteDirectory(new File(buildDirectory, output));
+        }
+        ExtractionStatistics statistics = cache.restore(key, buildDirectory, threads);
+        if (statistics == null) {
+            logger.info("Outputs cache entry " + key + " has been evicted before it could be restored.");
+            return false;
+        }
+        logger.info("Restored outputs from cache entry " + key + ": " + statistics);
+        return true;
+    }
+
+    public void store(String key, String[] outputs) throws IOException {
+        List<String> existingOutputs = new ArrayList<String>();
+        for (String output : outputs) {
+            if (new File(buildDirectory, output).exists()) {
+                existingOutputs.add(output);
+            }
+        }
+        cache.store(key, buildDirectory, existingOutputs);
+        logger.info("Stored outputs " + existingOutputs + " in cache entry " + key + ".");
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Size and modification time of each file of installed package, nested
+ * node_modules left out (dependencies are packages of their own). Comparing
+ * states taken before and after rebuild tells which files rebuild produced,
+ * wherever they were put (build, lib/binding, vendor).
+ *
+ * @author Adam Dubiel
+ */
+final class PackageFiles {
+
+    private static final String NODE_MODULES_DIR_NAME = "node_modules";
+
+    private final Map<String, String> states;
+
+    private PackageFiles(Map<String, String> states) {
+        this.states = states;
+    }
+
+    static PackageFiles of(File packageDirectory) throws IOException {
+        final Path root = packageDirectory.toPath();
+        final Map<String, String> states = new HashMap<String, String>();
+        if (!packageDirectory.isDirectory()) {
+            return new PackageFiles(states);
+        }
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                if (!directory.equals(root) && NODE_MODULES_DIR_NAME.equals(directory.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String path = root.relativize(file).toString().replace(File.separatorChar, '/');
+                states.put(path, attributes.size() + ":" + attributes.lastModifiedTime().toMillis());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return new PackageFiles(states);
+    }
+
+    /**
+     * @return paths of files added or modified since given state, sorted
+     */
+    List<String> changedSince(PackageFiles before) {
+        List<String> changed = new ArrayList<String>();
+        for (Map.Entry<String, String> state : states.entrySet()) {
+            if (!state.getValue().equals(before.states.get(state.getKey()))) {
+                changed.add(state.getKey());
+            }
+        }
+        Collections.sort(changed);
+        return changed;
+    }
+}
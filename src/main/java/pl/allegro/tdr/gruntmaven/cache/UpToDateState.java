@@ -0,0 +1,57 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Fingerprints of inputs and outputs saved after last successful execution.
+ * Execution can be skipped when inputs did not change and outputs are still
+ * the same as produced last time.
+ *
+ * @author Adam Dubiel
+ */
+public class UpToDateState {
+
+    private static final String SEPARATOR = " ";
+
+    private final File stateFile;
+
+    public UpToDateState(File stateFile) {
+        this.stateFile = stateFile;
+    }
+
+    public boolean isUpToDate(String inputsHash, String outputsHash) throws IOException {
+        if (!stateFile.isFile()) {
+            return false;
+        }
+        String state = FileUtils.readFileToString(stateFile, "UTF-8").trim();
+        return state.equals(inputsHash + SEPARATOR + outputsHash);
+    }
+
+    /**
+     * Forget saved state, should be called before execution starts, so failed execution is never up to date.
+     */
+    public void invalidate() {
+        FileUtils.deleteQuietly(stateFile);
+    }
+
+    public void save(String inputsHash, String outputsHash) throws IOException {
+        FileUtils.writeStringToFile(stateFile, inputsHash + SEPARATOR + outputsHash, "UTF-8");
+    }
+}
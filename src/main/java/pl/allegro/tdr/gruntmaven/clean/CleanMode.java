@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.clean;
+
+import java.util.Locale;
+
+/**
+ * How clean goal removes Grunt build directory.
+ *
+ * @author Adam Dubiel
+ */
+public enum CleanMode {
+
+    /**
+     * Delete directory using maven-clean-plugin.
+     */
+    PLUGIN,
+    /**
+     * Delete directory in-process, subdirectories are deleted in parallel.
+     */
+    PARALLEL,
+    /**
+     * Move directory aside and delete it in parallel on background thread, while build continues.
+     */
+    BACKGROUND;
+
+    public static CleanMode fromString(String mode) {
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unknown clean mode: " + mode + ", expected one of: plugin, parallel, background.",
+                    exception);
+        }
+    }
+}
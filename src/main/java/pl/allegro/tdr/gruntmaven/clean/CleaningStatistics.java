@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.clean;
+
+/**
+ * Summary of single directory deletion.
+ *
+ * @author Adam Dubiel
+ */
+public class CleaningStatistics {
+
+    private final long files;
+
+    private final long directories;
+
+    private final long elapsedMillis;
+
+    CleaningStatistics(long files, long directories, long elapsedMillis) {
+        this.files = files;
+        this.directories = directories;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long files() {
+        return files;
+    }
+
+    public long directories() {
+        return directories;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files and %d directories deleted in %d ms", files, directories, elapsedMillis);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.clean;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Deletes directory trees in-process. Each directory is deleted by its own
+ * task on work stealing pool: files are deleted right away, subdirectories
+ * are forked and directory itself is deleted once they are gone. Symbolic
+ * links are deleted, never followed.
+ *
+ * Directory can also be moved aside (renamed to hidden directory in given
+ * trash directory, which is atomic within file system) and deleted on
+ * background daemon thread, so build continues at once. Maven does not wait
+ * for daemon threads, so deletion should be awaited when build ends, moved
+ * directories left over by interrupted builds are deleted along with it.
+ *
+ * @author Adam Dubiel
+ */
+public class DirectoryCleaner {
+
+    private static final String TRASH_INFIX = ".deleting-";
+
+    private static final String THREAD_NAME = "grunt-maven-clean";
+
+    private final int threads;
+
+    private final Log logger;
+
+    private Thread backgroundDeletion;
+
+    public DirectoryCleaner(int threads, Log logger) {
+        this.threads = Math.max(threads, 1);
+        this.logger = logger;
+    }
+
+    public CleaningStatistics delete(File directory) throws IOException {
+        long startTime = System.currentTimeMillis();
+        AtomicLong files = new AtomicLong();
+        AtomicLong directories = new AtomicLong();
+        Path root = directory.toPath();
+        if (Files.exists(root, LinkOption.NOFOLLOW_LINKS)) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new DeletionTask(root, files, directories));
+            } catch (IllegalStateException exception) {
+                throw new IOException("Failed to delete " + directory, ioCause(exception));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new CleaningStatistics(files.get(), directories.get(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Failure of forked task can be rethrown wrapped in exception of the same type.
+     */
+    private Throwable ioCause(Throwable exception) {
+        Throwable cause = exception;
+        while (cause.getCause() != null && !(cause instanceof IOException)) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Move directory aside into trash directory and delete it, together with directories moved there before, on background
+     * thread. Trash directory should be on the same file system and outside of sources (ex. Maven build directory). Falls back
+     * to deleting directory right away if it can't be moved.
+     *
+     * @return directory which is being deleted in background, null if given directory does not exist or has been deleted
+     */
+    public File deleteInBackground(File directory, File trashDirectory) throws IOException {
+        if (!directory.exists()) {
+            deleteInBackground(leftovers(directory, trashDirectory));
+            return null;
+        }
+        File trash = new File(trashDirectory, "." + directory.getName() + TRASH_INFIX + System.currentTimeMillis());
+        try {
+            Files.createDirectories(trashDirectory.toPath());
+            Files.move(directory.toPath(), trash.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            logger.warn("Can't move " + directory + " aside (" + exception.getMessage() + "), deleting it right away.");
+            logger.info("Deleted " + directory + ": " + delete(directory));
+            return null;
+        }
+        deleteInBackground(leftovers(directory, trashDirectory));
+        return trash;
+    }
+
+    private List<File> leftovers(File directory, File trashDirectory) {
+        List<File> leftovers = new ArrayList<File>();
+        File[] trashed = trashDirectory.listFiles();
+        if (trashed != null) {
+            String trashPrefix = "." + directory.getName() + TRASH_INFIX;
+            for (File file : trashed) {
+                if (file.getName().startsWith(trashPrefix)) {
+                    leftovers.add(file);
+                }
+            }
+        }
+        return leftovers;
+    }
+
+    /**
+     * Wait until directories moved aside by this cleaner are deleted.
+     */
+    public void awaitBackgroundDeletion() throws InterruptedException {
+        Thread deletion;
+        synchronized (this) {
+            deletion = backgroundDeletion;
+        }
+        if (deletion != null) {
+            deletion.join();
+        }
+    }
+
+    private synchronized void deleteInBackground(final List<File> directories) {
+        if (directories.isEmpty()) {
+            return;
+        }
+        Thread deletion = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (File directory : directories) {
+                    try {
+                        CleaningStatistics statistics = delete(directory);
+                        logger.debug("Deleted " + directory + " in background: " + statistics);
+                    } catch (IOException exception) {
+                        logger.warn("Failed to delete " + directory + " in background: " + exception.getMessage());
+                    }
+                }
+            }
+        }, THREAD_NAME);
+        deletion.setDaemon(true);
+        deletion.start();
+        backgroundDeletion = deletion;
+    }
+
+    @SuppressWarnings("serial")
+    private static final class DeletionTask extends RecursiveAction {
+
+        private final Path directory;
+
+        private final AtomicLong files;
+
+        private final AtomicLong directories;
+
+        DeletionTask(Path directory, AtomicLong files, AtomicLong directories) {
+            this.directory = directory;
+            this.files = files;
+            this.directories = directories;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                deleteDirectory();
+            } catch (IOException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private void deleteDirectory() throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (!attributes.isDirectory()) {
+                deleteFile(directory);
+                return;
+            }
+
+            List<DeletionTask> subdirectories = new ArrayList<DeletionTask>();
+            DirectoryStream<Path> children = Files.newDirectoryStream(directory);
+            try {
+                for (Path child : children) {
+                    if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                        DeletionTask subdirectory = new DeletionTask(child, files, directories);
+                        subdirectory.fork();
+                        subdirectories.add(subdirectory);
+                    } else {
+                        deleteFile(child);
+                    }
+                }
+            } finally {
+                children.close();
+            }
+            for (DeletionTask subdirectory : subdirectories) {
+                subdirectory.join();
+            }
+            Files.deleteIfExists(directory);
+            directories.incrementAndGet();
+        }
+
+        private void deleteFile(Path file) throws IOException {
+            try {
+                Files.delete(file);
+            } catch (NoSuchFileException exception) {
+                return;
+            } catch (IOException exception) {
+                // read only files can't be deleted on Windows
+                if (!file.toFile().setWritable(true)) {
+                    throw exception;
+                }
+                Files.deleteIfExists(file);
+            }
+            files.incrementAndGet();
+        }
+    }
+}
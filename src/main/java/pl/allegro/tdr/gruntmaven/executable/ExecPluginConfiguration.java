@@ -0,0 +1,123 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.twdata.maven.mojoexecutor.MojoExecutor.Element;
+import static org.twdata.maven.mojoexecutor.MojoExecutor.element;
+import static org.twdata.maven.mojoexecutor.MojoExecutor.name;
+
+/**
+ * Builds exec-maven-plugin
+ * <pre>configuration</pre> of executable. Compatible with Windows via
+ * <pre>cmd /C</pre>.
+ *
+ * @author Adam Dubiel
+ */
+public final class ExecPluginConfiguration {
+
+    private static final String EXEC_SUCCESS_CODES_ELEMENT = "successCodes";
+
+    private static final String EXEC_SUCCESS_CODE_ELEMENT = "successCode";
+
+    private ExecPluginConfiguration() {
+    }
+
+    /**
+     * Create
+     * <pre>configuration</pre> element for host OS.
+     *
+     * @return <pre>configuration</pre> element
+     */
+    public static Element[] of(Executable executable, boolean windows, String workingDirectory) {
+        Element[] configuration;
+        if (windows) {
+            configuration = buildConfigForWindows(executable);
+        } else {
+            configuration = buildConfigForProperOS(executable);
+        }
+
+        configuration = concat(configuration, element(name("workingDirectory"), workingDirectory));
+
+        if (executable.hasEnvironmentVars()) {
+            configuration = concat(configuration, element("environmentVariables", elementsFromMap(executable.environmentVars())));
+        }
+
+        if (executable.overrideSuccessCodes()) {
+            configuration = concat(configuration, successCodes(executable));
+        }
+
+        return configuration;
+    }
+
+    /**
+     * Create
+     * <pre>configuration</pre> element for proper *nix OSes.
+     *
+     * @return configuration
+     */
+    private static Element[] buildConfigForProperOS(Executable executable) {
+        return new Element[]{
+            element(name("executable"), executable.executableName()),
+            element(name("arguments"), executable.argumentsArray())
+        };
+    }
+
+    /**
+     * Create
+     * <pre>configuration</pre> element for strange Windows OS.
+     *
+     * @return configuration
+     */
+    private static Element[] buildConfigForWindows(Executable executable) {
+        Element[] arguments = new Element[]{
+            element(name("argument"), "/C"),
+            element(name("argument"), executable.executableName())
+        };
+        arguments = concat(arguments, executable.argumentsArray());
+
+        return new Element[]{
+            element(name("executable"), "cmd"),
+            element(name("arguments"), arguments)
+        };
+    }
+
+    private static Element successCodes(Executable executable) {
+        Element[] successCodesElements = new Element[executable.successCodes().length];
+        for (int index = 0; index < executable.successCodes().length; ++index) {
+            successCodesElements[index] = element(EXEC_SUCCESS_CODE_ELEMENT, executable.successCodes()[index]);
+        }
+        return element(EXEC_SUCCESS_CODES_ELEMENT, successCodesElements);
+    }
+
+    private static Element[] elementsFromMap(Map<String, String> elements) {
+        List<Element> elementList = new ArrayList<Element>();
+        for (Map.Entry<String, String> entry : elements.entrySet()) {
+            elementList.add(element(entry.getKey(), entry.getValue()));
+        }
+
+        return elementList.toArray(new Element[elementList.size()]);
+    }
+
+    private static Element[] concat(Element[] array1, Element... array2) {
+        Element[] result = Arrays.copyOf(array1, array1.length + array2.length);
+        System.arraycopy(array2, 0, result, array1.length, array2.length);
+        return result;
+    }
+}
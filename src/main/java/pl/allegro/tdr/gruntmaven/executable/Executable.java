@@ -16,6 +16,7 @@
 package pl.allegro.tdr.gruntmaven.executable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -44,12 +45,24 @@ public class Executable {
 
     private final String executableName;
 
-    private List<MojoExecutor.Element> arguments = new ArrayList<MojoExecutor.Element>();
+    private List<String> arguments = new ArrayList<String>();
 
     private final String[] successCodes;
 
     private Map<String, String> environmentVars = new HashMap<String, String>();
 
+    private final List<Executable> dependencies = new ArrayList<Executable>();
+
+    private String outputLabel;
+
+    private String kind;
+
+    private long timeoutMillis;
+
+    private long stallTimeoutMillis;
+
+    private int retriesOnTimeout;
+
     public Executable(String executableName, String[] successCodes) {
         this.executableName = executableName;
         this.successCodes = successCodes;
@@ -61,12 +74,13 @@ public class Executable {
 
     Executable(Executable executable) {
         this.executableName = executable.executableName();
-        this.arguments = new ArrayList<MojoExecutor.Element>(executable.arguments());
+        this.arguments = new ArrayList<String>(executable.arguments());
         this.successCodes = executable.successCodes();
+        this.kind = executable.kind();
     }
 
     public void addArgument(String value) {
-        arguments.add(element(name(ARGUMENT_NAME), value));
+        arguments.add(value);
     }
 
     /**
@@ -76,7 +90,7 @@ public class Executable {
      * characters after first whitespace.
      */
     public void addNormalizedArgument(String value, String whitespaceReplacement) {
-        arguments.add(element(name(ARGUMENT_NAME), normalizeArgument(value, whitespaceReplacement)));
+        arguments.add(normalizeArgument(value, whitespaceReplacement));
     }
 
     public void addNormalizedArguments(String[] values, String whitespaceReplacement) {
@@ -87,6 +101,74 @@ public class Executable {
         }
     }
 
+    /**
+     * Executable won't be started until all dependencies finish successfully,
+     * executables without dependencies between them may run in parallel.
+     */
+    public void dependsOn(Executable... executables) {
+        dependencies.addAll(Arrays.asList(executables));
+    }
+
+    public List<Executable> dependencies() {
+        return Collections.unmodifiableList(dependencies);
+    }
+
+    /**
+     * Prefix each line of output of native process with label, to tell apart output of executables running in parallel.
+     */
+    public void labelOutput(String outputLabel) {
+        this.outputLabel = outputLabel;
+    }
+
+    public String outputLabel() {
+        return outputLabel;
+    }
+
+    /**
+     * Kind of execution (ex. npm, bower, grunt) used to limit number of concurrent executions, needed when it can't be told by
+     * executable name (i.e. Grunt run with node).
+     */
+    public void ofKind(String kind) {
+        this.kind = kind;
+    }
+
+    public String kind() {
+        return kind;
+    }
+
+    /**
+     * Kill native process if it does not finish within given time, 0 means no limit.
+     */
+    public void timeoutAfter(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public long timeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Kill native process if it does not print anything for given time, 0 means no limit.
+     */
+    public void stallTimeoutAfter(long stallTimeoutMillis) {
+        this.stallTimeoutMillis = stallTimeoutMillis;
+    }
+
+    public long stallTimeoutMillis() {
+        return stallTimeoutMillis;
+    }
+
+    /**
+     * Start native process again, at most given number of times, when it has been killed after timeout.
+     */
+    public void retryOnTimeout(int retriesOnTimeout) {
+        this.retriesOnTimeout = retriesOnTimeout;
+    }
+
+    public int retriesOnTimeout() {
+        return retriesOnTimeout;
+    }
+
     public boolean hasEnvironmentVars() {
         return !environmentVars.isEmpty();
     }
@@ -113,12 +195,29 @@ public class Executable {
         return executableName;
     }
 
-    public List<MojoExecutor.Element> arguments() {
+    public List<String> arguments() {
         return Collections.unmodifiableList(arguments);
     }
 
+    /**
+     * Arguments as exec-maven-plugin configuration elements.
+     */
     public MojoExecutor.Element[] argumentsArray() {
-        return arguments.toArray(new MojoExecutor.Element[arguments.size()]);
+        MojoExecutor.Element[] elements = new MojoExecutor.Element[arguments.size()];
+        for (int index = 0; index < elements.length; ++index) {
+            elements[index] = element(name(ARGUMENT_NAME), arguments.get(index));
+        }
+        return elements;
+    }
+
+    /**
+     * Executable name followed by all arguments.
+     */
+    public List<String> commandLine() {
+        List<String> commandLine = new ArrayList<String>(arguments.size() + 1);
+        commandLine.add(executableName);
+        commandLine.addAll(arguments);
+        return commandLine;
     }
 
     public boolean overrideSuccessCodes() {
@@ -128,4 +227,16 @@ public class Executable {
     public String[] successCodes() {
         return successCodes;
     }
+
+    public boolean isSuccess(int exitCode) {
+        if (successCodes == null) {
+            return exitCode == 0;
+        }
+        for (String successCode : successCodes) {
+            if (successCode.trim().equals(Integer.toString(exitCode))) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
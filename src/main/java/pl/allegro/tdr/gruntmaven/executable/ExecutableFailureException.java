@@ -0,0 +1,36 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+@SuppressWarnings("serial")
+public class ExecutableFailureException extends RuntimeException {
+
+    ExecutableFailureException(String message) {
+        super(message);
+    }
+
+    ExecutableFailureException(Executable executable, int exitCode) {
+        super(String.format("Result of %s execution is: '%d'.", executable.commandLine(), exitCode));
+    }
+
+    ExecutableFailureException(Executable executable, Throwable cause) {
+        super(String.format("Failed to execute %s.", executable.commandLine()), cause);
+    }
+}
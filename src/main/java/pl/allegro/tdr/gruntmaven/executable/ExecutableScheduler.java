@@ -0,0 +1,324 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Runs executables as graph of dependencies on bounded pool of threads.
+ * Executable is started as soon as all of its dependencies succeeded. First
+ * failure stops the whole graph: processes still running are destroyed and
+ * executables waiting for their turn are never started. Single scheduler
+ * should be used to run single graph.
+ *
+ * @author Adam Dubiel
+ */
+public class ExecutableScheduler {
+
+    private static final long TERMINATION_TIMEOUT_SECONDS = 30;
+
+    private final ProcessExecutor processExecutor;
+
+    private final int threads;
+
+    private final ExecutionListener listener;
+
+    private final ExecutionLimits limits;
+
+    private final Log logger;
+
+    private final Object monitor = new Object();
+
+    private final Map<Executable, Integer> pendingDependencies = new IdentityHashMap<Executable, Integer>();
+
+    private final Map<Executable, List<Executable>> dependents = new IdentityHashMap<Executable, List<Executable>>();
+
+    private final Set<RunningProcess> runningProcesses = new HashSet<RunningProcess>();
+
+    private ExecutorService pool;
+
+    private int finished;
+
+    private boolean allExitedWithZero = true;
+
+    private RuntimeException failure;
+
+    public ExecutableScheduler(ProcessExecutor processExecutor, int threads, Log logger) {
+        this(processExecutor, threads, null, logger);
+    }
+
+    public ExecutableScheduler(ProcessExecutor processExecutor, int threads, ExecutionListener listener, Log logger) {
+        this(processExecutor, threads, listener, null, logger);
+    }
+
+    /**
+     * @param limits permit is taken from limits before each executable is started and released when it ends, no limits if null
+     */
+    public ExecutableScheduler(ProcessExecutor processExecutor, int threads, ExecutionListener listener, ExecutionLimits limits,
+            Log logger) {
+        this.processExecutor = processExecutor;
+        this.threads = Math.max(threads, 1);
+        this.listener = listener;
+        this.limits = limits;
+        this.logger = logger;
+    }
+
+    /**
+     * Run all executables, returns when all of them succeeded.
+     *
+     * @return true if every executable exited with 0, false if some non-zero exit code was accepted by executable's success codes
+     * @throws ExecutableFailureException with first failure
+     */
+    public boolean execute(List<Executable> executables) throws InterruptedException {
+        if (executables.isEmpty()) {
+            return true;
+        }
+        List<Executable> roots = buildGraph(executables);
+        pool = Executors.newFixedThreadPool(Math.min(threads, executables.size()), new SchedulerThreadFactory());
+        try {
+            synchronized (monitor) {
+                for (Executable root : roots) {
+                    submit(root);
+                }
+                while (finished < executables.size() && failure == null) {
+                    monitor.wait();
+                }
+                if (failure != null) {
+                    destroyRunningProcesses();
+                    throw failure;
+                }
+                return allExitedWithZero;
+            }
+        } catch (InterruptedException exception) {
+            synchronized (monitor) {
+                destroyRunningProcesses();
+            }
+            throw exception;
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return executables without dependencies
+     */
+    private List<Executable> buildGraph(List<Executable> executables) {
+        List<Executable> roots = new ArrayList<Executable>();
+        for (Executable executable : inDependencyOrder(executables)) {
+            pendingDependencies.put(executable, executable.dependencies().size());
+            dependents.put(executable, new ArrayList<Executable>());
+            for (Executable dependency : executable.dependencies()) {
+                dependents.get(dependency).add(executable);
+            }
+            if (executable.dependencies().isEmpty()) {
+                roots.add(executable);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Order executables so that each one comes after all of its dependencies,
+     * executables without dependencies between them keep original order.
+     */
+    public static List<Executable> inDependencyOrder(List<Executable> executables) {
+        Set<Executable> scheduled = Collections.newSetFromMap(new IdentityHashMap<Executable, Boolean>());
+        scheduled.addAll(executables);
+        List<Executable> ordered = new ArrayList<Executable>();
+        Set<Executable> ordering = Collections.newSetFromMap(new IdentityHashMap<Executable, Boolean>());
+        Set<Executable> visited = Collections.newSetFromMap(new IdentityHashMap<Executable, Boolean>());
+        for (Executable executable : executables) {
+            visit(executable, scheduled, visited, ordering, ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(Executable executable, Set<Executable> scheduled, Set<Executable> visited,
+            Set<Executable> ordering, List<Executable> ordered) {
+        if (visited.contains(executable)) {
+            return;
+        }
+        if (!ordering.add(executable)) {
+            throw new IllegalStateException("Dependencies of " + executable.commandLine() + " form a cycle.");
+        }
+        for (Executable dependency : executable.dependencies()) {
+            if (!scheduled.contains(dependency)) {
+                throw new IllegalStateException("Dependency " + dependency.commandLine() + " of "
+                        + executable.commandLine() + " is not scheduled for execution.");
+            }
+            visit(dependency, scheduled, visited, ordering, ordered);
+        }
+        ordering.remove(executable);
+        visited.add(executable);
+        ordered.add(executable);
+    }
+
+    private void submit(final Executable executable) {
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                runAndReport(executable);
+            }
+        });
+    }
+
+    /**
+     * Every way out of here either counts executable as finished or records failure, both wake up thread waiting in
+     * {@link #execute(List)}.
+     */
+    private void runAndReport(Executable executable) {
+        try {
+            Integer exitCode = run(executable);
+            if (exitCode == null) {
+                return;
+            }
+            if (listener != null) {
+                listener.executableFinished(executable, exitCode);
+            }
+            synchronized (monitor) {
+                if (!executable.isSuccess(exitCode)) {
+                    fail(new ExecutableFailureException(executable, exitCode));
+                    return;
+                }
+                finished++;
+                allExitedWithZero &= exitCode == 0;
+                for (Executable dependent : dependents.get(executable)) {
+                    int left = pendingDependencies.get(dependent) - 1;
+                    pendingDependencies.put(dependent, left);
+                    if (left == 0 && failure == null) {
+                        submit(dependent);
+                    }
+                }
+                monitor.notifyAll();
+            }
+        } catch (ExecutableFailureException exception) {
+            synchronized (monitor) {
+                fail(exception);
+            }
+        } catch (IOException exception) {
+            synchronized (monitor) {
+                fail(new ExecutableFailureException(executable, exception));
+            }
+        } catch (InterruptedException exception) {
+            synchronized (monitor) {
+                fail(new ExecutableFailureException(executable, exception));
+            }
+        } catch (RuntimeException exception) {
+            synchronized (monitor) {
+                fail(new ExecutableFailureException(executable, exception));
+            }
+        }
+    }
+
+    /**
+     * @return exit code or null if executable was not started because other executable has already failed
+     */
+    private Integer run(Executable executable) throws IOException, InterruptedException {
+        synchronized (monitor) {
+            if (failure != null) {
+                return null;
+            }
+        }
+        ExecutionPermits.Permit permit = limits != null ? limits.acquire(executable) : null;
+        try {
+            return runWithPermit(executable);
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+
+    private Integer runWithPermit(Executable executable) throws IOException, InterruptedException {
+        for (int attempt = 1;; attempt++) {
+            RunningProcess process;
+            synchronized (monitor) {
+                if (failure != null) {
+                    return null;
+                }
+                process = processExecutor.start(executable);
+                runningProcesses.add(process);
+            }
+
+            try {
+                if (listener != null && attempt == 1) {
+                    listener.executableStarted(executable);
+                }
+                return process.waitFor();
+            } catch (ExecutableTimeoutException exception) {
+                if (attempt > executable.retriesOnTimeout()) {
+                    if (listener != null) {
+                        listener.executableTimedOut(executable);
+                    }
+                    throw exception;
+                }
+                logger.warn(exception.getMessage() + " Retrying (" + attempt + " of " + executable.retriesOnTimeout() + ").");
+            } catch (InterruptedException exception) {
+                process.destroy();
+                throw exception;
+            } catch (RuntimeException exception) {
+                process.destroy();
+                throw exception;
+            } finally {
+                synchronized (monitor) {
+                    runningProcesses.remove(process);
+                }
+            }
+        }
+    }
+
+    private void fail(RuntimeException exception) {
+        if (failure == null) {
+            failure = exception;
+            logger.error(exception.getMessage() + " Stopping other executables.");
+        }
+        monitor.notifyAll();
+    }
+
+    private void destroyRunningProcesses() {
+        for (RunningProcess process : runningProcesses) {
+            logger.warn("Destroying " + process.executable().commandLine());
+            process.destroy();
+        }
+        runningProcesses.clear();
+    }
+
+    private static final class SchedulerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "grunt-maven-executor-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+/**
+ * Thrown when executable did not finish within its timeout or stopped
+ * producing output for longer than its stall timeout, and has been killed.
+ *
+ * @author Adam Dubiel
+ */
+@SuppressWarnings("serial")
+public class ExecutableTimeoutException extends ExecutableFailureException {
+
+    ExecutableTimeoutException(Executable executable, String reason) {
+        super(String.format("Execution of %s %s, killed it.", executable.commandLine(), reason));
+    }
+}
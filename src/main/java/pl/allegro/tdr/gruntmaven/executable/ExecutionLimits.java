@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Maximum number of concurrent executions of each kind, permit is taken for
+ * every started process. Executables which don't declare their kind count
+ * as default kind of goal running them.
+ *
+ * @author Adam Dubiel
+ */
+public class ExecutionLimits {
+
+    private final Map<String, Integer> limits;
+
+    private final String defaultKind;
+
+    private final File lockDirectory;
+
+    private final Log logger;
+
+    /**
+     * @param limits maximum number of concurrent executions by kind, as configured (values are parsed)
+     */
+    public ExecutionLimits(Map<String, String> limits, String defaultKind, File lockDirectory, Log logger) {
+        this.limits = new HashMap<String, Integer>();
+        if (limits != null) {
+            for (Map.Entry<String, String> limit : limits.entrySet()) {
+                this.limits.put(limit.getKey(), Integer.parseInt(limit.getValue().trim()));
+            }
+        }
+        this.defaultKind = defaultKind;
+        this.lockDirectory = lockDirectory;
+        this.logger = logger;
+    }
+
+    public String kindOf(Executable executable) {
+        return executable.kind() != null ? executable.kind() : defaultKind;
+    }
+
+    /**
+     * @return maximum number of concurrent executions of given kind, 0 if not limited
+     */
+    public int limitOf(String kind) {
+        Integer limit = limits.get(kind);
+        return limit != null ? limit : 0;
+    }
+
+    public ExecutionPermits.Permit acquire(Executable executable) throws IOException, InterruptedException {
+        return acquire(kindOf(executable));
+    }
+
+    public ExecutionPermits.Permit acquire(String kind) throws IOException, InterruptedException {
+        return ExecutionPermits.acquire(kind, limitOf(kind), lockDirectory, logger);
+    }
+}
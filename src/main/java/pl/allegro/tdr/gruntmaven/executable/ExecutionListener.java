@@ -0,0 +1,34 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+/**
+ * Callback notified about executables started and finished by scheduler,
+ * called from scheduler threads.
+ *
+ * @author Adam Dubiel
+ */
+public interface ExecutionListener {
+
+    void executableStarted(Executable executable);
+
+    void executableFinished(Executable executable, int exitCode);
+
+    /**
+     * Called when executable has been killed after timeout and no retries were left.
+     */
+    void executableTimedOut(Executable executable);
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReentrantLock;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Limits number of concurrent executions of given kind (ex. npm, grunt).
+ * Threads of this JVM wait in fair queue, then take one of slot files in
+ * lock directory, so the limit is shared with other builds on the machine.
+ * Processes queue for slot files by blocking on lock of queue file of given
+ * kind, only process holding it polls slot files, so processes are served in
+ * order in which they started waiting instead of racing for released slots.
+ * Modules of one build configuring different limits for the same kind share
+ * the smallest one.
+ *
+ * @author Adam Dubiel
+ */
+public final class ExecutionPermits {
+
+    private static final long SLOT_POLL_INTERVAL_MILLIS = 200;
+
+    private static final ConcurrentMap<String, KindPermits> JVM_PERMITS = new ConcurrentHashMap<String, KindPermits>();
+
+    private ExecutionPermits() {
+    }
+
+    /**
+     * Wait for permit to run executable of given kind.
+     *
+     * @param limit maximum number of concurrent executions, no limit if not positive
+     * @param lockDirectory directory with slot files shared by processes, permits are limited only within JVM if null
+     */
+    public static Permit acquire(String kind, int limit, File lockDirectory, Log logger) throws IOException, InterruptedException {
+        if (limit <= 0) {
+            return new Permit(null, null);
+        }
+
+        long startTime = System.currentTimeMillis();
+        KindPermits kindPermits = jvmPermits(kind, limit);
+        int effectiveLimit = kindPermits.limit(limit, logger);
+        kindPermits.semaphore.acquire();
+        FileLock slotLock = null;
+        try {
+            if (lockDirectory != null) {
+                slotLock = acquireSlot(kind, effectiveLimit, lockDirectory, kindPermits.queue);
+            }
+        } catch (IOException exception) {
+            kindPermits.semaphore.release();
+            throw exception;
+        } catch (InterruptedException exception) {
+            kindPermits.semaphore.release();
+            throw exception;
+        }
+
+        logger.info("Acquired " + kind + " execution permit (limit " + effectiveLimit + ") after waiting "
+                + (System.currentTimeMillis() - startTime) + " ms.");
+        return new Permit(kindPermits.semaphore, slotLock);
+    }
+
+    private static KindPermits jvmPermits(String kind, int limit) {
+        KindPermits permits = new KindPermits(kind, limit);
+        KindPermits existingPermits = JVM_PERMITS.putIfAbsent(kind, permits);
+        return existingPermits != null ? existingPermits : permits;
+    }
+
+    /**
+     * Threads of this JVM take turns on queue lock, because file lock can be held only once per JVM.
+     *
+     * @return lock held on one of slot files
+     */
+    private static FileLock acquireSlot(String kind, int limit, File lockDirectory, ReentrantLock jvmQueue)
+            throws IOException, InterruptedException {
+        if (!lockDirectory.isDirectory() && !lockDirectory.mkdirs() && !lockDirectory.isDirectory()) {
+            throw new IOException("Failed to create execution locks directory " + lockDirectory);
+        }
+        jvmQueue.lockInterruptibly();
+        try {
+            RandomAccessFile queueFile = new RandomAccessFile(new File(lockDirectory, kind + "-queue.lock"), "rw");
+            try {
+                FileLock queueLock = queueFile.getChannel().lock();
+                try {
+                    return pollSlots(kind, limit, lockDirectory);
+                } finally {
+                    queueLock.release();
+                }
+            } finally {
+                queueFile.close();
+            }
+        } finally {
+            jvmQueue.unlock();
+        }
+    }
+
+    private static FileLock pollSlots(String kind, int limit, File lockDirectory) throws IOException, InterruptedException {
+        while (true) {
+            for (int slot = 0; slot < limit; ++slot) {
+                RandomAccessFile slotFile = new RandomAccessFile(new File(lockDirectory, kind + "-" + slot + ".lock"), "rw");
+                FileLock lock = null;
+                try {
+                    lock = tryLock(slotFile);
+                } finally {
+                    if (lock == null) {
+                        slotFile.close();
+                    }
+                }
+                if (lock != null) {
+                    return lock;
+                }
+            }
+            Thread.sleep(SLOT_POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    private static FileLock tryLock(RandomAccessFile slotFile) throws IOException {
+        try {
+            return slotFile.getChannel().tryLock();
+        } catch (OverlappingFileLockException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Permits of one kind shared by all modules built in this JVM.
+     */
+    private static final class KindPermits {
+
+        private final String kind;
+
+        private final ReducibleSemaphore semaphore;
+
+        private final ReentrantLock queue = new ReentrantLock(true);
+
+        private final Set<Integer> reportedLimits = new HashSet<Integer>();
+
+        private int limit;
+
+        KindPermits(String kind, int limit) {
+            this.kind = kind;
+            this.limit = limit;
+            this.semaphore = new ReducibleSemaphore(limit);
+            reportedLimits.add(limit);
+        }
+
+        /**
+         * @return smallest of limits configured for this kind so far
+         */
+        synchronized int limit(int configuredLimit, Log logger) {
+            if (reportedLimits.add(configuredLimit)) {
+                logger.warn("Modules configure different limits of concurrent " + kind + " executions, using the smallest one: "
+                        + Math.min(limit, configuredLimit) + ".");
+            }
+            if (configuredLimit < limit) {
+                semaphore.reducePermits(limit - configuredLimit);
+                limit = configuredLimit;
+            }
+            return limit;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ReducibleSemaphore extends Semaphore {
+
+        ReducibleSemaphore(int permits) {
+            super(permits, true);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
+
+    /**
+     * Permit has to be released when execution ends.
+     */
+    public static final class Permit {
+
+        private final Semaphore jvmPermits;
+
+        private final FileLock slotLock;
+
+        private Permit(Semaphore jvmPermits, FileLock slotLock) {
+            this.jvmPermits = jvmPermits;
+            this.slotLock = slotLock;
+        }
+
+        public void release() {
+            try {
+                if (slotLock != null) {
+                    slotLock.release();
+                }
+            } catch (IOException exception) {
+                // closing the file releases the lock anyway
+            } finally {
+                if (slotLock != null) {
+                    IOUtils.closeQuietly(slotLock.channel());
+                }
+                if (jvmPermits != null) {
+                    jvmPermits.release();
+                }
+            }
+        }
+    }
+}
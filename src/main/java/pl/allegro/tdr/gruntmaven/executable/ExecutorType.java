@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.util.Locale;
+
+/**
+ * How executables are run.
+ *
+ * @author Adam Dubiel
+ */
+public enum ExecutorType {
+
+    /**
+     * Delegate to exec-maven-plugin.
+     */
+    PLUGIN,
+    /**
+     * Start processes directly from plugin, without resolving and configuring exec-maven-plugin.
+     */
+    NATIVE;
+
+    public static ExecutorType fromString(String type) {
+        try {
+            return valueOf(type.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unknown executor: " + type + ", expected one of: plugin, native.", exception);
+        }
+    }
+}
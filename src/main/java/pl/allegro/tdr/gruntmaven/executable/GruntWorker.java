@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Long-lived node process running Grunt tasks on request. Requests are sent
+ * to worker stdin as JSON lines, worker output is logged until it reports
+ * exit code of requested tasks. Closing worker stdin ends the process.
+ *
+ * @author Adam Dubiel
+ */
+class GruntWorker {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String DONE_MARKER = "\u0000grunt-maven-worker-done ";
+
+    private final Process process;
+
+    private final Writer requests;
+
+    private final BufferedReader output;
+
+    private GruntWorker(Process process) {
+        this.process = process;
+        this.requests = new OutputStreamWriter(process.getOutputStream(), UTF_8);
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), UTF_8));
+    }
+
+    static GruntWorker start(String nodeExecutable, File script, Log logger) throws IOException {
+        Process process = new ProcessBuilder(nodeExecutable, script.getAbsolutePath()).start();
+        ProcessOutput output = new ProcessOutput("grunt-maven-worker-log", 1, "", OutputSettings.full(), null, logger);
+        output.start();
+        new StreamPumper(process.getErrorStream(), true, "grunt-maven-worker-err", output).start();
+        return new GruntWorker(process);
+    }
+
+    /**
+     * @return exit code of Grunt
+     * @throws IOException when worker died before finishing tasks
+     */
+    int run(File workingDirectory, List<String> tasks, List<String> arguments, Log logger) throws IOException {
+        requests.write(request(workingDirectory, tasks, arguments));
+        requests.write('\n');
+        requests.flush();
+
+        String line = output.readLine();
+        while (line != null) {
+            int marker = line.indexOf(DONE_MARKER);
+            if (marker >= 0) {
+                // output of last task might not end with new line
+                if (marker > 0) {
+                    logger.info(line.substring(0, marker));
+                }
+                return Integer.parseInt(line.substring(marker + DONE_MARKER.length()).trim());
+            }
+            logger.info(line);
+            line = output.readLine();
+        }
+        throw new IOException("Grunt worker exited before finishing tasks.");
+    }
+
+    boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException exception) {
+            return true;
+        }
+    }
+
+    void destroy() {
+        process.destroy();
+    }
+
+    private String request(File workingDirectory, List<String> tasks, List<String> arguments) {
+        StringBuilder request = new StringBuilder("{\"cwd\":");
+        appendString(request, workingDirectory.getAbsolutePath());
+        request.append(",\"tasks\":");
+        appendArray(request, tasks);
+        request.append(",\"args\":");
+        appendArray(request, arguments);
+        return request.append('}').toString();
+    }
+
+    private void appendArray(StringBuilder json, List<String> values) {
+        json.append('[');
+        for (int index = 0; index < values.size(); ++index) {
+            if (index > 0) {
+                json.append(',');
+            }
+            appendString(json, values.get(index));
+        }
+        json.append(']');
+    }
+
+    private void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (char character : value.toCharArray()) {
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < ' ') {
+                json.append(String.format("\\u%04x", (int) character));
+            } else {
+                json.append(character);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Grunt workers shared by all modules built in single Maven session, idle
+ * workers are kept per node executable and Grunt version. Concurrent builds
+ * get workers of their own. All workers should be shut down when session
+ * ends, as Maven JVM may outlive it (embedded Maven, daemon), anything left
+ * is destroyed when JVM exits.
+ *
+ * @author Adam Dubiel
+ */
+public final class GruntWorkerPool {
+
+    private static final String WORKER_SCRIPT_RESOURCE = "/grunt-maven-worker.js";
+
+    private static final ConcurrentMap<String, Queue<GruntWorker>> IDLE_WORKERS = new ConcurrentHashMap<String, Queue<GruntWorker>>();
+
+    private static final Queue<GruntWorker> ALL_WORKERS = new ConcurrentLinkedQueue<GruntWorker>();
+
+    private static File workerScript;
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread("grunt-maven-worker-shutdown") {
+            @Override
+            public void run() {
+                for (GruntWorker worker : ALL_WORKERS) {
+                    worker.destroy();
+                }
+            }
+        });
+    }
+
+    private GruntWorkerPool() {
+    }
+
+    /**
+     * Run Grunt tasks on idle worker or on a new one, if there is none.
+     *
+     * @return exit code of Grunt
+     */
+    public static int run(String nodeExecutable, String gruntVersion, File workingDirectory, List<String> tasks, List<String> arguments,
+            Log logger) throws IOException {
+        String key = nodeExecutable + "@" + gruntVersion;
+        GruntWorker worker = acquire(key, nodeExecutable, logger);
+        try {
+            int exitCode = worker.run(workingDirectory, tasks, arguments, logger);
+            release(key, worker);
+            return exitCode;
+        } catch (IOException exception) {
+            ALL_WORKERS.remove(worker);
+            worker.destroy();
+            throw exception;
+        }
+    }
+
+    /**
+     * Destroy all workers, busy ones included.
+     */
+    public static void shutdown(Log logger) {
+        IDLE_WORKERS.clear();
+        GruntWorker worker = ALL_WORKERS.poll();
+        while (worker != null) {
+            logger.debug("Stopping Grunt worker.");
+            worker.destroy();
+            worker = ALL_WORKERS.poll();
+        }
+    }
+
+    private static GruntWorker acquire(String key, String nodeExecutable, Log logger) throws IOException {
+        Queue<GruntWorker> idleWorkers = idleWorkers(key);
+        GruntWorker worker = idleWorkers.poll();
+        while (worker != null && !worker.isAlive()) {
+            ALL_WORKERS.remove(worker);
+            worker = idleWorkers.poll();
+        }
+        if (worker != null) {
+            logger.info("Reusing Grunt worker for " + key + ".");
+            return worker;
+        }
+
+        logger.info("Starting Grunt worker for " + key + ".");
+        worker = GruntWorker.start(nodeExecutable, workerScript(), logger);
+        ALL_WORKERS.add(worker);
+        return worker;
+    }
+
+    private static void release(String key, GruntWorker worker) {
+        if (worker.isAlive()) {
+            idleWorkers(key).offer(worker);
+        } else {
+            ALL_WORKERS.remove(worker);
+        }
+    }
+
+    private static Queue<GruntWorker> idleWorkers(String key) {
+        Queue<GruntWorker> idleWorkers = IDLE_WORKERS.get(key);
+        if (idleWorkers == null) {
+            IDLE_WORKERS.putIfAbsent(key, new ConcurrentLinkedQueue<GruntWorker>());
+            idleWorkers = IDLE_WORKERS.get(key);
+        }
+        return idleWorkers;
+    }
+
+    private static synchronized File workerScript() throws IOException {
+        if (workerScript == null) {
+            File script = File.createTempFile("grunt-maven-worker", ".js");
+            script.deleteOnExit();
+            InputStream input = GruntWorkerPool.class.getResourceAsStream(WORKER_SCRIPT_RESOURCE);
+            try {
+                FileUtils.copyInputStreamToFile(input, script);
+            } finally {
+                IOUtils.closeQuietly(input);
+            }
+            workerScript = script;
+        }
+        return workerScript;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Description of node runtime: version, native modules ABI, platform and
+ * architecture. Node is asked only once per executable during build.
+ *
+ * @author Adam Dubiel
+ */
+public final class NodeRuntime {
+
+    private static final String DESCRIBE_SCRIPT =
+            "console.log([process.version, process.versions.modules, process.platform, process.arch].join(' '))";
+
+    private static final int DESCRIPTION_PARTS = 4;
+
+    private static final ConcurrentMap<String, NodeRuntime> RUNTIMES = new ConcurrentHashMap<String, NodeRuntime>();
+
+    private final String version;
+
+    private final String abi;
+
+    private final String platform;
+
+    private final String arch;
+
+    private NodeRuntime(String version, String abi, String platform, String arch) {
+        this.version = version;
+        this.abi = abi;
+        this.platform = platform;
+        this.arch = arch;
+    }
+
+    public static NodeRuntime of(String nodeExecutable) {
+        NodeRuntime runtime = RUNTIMES.get(nodeExecutable);
+        if (runtime == null) {
+            runtime = describe(nodeExecutable);
+            RUNTIMES.putIfAbsent(nodeExecutable, runtime);
+        }
+        return runtime;
+    }
+
+    private static NodeRuntime describe(String nodeExecutable) {
+        try {
+            Process process = new ProcessBuilder(nodeExecutable, "-e", DESCRIBE_SCRIPT).redirectErrorStream(true).start();
+            InputStream output = process.getInputStream();
+            String description;
+            try {
+                description = IOUtils.toString(output, "UTF-8").trim();
+            } finally {
+                IOUtils.closeQuietly(output);
+            }
+            int exitCode = process.waitFor();
+
+            String[] parts = description.split(" ");
+            if (exitCode != 0 || parts.length != DESCRIPTION_PARTS) {
+                throw new IllegalStateException("Failed to describe node runtime using " + nodeExecutable + ", output: " + description);
+            }
+            return new NodeRuntime(parts[0], parts[1], parts[2], parts[3]);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Failed to run " + nodeExecutable + ".", exception);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for " + nodeExecutable + ".", exception);
+        }
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public String abi() {
+        return abi;
+    }
+
+    public String platform() {
+        return platform;
+    }
+
+    public String arch() {
+        return arch;
+    }
+
+    @Override
+    public String toString() {
+        return "node " + version + " (abi " + abi + ", " + platform + "-" + arch + ")";
+    }
+}
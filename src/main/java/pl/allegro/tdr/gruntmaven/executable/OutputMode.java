@@ -0,0 +1,43 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.util.Locale;
+
+/**
+ * How output of natively executed commands is shown in Maven log.
+ *
+ * @author Adam Dubiel
+ */
+public enum OutputMode {
+
+    /**
+     * Log every line of output.
+     */
+    FULL,
+    /**
+     * Log number of lines and last line at most once per interval, full output is written only to log file.
+     */
+    SUMMARY;
+
+    public static OutputMode fromString(String mode) {
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unknown output mode: " + mode + ", expected one of: full, summary.", exception);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+
+/**
+ * Where and how output of natively executed commands is written.
+ *
+ * @author Adam Dubiel
+ */
+public final class OutputSettings {
+
+    private static final int DEFAULT_TAIL_LINES = 50;
+
+    private final OutputMode mode;
+
+    private final File logDirectory;
+
+    private final int tailLines;
+
+    private final long summaryIntervalMillis;
+
+    /**
+     * @param logDirectory directory to write full output of each command to, output is not written to files when null
+     * @param tailLines number of last lines of output printed when command fails
+     * @param summaryIntervalMillis minimal time between two lines logged in {@link OutputMode#SUMMARY} mode
+     */
+    public OutputSettings(OutputMode mode, File logDirectory, int tailLines, long summaryIntervalMillis) {
+        this.mode = mode;
+        this.logDirectory = logDirectory;
+        this.tailLines = Math.max(tailLines, 0);
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    /**
+     * Every line logged, nothing written to files.
+     */
+    public static OutputSettings full() {
+        return new OutputSettings(OutputMode.FULL, null, DEFAULT_TAIL_LINES, 0);
+    }
+
+    public OutputMode mode() {
+        return mode;
+    }
+
+    public File logDirectory() {
+        return logDirectory;
+    }
+
+    public int tailLines() {
+        return tailLines;
+    }
+
+    public long summaryIntervalMillis() {
+        return summaryIntervalMillis;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Starts executables directly using {@link ProcessBuilder}. Output is pumped
+ * to Maven log asynchronously, stdout as info and stderr as warnings, or
+ * summarized depending on {@link OutputSettings}. When log directory is set,
+ * full output of each executable is written to its own file there.
+ *
+ * Compatible with Windows via
+ * <pre>cmd /C</pre>.
+ *
+ * @author Adam Dubiel
+ */
+public class ProcessExecutor {
+
+    private final File workingDirectory;
+
+    private final boolean windows;
+
+    private final OutputSettings outputSettings;
+
+    private final Log logger;
+
+    public ProcessExecutor(File workingDirectory, boolean windows, Log logger) {
+        this(workingDirectory, windows, OutputSettings.full(), logger);
+    }
+
+    public ProcessExecutor(File workingDirectory, boolean windows, OutputSettings outputSettings, Log logger) {
+        this.workingDirectory = workingDirectory;
+        this.windows = windows;
+        this.outputSettings = outputSettings;
+        this.logger = logger;
+    }
+
+    public RunningProcess start(Executable executable) throws IOException {
+        List<String> command = command(executable);
+        logger.info("Executing: " + command + " in " + workingDirectory);
+
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workingDirectory);
+        builder.environment().putAll(executable.environmentVars());
+        Process process = builder.start();
+        process.getOutputStream().close();
+
+        String name = "grunt-maven-" + executable.executableName();
+        String linePrefix = executable.outputLabel() == null ? "" : "[" + executable.outputLabel() + "] ";
+        ProcessOutput output = new ProcessOutput(name + "-log", 2, linePrefix, outputSettings, logFile(executable), logger);
+        StreamPumper outputPumper = new StreamPumper(process.getInputStream(), false, name + "-out", output);
+        StreamPumper errorPumper = new StreamPumper(process.getErrorStream(), true, name + "-err", output);
+        output.start();
+        outputPumper.start();
+        errorPumper.start();
+        return new RunningProcess(executable, process, outputPumper, errorPumper, output);
+    }
+
+    /**
+     * Run executable and wait for it to finish, starting it again when it has been killed after timeout and retries are left.
+     *
+     * @return exit code
+     * @throws ExecutableTimeoutException when executable has been killed after timeout and no retries are left
+     */
+    public int execute(Executable executable) throws IOException, InterruptedException {
+        for (int attempt = 1; true; attempt++) {
+            RunningProcess process = start(executable);
+            try {
+                return process.waitFor();
+            } catch (InterruptedException exception) {
+                process.destroy();
+                throw exception;
+            } catch (ExecutableTimeoutException exception) {
+                if (attempt > executable.retriesOnTimeout()) {
+                    throw exception;
+                }
+                logger.warn(exception.getMessage() + " Retrying (" + attempt + " of " + executable.retriesOnTimeout() + ").");
+            }
+        }
+    }
+
+    /**
+     * Log file is named after executable and its label or first argument, so it is overwritten by the same command in next build.
+     */
+    private File logFile(Executable executable) {
+        if (outputSettings.logDirectory() == null) {
+            return null;
+        }
+        StringBuilder name = new StringBuilder(executable.executableName());
+        if (executable.outputLabel() != null) {
+            name.append('-').append(executable.outputLabel());
+        } else if (!executable.arguments().isEmpty()) {
+            name.append('-').append(executable.arguments().get(0));
+        }
+        return new File(outputSettings.logDirectory(), name.toString().replaceAll("[^A-Za-z0-9._-]", "_") + ".log");
+    }
+
+    private List<String> command(Executable executable) {
+        List<String> command = new ArrayList<String>();
+        if (windows) {
+            command.add("cmd");
+            command.add("/C");
+        }
+        command.addAll(executable.commandLine());
+        return command;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Consumes lines read from process streams by {@link StreamPumper}s, on its
+ * own thread. Lines are passed through bounded queue, so slow Maven log
+ * holds back pumpers instead of growing memory. Every line is written to log
+ * file (if any) and kept in ring buffer of last lines, printed when process
+ * fails. In {@link OutputMode#SUMMARY} mode at most one line per interval is
+ * shown in Maven log.
+ *
+ * @author Adam Dubiel
+ */
+class ProcessOutput extends Thread {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final Line END_OF_STREAM = new Line(false, null);
+
+    private final BlockingQueue<Line> queue = new ArrayBlockingQueue<Line>(QUEUE_CAPACITY);
+
+    private final int streams;
+
+    private final String linePrefix;
+
+    private final OutputSettings settings;
+
+    private final File logFile;
+
+    private final Log logger;
+
+    private final ArrayDeque<String> tail = new ArrayDeque<String>();
+
+    private volatile long lastOutputAt = System.currentTimeMillis();
+
+    private long lines;
+
+    private long lastLoggedAt;
+
+    /**
+     * @param streams number of streams pumped to this output, output is closed when all of them end
+     * @param logFile file to write full output to, can be null
+     */
+    ProcessOutput(String name, int streams, String linePrefix, OutputSettings settings, File logFile, Log logger) {
+        super(name);
+        this.streams = streams;
+        this.linePrefix = linePrefix;
+        this.settings = settings;
+        this.logFile = logFile;
+        this.logger = logger;
+        setDaemon(true);
+    }
+
+    void append(boolean error, String line) throws InterruptedException {
+        lastOutputAt = System.currentTimeMillis();
+        queue.put(new Line(error, line));
+    }
+
+    /**
+     * Time when last line was read from any of the streams, or when output was created if nothing was read yet.
+     */
+    long lastOutputAt() {
+        return lastOutputAt;
+    }
+
+    void streamClosed() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END_OF_STREAM);
+                break;
+            } catch (InterruptedException exception) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        Writer writer = openLogFile();
+        int openStreams = streams;
+        try {
+            while (openStreams > 0) {
+                Line line = queue.take();
+                if (line == END_OF_STREAM) {
+                    openStreams--;
+                    continue;
+                }
+                writer = write(writer, line.text);
+                remember(line.text);
+                show(line);
+            }
+        } catch (InterruptedException exception) {
+            logger.debug("Process output consumer interrupted.");
+        } finally {
+            IOUtils.closeQuietly(writer);
+        }
+        if (settings.mode() == OutputMode.SUMMARY) {
+            logger.info(linePrefix + lines + " lines of output" + (logFile == null ? "." : " written to " + logFile));
+        }
+    }
+
+    private Writer openLogFile() {
+        if (logFile == null) {
+            return null;
+        }
+        try {
+            Files.createDirectories(logFile.getParentFile().toPath());
+            return Files.newBufferedWriter(logFile.toPath(), Charset.defaultCharset());
+        } catch (IOException exception) {
+            logger.warn("Could not create process log file " + logFile + ": " + exception.getMessage());
+            return null;
+        }
+    }
+
+    private Writer write(Writer writer, String text) {
+        if (writer == null) {
+            return null;
+        }
+        try {
+            writer.write(text);
+            writer.write('\n');
+            return writer;
+        } catch (IOException exception) {
+            logger.warn("Could not write process log file " + logFile + ": " + exception.getMessage());
+            IOUtils.closeQuietly(writer);
+            return null;
+        }
+    }
+
+    private synchronized void remember(String text) {
+        lines++;
+        if (settings.tailLines() == 0) {
+            return;
+        }
+        if (tail.size() == settings.tailLines()) {
+            tail.removeFirst();
+        }
+        tail.addLast(text);
+    }
+
+    private void show(Line line) {
+        if (settings.mode() == OutputMode.SUMMARY) {
+            long now = System.currentTimeMillis();
+            if (now - lastLoggedAt < settings.summaryIntervalMillis()) {
+                return;
+            }
+            lastLoggedAt = now;
+            logger.info(linePrefix + "(" + lines + " lines) " + line.text);
+        } else if (line.error) {
+            logger.warn(linePrefix + line.text);
+        } else {
+            logger.info(linePrefix + line.text);
+        }
+    }
+
+    synchronized List<String> tail() {
+        return new ArrayList<String>(tail);
+    }
+
+    /**
+     * Print last lines of output and location of full output, when process failed.
+     */
+    void reportFailure() {
+        List<String> lastLines = tail();
+        if (!lastLines.isEmpty()) {
+            logger.error(linePrefix + "Last " + lastLines.size() + " lines of output:");
+            for (String line : lastLines) {
+                logger.error(linePrefix + line);
+            }
+        }
+        if (logFile != null) {
+            logger.error(linePrefix + "Full output written to " + logFile);
+        }
+    }
+
+    private static final class Line {
+
+        private final boolean error;
+
+        private final String text;
+
+        Line(boolean error, String text) {
+            this.error = error;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Forcibly kills process together with all of its descendants, so that
+ * i.e. browsers started by karma or npm started via <pre>cmd /C</pre> don't
+ * outlive it. Descendants can be listed only on Java 9+ (via ProcessHandle,
+ * accessed reflectively, since plugin runs on Java 7), on older versions
+ * only the process itself is killed.
+ *
+ * @author Adam Dubiel
+ */
+final class ProcessTree {
+
+    private ProcessTree() {
+    }
+
+    /**
+     * @return false if descendants could not be listed and only process itself has been killed
+     */
+    static boolean kill(Process process) {
+        List<Object> descendants = descendants(process);
+        if (descendants != null) {
+            for (Object descendant : descendants) {
+                destroyForcibly(descendant);
+            }
+        }
+        if (!destroyForcibly(process)) {
+            process.destroy();
+        }
+        return descendants != null;
+    }
+
+    private static List<Object> descendants(Process process) {
+        try {
+            Class<?> handleClass = Class.forName("java.lang.ProcessHandle");
+            Object handle = Process.class.getMethod("toHandle").invoke(process);
+            Object stream = handleClass.getMethod("descendants").invoke(handle);
+            Iterator<?> iterator = (Iterator<?>) Class.forName("java.util.stream.BaseStream").getMethod("iterator").invoke(stream);
+            List<Object> descendants = new ArrayList<Object>();
+            while (iterator.hasNext()) {
+                descendants.add(iterator.next());
+            }
+            return descendants;
+        } catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+
+    private static boolean destroyForcibly(Object processOrHandle) {
+        try {
+            Class<?> type = processOrHandle instanceof Process ? Process.class : Class.forName("java.lang.ProcessHandle");
+            Method destroyForcibly = type.getMethod("destroyForcibly");
+            destroyForcibly.invoke(processOrHandle);
+            return true;
+        } catch (ReflectiveOperationException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+/**
+ * Handle of process started by {@link ProcessExecutor}.
+ *
+ * @author Adam Dubiel
+ */
+public class RunningProcess {
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private static final long KILLED_OUTPUT_WAIT_MILLIS = 5000;
+
+    private final Executable executable;
+
+    private final Process process;
+
+    private final StreamPumper outputPumper;
+
+    private final StreamPumper errorPumper;
+
+    private final ProcessOutput output;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    RunningProcess(Executable executable, Process process, StreamPumper outputPumper, StreamPumper errorPumper, ProcessOutput output) {
+        this.executable = executable;
+        this.process = process;
+        this.outputPumper = outputPumper;
+        this.errorPumper = errorPumper;
+        this.output = output;
+    }
+
+    /**
+     * Wait for process to finish and all of its output to be logged. When
+     * process failed, last lines of its output are logged again.
+     *
+     * @return exit code
+     * @throws ExecutableTimeoutException when executable exceeded its timeout or stall timeout and has been killed
+     */
+    public int waitFor() throws InterruptedException {
+        int exitCode = hasTimeouts() ? waitWithinTimeouts() : process.waitFor();
+        outputPumper.join();
+        errorPumper.join();
+        output.join();
+        if (!executable.isSuccess(exitCode)) {
+            output.reportFailure();
+        }
+        return exitCode;
+    }
+
+    private boolean hasTimeouts() {
+        return executable.timeoutMillis() > 0 || executable.stallTimeoutMillis() > 0;
+    }
+
+    private int waitWithinTimeouts() throws InterruptedException {
+        while (true) {
+            try {
+                return process.exitValue();
+            } catch (IllegalThreadStateException running) {
+                String reason = timeoutReason(System.currentTimeMillis());
+                if (reason != null) {
+                    throw kill(reason);
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    private String timeoutReason(long now) {
+        if (executable.timeoutMillis() > 0 && now - startedAt >= executable.timeoutMillis()) {
+            return "did not finish within " + executable.timeoutMillis() / 1000 + " seconds";
+        }
+        if (executable.stallTimeoutMillis() > 0 && now - output.lastOutputAt() >= executable.stallTimeoutMillis()) {
+            return "produced no output for " + executable.stallTimeoutMillis() / 1000 + " seconds";
+        }
+        return null;
+    }
+
+    /**
+     * Kill process tree and print last lines of output. Children which could not be killed may still hold streams open, so
+     * output is waited for only for a while.
+     */
+    private ExecutableTimeoutException kill(String reason) throws InterruptedException {
+        ProcessTree.kill(process);
+        outputPumper.join(KILLED_OUTPUT_WAIT_MILLIS);
+        errorPumper.join(KILLED_OUTPUT_WAIT_MILLIS);
+        output.join(KILLED_OUTPUT_WAIT_MILLIS);
+        output.reportFailure();
+        return new ExecutableTimeoutException(executable, reason);
+    }
+
+    /**
+     * Forcibly kill process with all of its descendants.
+     */
+    public void destroy() {
+        ProcessTree.kill(process);
+    }
+
+    public Executable executable() {
+        return executable;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Reads process stream line by line, on its own thread, and passes lines to
+ * {@link ProcessOutput}, so process never blocks on full pipe while output
+ * is being logged.
+ *
+ * @author Adam Dubiel
+ */
+class StreamPumper extends Thread {
+
+    private final InputStream stream;
+
+    private final boolean errorStream;
+
+    private final ProcessOutput output;
+
+    StreamPumper(InputStream stream, boolean errorStream, String name, ProcessOutput output) {
+        super(name);
+        this.stream = stream;
+        this.errorStream = errorStream;
+        this.output = output;
+        setDaemon(true);
+    }
+
+    @Override
+    public void run() {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charset.defaultCharset()));
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                output.append(errorStream, line);
+                line = reader.readLine();
+            }
+        } catch (IOException exception) {
+            // stream is closed when process is destroyed, whatever was read has been passed on
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } finally {
+            IOUtils.closeQuietly(reader);
+            output.streamClosed();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.DirectoryScanner;
+import pl.allegro.tdr.gruntmaven.cache.Fingerprint;
+import pl.allegro.tdr.gruntmaven.filtering.FilteringManifest.Entry;
+
+/**
+ * Filters resources matching include patterns from source directory into
+ * target directory, streaming each file through {@link PlaceholderScanner}.
+ * Names of placeholders found in each file are remembered, so on next run
+ * file is filtered again only if its source or filtered copy changed or if
+ * any of values it uses changed. Filtered copies of files removed from
+ * sources or no longer included since last run are removed from target,
+ * unless they have been replaced in the meantime (ex. by staged copy).
+ *
+ * @author Adam Dubiel
+ */
+public class FilteringEngine {
+
+    static final String MANIFEST_FILE_NAME = ".grunt-maven-filtered";
+
+    private static final String TEMPORARY_FILE_SUFFIX = ".grunt-maven-tmp";
+
+    private final File sourceDirectory;
+
+    private final File targetDirectory;
+
+    private final String[] includes;
+
+    private final String[] excludes;
+
+    private final Map<String, String> values;
+
+    private final Charset charset;
+
+    private final Log logger;
+
+    public FilteringEngine(File sourceDirectory, File targetDirectory, String[] includes, String[] excludes, Map<String, String> values,
+            Charset charset, Log logger) {
+        this.sourceDirectory = sourceDirectory;
+        this.targetDirectory = targetDirectory;
+        this.includes = includes;
+        this.excludes = excludes;
+        this.values = values;
+        this.charset = charset;
+        this.logger = logger;
+    }
+
+    public FilteringStatistics filter() throws IOException {
+        long startTime = System.currentTimeMillis();
+        File manifestFile = new File(targetDirectory, MANIFEST_FILE_NAME);
+        FilteringManifest previousManifest = FilteringManifest.load(manifestFile);
+        FilteringManifest currentManifest = new FilteringManifest();
+
+        long filteredFiles = 0;
+        long filteredBytes = 0;
+        long unchangedFiles = 0;
+        Set<String> unresolvedPlaceholders = new LinkedHashSet<String>();
+        PlaceholderScanner scanner = new PlaceholderScanner(values);
+
+        for (String path : includedPaths()) {
+            File source = new File(sourceDirectory, path);
+            File target = new File(targetDirectory, path);
+
+            Entry previousEntry = previousManifest.get(path);
+            if (previousEntry != null && previousEntry.describes(source, target)
+                    && previousEntry.valuesHash().equals(valuesHash(previousEntry.placeholders()))) {
+                currentManifest.put(path, previousEntry);
+                unchangedFiles++;
+                continue;
+            }
+
+            if (logger.isDebugEnabled()) {
+                logger.debug("filtering file: " + source + " -> " + target);
+            }
+            String[] placeholders = filterFile(scanner, source, target);
+            for (String placeholder : placeholders) {
+                if (!values.containsKey(placeholder)) {
+                    unresolvedPlaceholders.add(placeholder);
+                }
+            }
+            currentManifest.put(path, Entry.of(source, target, valuesHash(placeholders), placeholders));
+            filteredFiles++;
+            filteredBytes += source.length();
+        }
+
+        long removedFiles = 0;
+        for (String path : previousManifest.paths()) {
+            File target = new File(targetDirectory, path);
+            if (currentManifest.get(path) == null && previousManifest.get(path).isFilteredCopy(target)
+                    && Files.deleteIfExists(target.toPath())) {
+                logger.debug("removed filtered file: " + path);
+                removedFiles++;
+            }
+        }
+
+        if (currentManifest.isEmpty()) {
+            Files.deleteIfExists(manifestFile.toPath());
+        } else {
+            Files.createDirectories(targetDirectory.toPath());
+            currentManifest.save(manifestFile);
+        }
+        return new FilteringStatistics(filteredFiles, filteredBytes, unchangedFiles, removedFiles, unresolvedPlaceholders,
+                System.currentTimeMillis() - startTime);
+    }
+
+    private String[] includedPaths() {
+        if (!sourceDirectory.isDirectory() || includes == null || includes.length == 0) {
+            return new String[0];
+        }
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(sourceDirectory);
+        scanner.setIncludes(includes);
+        scanner.setExcludes(excludes);
+        scanner.addDefaultExcludes();
+        scanner.scan();
+
+        String[] paths = scanner.getIncludedFiles();
+        for (int index = 0; index < paths.length; ++index) {
+            paths[index] = paths[index].replace(File.separatorChar, '/');
+        }
+        Arrays.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Filtered file is written next to target and moved in place, so that failed filtering never leaves half written file.
+     */
+    private String[] filterFile(PlaceholderScanner scanner, File source, File target) throws IOException {
+        Path targetPath = target.toPath();
+        Files.createDirectories(targetPath.getParent());
+        Path temporaryFile = new File(target.getPath() + TEMPORARY_FILE_SUFFIX).toPath();
+
+        Set<String> placeholders;
+        Reader reader = Files.newBufferedReader(source.toPath(), charset);
+        try {
+            Writer writer = Files.newBufferedWriter(temporaryFile, charset);
+            try {
+                placeholders = scanner.filter(reader, writer);
+            } finally {
+                writer.close();
+            }
+        } finally {
+            reader.close();
+        }
+        Files.move(temporaryFile, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return placeholders.toArray(new String[placeholders.size()]);
+    }
+
+    private String valuesHash(String[] placeholders) {
+        Fingerprint fingerprint = Fingerprint.create();
+        for (String placeholder : placeholders) {
+            fingerprint.with(placeholder, values.containsKey(placeholder) ? "=" + values.get(placeholder) : "unresolved");
+        }
+        return fingerprint.hash();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State of each filtered resource, saved in Grunt build directory between
+ * builds. Each line holds size and modification time of source, size and
+ * modification time of filtered file, hash of values used, names of
+ * placeholders found and relative path.
+ *
+ * @author Adam Dubiel
+ */
+class FilteringManifest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String FIELD_SEPARATOR = " ";
+
+    private static final String NAMES_SEPARATOR = ",";
+
+    private static final String NO_NAMES = "-";
+
+    private static final int FIELDS = 7;
+
+    private final Map<String, Entry> entries;
+
+    FilteringManifest() {
+        this(new HashMap<String, Entry>());
+    }
+
+    private FilteringManifest(Map<String, Entry> entries) {
+        this.entries = entries;
+    }
+
+    static FilteringManifest load(File manifestFile) throws IOException {
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        if (!manifestFile.isFile()) {
+            return new FilteringManifest(entries);
+        }
+
+        BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), UTF_8);
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                String[] fields = line.split(FIELD_SEPARATOR, FIELDS);
+                if (fields.length == FIELDS) {
+                    String[] placeholders = NO_NAMES.equals(fields[5]) ? new String[0] : fields[5].split(NAMES_SEPARATOR);
+                    entries.put(fields[6], new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                            Long.parseLong(fields[2]), Long.parseLong(fields[3]), fields[4], placeholders));
+                }
+                line = reader.readLine();
+            }
+        } catch (NumberFormatException exception) {
+            // corrupted manifest is as good as no manifest, everything will be filtered again
+            entries.clear();
+        } finally {
+            reader.close();
+        }
+        return new FilteringManifest(entries);
+    }
+
+    void save(File manifestFile) throws IOException {
+        Path temporaryFile = new File(manifestFile.getPath() + ".tmp").toPath();
+        BufferedWriter writer = Files.newBufferedWriter(temporaryFile, UTF_8);
+        try {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry state = entry.getValue();
+                writer.append(Long.toString(state.sourceSize)).append(FIELD_SEPARATOR)
+                        .append(Long.toString(state.sourceLastModified)).append(FIELD_SEPARATOR)
+                        .append(Long.toString(state.targetSize)).append(FIELD_SEPARATOR)
+                        .append(Long.toString(state.targetLastModified)).append(FIELD_SEPARATOR)
+                        .append(state.valuesHash).append(FIELD_SEPARATOR)
+                        .append(state.placeholders.length == 0 ? NO_NAMES : join(state.placeholders)).append(FIELD_SEPARATOR)
+                        .append(entry.getKey()).append('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        Files.move(temporaryFile, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String join(String[] names) {
+        StringBuilder joined = new StringBuilder();
+        for (String name : names) {
+            if (joined.length() > 0) {
+                joined.append(NAMES_SEPARATOR);
+            }
+            joined.append(name);
+        }
+        return joined.toString();
+    }
+
+    Entry get(String path) {
+        return entries.get(path);
+    }
+
+    void put(String path, Entry entry) {
+        entries.put(path, entry);
+    }
+
+    Set<String> paths() {
+        return entries.keySet();
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    static final class Entry {
+
+        private final long sourceSize;
+
+        private final long sourceLastModified;
+
+        private final long targetSize;
+
+        private final long targetLastModified;
+
+        private final String valuesHash;
+
+        private final String[] placeholders;
+
+        Entry(long sourceSize, long sourceLastModified, long targetSize, long targetLastModified, String valuesHash,
+                String[] placeholders) {
+            this.sourceSize = sourceSize;
+            this.sourceLastModified = sourceLastModified;
+            this.targetSize = targetSize;
+            this.targetLastModified = targetLastModified;
+            this.valuesHash = valuesHash;
+            this.placeholders = placeholders;
+        }
+
+        static Entry of(File source, File target, String valuesHash, String[] placeholders) {
+            return new Entry(source.length(), source.lastModified(), target.length(), target.lastModified(), valuesHash, placeholders);
+        }
+
+        /**
+         * Filtered file is up to date if neither source nor filtered file changed since filtering.
+         */
+        boolean describes(File source, File target) {
+            return source.length() == sourceSize && source.lastModified() == sourceLastModified && isFilteredCopy(target);
+        }
+
+        /**
+         * Target is still the file written by filtering, not replaced by something else (ex. staged copy of source).
+         */
+        boolean isFilteredCopy(File target) {
+            return target.isFile() && target.length() == targetSize && target.lastModified() == targetLastModified;
+        }
+
+        String valuesHash() {
+            return valuesHash;
+        }
+
+        String[] placeholders() {
+            return placeholders;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import java.util.Set;
+
+/**
+ * Summary of single filtering run.
+ *
+ * @author Adam Dubiel
+ */
+public class FilteringStatistics {
+
+    private final long filteredFiles;
+
+    private final long filteredBytes;
+
+    private final long unchangedFiles;
+
+    private final long removedFiles;
+
+    private final Set<String> unresolvedPlaceholders;
+
+    private final long elapsedMillis;
+
+    FilteringStatistics(long filteredFiles, long filteredBytes, long unchangedFiles, long removedFiles, Set<String> unresolvedPlaceholders,
+            long elapsedMillis) {
+        this.filteredFiles = filteredFiles;
+        this.filteredBytes = filteredBytes;
+        this.unchangedFiles = unchangedFiles;
+        this.removedFiles = removedFiles;
+        this.unresolvedPlaceholders = unresolvedPlaceholders;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long filteredFiles() {
+        return filteredFiles;
+    }
+
+    public long filteredBytes() {
+        return filteredBytes;
+    }
+
+    public long unchangedFiles() {
+        return unchangedFiles;
+    }
+
+    /**
+     * @return filtered files removed, because their source is gone or is no longer filtered
+     */
+    public long removedFiles() {
+        return removedFiles;
+    }
+
+    /**
+     * @return placeholders without value found in filtered files, left untouched
+     */
+    public Set<String> unresolvedPlaceholders() {
+        return unresolvedPlaceholders;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files filtered (%d bytes), %d unchanged, %d removed in %d ms",
+                filteredFiles, filteredBytes, unchangedFiles, removedFiles, elapsedMillis);
+    }
+}
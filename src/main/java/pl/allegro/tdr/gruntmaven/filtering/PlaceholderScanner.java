@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams text replacing
+ * <pre>${placeholder}</pre> expressions with values, using fixed amount of
+ * memory regardless of text size. Values are inserted exactly as they are,
+ * placeholder preceded by backslash (<pre>\${placeholder}</pre>) is written as
+ * literal <pre>${placeholder}</pre> and placeholders without value are left
+ * untouched. Placeholder names may contain letters, digits, dots,
+ * underscores and dashes, anything else (or name longer than
+ * {@value #MAX_NAME_LENGTH} characters) is treated as ordinary text.
+ *
+ * This is the only place where placeholder syntax is defined, text can be
+ * split into literals and placeholders using {@link #scan(Reader, Segments)}
+ * (i.e. to keep it parsed in memory).
+ *
+ * @author Adam Dubiel
+ */
+public class PlaceholderScanner {
+
+    static final int MAX_NAME_LENGTH = 256;
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final String PLACEHOLDER_START = "${";
+
+    private static final char DOLLAR = '$';
+
+    private static final char OPENING_BRACKET = '{';
+
+    private static final char CLOSING_BRACKET = '}';
+
+    private static final char ESCAPE = '\\';
+
+    private final Map<String, String> values;
+
+    public PlaceholderScanner(Map<String, String> values) {
+        this.values = values;
+    }
+
+    /**
+     * @return names of all placeholders found in text, including those without value
+     */
+    public Set<String> filter(Reader reader, final Writer writer) throws IOException {
+        final Set<String> placeholders = new LinkedHashSet<String>();
+        scan(reader, new Segments() {
+            @Override
+            public void literal(CharSequence text) throws IOException {
+                writer.append(text);
+            }
+
+            @Override
+            public void placeholder(String name) throws IOException {
+                placeholders.add(name);
+                String value = values.get(name);
+                if (value != null) {
+                    writer.write(value);
+                } else {
+                    writer.write(expression(name));
+                }
+            }
+        });
+        return placeholders;
+    }
+
+    /**
+     * @return placeholder expression as written in text, placeholders without value are left as they are
+     */
+    public static String expression(String name) {
+        return PLACEHOLDER_START + name + CLOSING_BRACKET;
+    }
+
+    /**
+     * Split text into literals and placeholders, in order. Escaped placeholders are reported as literals, without escape
+     * character.
+     */
+    public static void scan(Reader reader, Segments segments) throws IOException {
+        StringBuilder pending = new StringBuilder(MAX_NAME_LENGTH + 4);
+        char[] buffer = new char[BUFFER_SIZE];
+
+        int read = reader.read(buffer);
+        while (read >= 0) {
+            int literalStart = 0;
+            for (int index = 0; index < read; ++index) {
+                char character = buffer[index];
+                if (pending.length() == 0) {
+                    if (startsPlaceholder(character)) {
+                        literal(segments, buffer, literalStart, index);
+                        pending.append(character);
+                    }
+                    continue;
+                }
+
+                if (extend(pending, character, segments)) {
+                    literalStart = index + 1;
+                } else if (startsPlaceholder(character)) {
+                    pending.append(character);
+                    literalStart = index + 1;
+                } else {
+                    literalStart = index;
+                }
+            }
+            if (pending.length() == 0) {
+                literal(segments, buffer, literalStart, read);
+            }
+            read = reader.read(buffer);
+        }
+        if (pending.length() > 0) {
+            segments.literal(pending);
+        }
+    }
+
+    private static void literal(Segments segments, char[] buffer, int start, int end) throws IOException {
+        if (end > start) {
+            segments.literal(CharBuffer.wrap(buffer, start, end - start));
+        }
+    }
+
+    private static boolean startsPlaceholder(char character) {
+        return character == DOLLAR || character == ESCAPE;
+    }
+
+    /**
+     * Add character to pending placeholder text, flush pending text as literal if character does not fit.
+     *
+     * @return true if character was consumed
+     */
+    private static boolean extend(StringBuilder pending, char character, Segments segments) throws IOException {
+        int escapeLength = pending.charAt(0) == ESCAPE ? 1 : 0;
+        int length = pending.length() - escapeLength;
+
+        boolean consumed;
+        if (length == 0) {
+            consumed = character == DOLLAR;
+        } else if (length == 1) {
+            consumed = character == OPENING_BRACKET;
+        } else if (character == CLOSING_BRACKET && length > 2) {
+            if (escapeLength > 0) {
+                pending.append(CLOSING_BRACKET);
+                segments.literal(pending.subSequence(escapeLength, pending.length()));
+            } else {
+                segments.placeholder(pending.substring(PLACEHOLDER_START.length()));
+            }
+            pending.setLength(0);
+            return true;
+        } else {
+            consumed = length - 2 < MAX_NAME_LENGTH && isNameCharacter(character);
+        }
+
+        if (consumed) {
+            pending.append(character);
+        } else {
+            segments.literal(pending);
+            pending.setLength(0);
+        }
+        return consumed;
+    }
+
+    private static boolean isNameCharacter(char character) {
+        return Character.isLetterOrDigit(character) || character == '.' || character == '_' || character == '-';
+    }
+
+    /**
+     * Receives scanned text piece by piece.
+     */
+    public interface Segments {
+
+        /**
+         * @param text literal text, valid only until method returns
+         */
+        void literal(CharSequence text) throws IOException;
+
+        void placeholder(String name) throws IOException;
+    }
+}
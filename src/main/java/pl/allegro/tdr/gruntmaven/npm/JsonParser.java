@@ -0,0 +1,221 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JSON parser, enough to read package.json. Objects are returned as
+ * maps, arrays as lists, numbers as their textual representation.
+ *
+ * @author Adam Dubiel
+ */
+final class JsonParser {
+
+    private final String json;
+
+    private int position;
+
+    private JsonParser(String json) {
+        this.json = json;
+    }
+
+    static Object parse(String json) throws IOException {
+        JsonParser parser = new JsonParser(json);
+        parser.skipWhitespace();
+        if (parser.peek() == '\uFEFF') {
+            parser.position++;
+        }
+        Object value = parser.value();
+        parser.skipWhitespace();
+        if (parser.position < json.length()) {
+            throw parser.error("Unexpected content after JSON value");
+        }
+        return value;
+    }
+
+    private Object value() throws IOException {
+        skipWhitespace();
+        char current = peek();
+        switch (current) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (current == '-' || (current >= '0' && current <= '9')) {
+                    return number();
+                }
+                throw error("Unexpected character '" + current + "'");
+        }
+    }
+
+    private Map<String, Object> object() throws IOException {
+        Map<String, Object> object = new LinkedHashMap<String, Object>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            object.put(key, value());
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<Object> array() throws IOException {
+        List<Object> array = new ArrayList<Object>();
+        expect('[');
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(value());
+            skipWhitespace();
+            if (peek() == ']') {
+                position++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String string() throws IOException {
+        expect('"');
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            char current = next();
+            if (current == '"') {
+                return builder.toString();
+            }
+            if (current != '\\') {
+                builder.append(current);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(unicode());
+                    break;
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(escaped);
+                    break;
+                default:
+                    throw error("Invalid escape '\\" + escaped + "'");
+            }
+        }
+    }
+
+    private char unicode() throws IOException {
+        if (position + 4 > json.length()) {
+            throw error("Unterminated unicode escape");
+        }
+        try {
+            char value = (char) Integer.parseInt(json.substring(position, position + 4), 16);
+            position += 4;
+            return value;
+        } catch (NumberFormatException exception) {
+            throw error("Invalid unicode escape");
+        }
+    }
+
+    private String number() {
+        int start = position;
+        while (position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0) {
+            position++;
+        }
+        return json.substring(start, position);
+    }
+
+    private Object literal(String literal, Object value) throws IOException {
+        if (!json.startsWith(literal, position)) {
+            throw error("Unexpected token");
+        }
+        position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peek() throws IOException {
+        if (position >= json.length()) {
+            throw error("Unexpected end of JSON");
+        }
+        return json.charAt(position);
+    }
+
+    private char next() throws IOException {
+        char current = peek();
+        position++;
+        return current;
+    }
+
+    private void expect(char expected) throws IOException {
+        if (next() != expected) {
+            position--;
+            throw error("Expected '" + expected + "'");
+        }
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " at position " + position);
+    }
+}
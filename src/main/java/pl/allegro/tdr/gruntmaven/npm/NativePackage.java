@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Installed npm package with native addon (one that has binding.gyp).
+ *
+ * @author Adam Dubiel
+ */
+public final class NativePackage implements Comparable<NativePackage> {
+
+    private static final String NODE_MODULES_SEGMENT = "node_modules/";
+
+    private final String path;
+
+    private final String name;
+
+    /**
+     * @param path path of package directory relative to Grunt build directory, using '/' as separator
+     */
+    NativePackage(String path) {
+        this.path = path;
+        int nameStart = path.lastIndexOf(NODE_MODULES_SEGMENT);
+        this.name = nameStart < 0 ? path : path.substring(nameStart + NODE_MODULES_SEGMENT.length());
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public File directory(File buildDirectory) {
+        return new File(buildDirectory, path);
+    }
+
+    /**
+     * @return version or null when it can't be found
+     */
+    public String version(File buildDirectory) throws IOException {
+        return PackageJson.version(directory(buildDirectory));
+    }
+
+    @Override
+    public int compareTo(NativePackage other) {
+        return path.compareTo(other.path);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return object instanceof NativePackage && path.equals(((NativePackage) object).path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
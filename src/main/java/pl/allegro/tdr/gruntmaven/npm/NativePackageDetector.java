@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import pl.allegro.tdr.gruntmaven.archive.ExtractionListener;
+
+/**
+ * Collects packages with native addons while node_modules are being
+ * extracted, so there is no need to scan extracted tree afterwards.
+ *
+ * @author Adam Dubiel
+ */
+public class NativePackageDetector implements ExtractionListener {
+
+    private static final Pattern BINDING_GYP_PATTERN = Pattern.compile("^(.*node_modules/(?:@[^/]+/)?[^/]+)/binding\\.gyp$");
+
+    private final Set<NativePackage> packages = new TreeSet<NativePackage>();
+
+    @Override
+    public void fileExtracted(String path) {
+        Matcher matcher = BINDING_GYP_PATTERN.matcher(path);
+        if (matcher.matches()) {
+            packages.add(new NativePackage(matcher.group(1)));
+        }
+    }
+
+    public List<NativePackage> packages() {
+        return new ArrayList<NativePackage>(packages);
+    }
+}
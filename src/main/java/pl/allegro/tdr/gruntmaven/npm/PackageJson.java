@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Reads top level values from package.json of installed package.
+ *
+ * @author Adam Dubiel
+ */
+public final class PackageJson {
+
+    private static final String FILE_NAME = "package.json";
+
+    private static final String[] DEPENDENCY_KEYS = {"dependencies", "optionalDependencies"};
+
+    private PackageJson() {
+    }
+
+    /**
+     * @return version or null when package.json or version can't be found
+     */
+    public static String version(File packageDirectory) throws IOException {
+        File packageJson = new File(packageDirectory, FILE_NAME);
+        if (!packageJson.isFile()) {
+            return null;
+        }
+        Object version = parse(FileUtils.readFileToString(packageJson, "UTF-8")).get("version");
+        return version instanceof String ? (String) version : null;
+    }
+
+    /**
+     * @return names of dependencies and optional dependencies (no dev dependencies), empty when package.json can't be found
+     */
+    public static Set<String> dependencies(File packageDirectory) throws IOException {
+        File packageJson = new File(packageDirectory, FILE_NAME);
+        if (!packageJson.isFile()) {
+            return new TreeSet<String>();
+        }
+        return dependencies(FileUtils.readFileToString(packageJson, "UTF-8"));
+    }
+
+    /**
+     * @return names of dependencies and optional dependencies declared in given package.json contents
+     */
+    public static Set<String> dependencies(String contents) throws IOException {
+        Map<?, ?> packageJson = parse(contents);
+        Set<String> dependencies = new TreeSet<String>();
+        for (String key : DEPENDENCY_KEYS) {
+            Object declared = packageJson.get(key);
+            if (declared instanceof Map) {
+                for (Object name : ((Map<?, ?>) declared).keySet()) {
+                    dependencies.add((String) name);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static Map<?, ?> parse(String contents) throws IOException {
+        Object parsed = JsonParser.parse(contents);
+        if (!(parsed instanceof Map)) {
+            throw new IOException("package.json does not contain JSON object");
+        }
+        return (Map<?, ?>) parsed;
+    }
+}
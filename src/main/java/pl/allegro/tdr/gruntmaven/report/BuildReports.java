@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Reports of all modules built in Maven session. Summary of all steps is
+ * logged when session ends.
+ *
+ * @author Adam Dubiel
+ */
+public final class BuildReports {
+
+    private static final ConcurrentMap<String, ModuleReport> MODULES = new ConcurrentHashMap<String, ModuleReport>();
+
+    private BuildReports() {
+    }
+
+    /**
+     * Report that is not included in session summary.
+     */
+    public static ModuleReport detached(String module) {
+        return new ModuleReport(module);
+    }
+
+    public static ModuleReport module(String module) {
+        ModuleReport report = new ModuleReport(module);
+        ModuleReport existingReport = MODULES.putIfAbsent(module, report);
+        return existingReport != null ? existingReport : report;
+    }
+
+    /**
+     * Log summary when session ends, summary is registered once per session.
+     */
+    public static void summarizeAtSessionEnd(MavenSession session, final Log logger) {
+        SessionEndListener.register(session, "build-report", new Runnable() {
+            @Override
+            public void run() {
+                logSummary(logger);
+            }
+        });
+    }
+
+    static void logSummary(Log logger) {
+        List<ModuleReport> reports = new ArrayList<ModuleReport>(MODULES.values());
+        MODULES.clear();
+        if (reports.isEmpty()) {
+            return;
+        }
+
+        Map<String, long[]> stepTotals = new TreeMap<String, long[]>();
+        logger.info("grunt-maven-plugin build report:");
+        for (ModuleReport report : reports) {
+            long moduleMillis = 0;
+            for (BuildStep step : report.steps()) {
+                long[] totals = stepTotals.get(step.name());
+                if (totals == null) {
+                    totals = new long[2];
+                    stepTotals.put(step.name(), totals);
+                }
+                totals[0]++;
+                totals[1] += step.durationMillis();
+                if (step.name().startsWith(ModuleReport.GOAL_STEP_PREFIX)) {
+                    moduleMillis += step.durationMillis();
+                }
+            }
+            logger.info(String.format("  %-50s %8d ms", report.module(), moduleMillis));
+        }
+        logger.info("Steps:");
+        for (Map.Entry<String, long[]> totals : stepTotals.entrySet()) {
+            logger.info(String.format("  %-50s %4d x %8d ms", totals.getKey(), totals.getValue()[0], totals.getValue()[1]));
+        }
+    }
+}
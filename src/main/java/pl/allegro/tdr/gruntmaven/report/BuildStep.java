@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Timing and details of single build step. Duration is measured using
+ * monotonic clock, start time is kept only to place step on timeline.
+ *
+ * @author Adam Dubiel
+ */
+public class BuildStep {
+
+    private static final long NANOS_IN_MILLISECOND = 1000 * 1000;
+
+    private final String name;
+
+    private final long startTime;
+
+    private final long startNanos;
+
+    private final Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+
+    private long durationNanos = -1;
+
+    private boolean failed;
+
+    BuildStep(String name) {
+        this.name = name;
+        this.startTime = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Attach detail of step, ex. number of files, exit code or cache hit.
+     */
+    public synchronized BuildStep with(String key, Object value) {
+        attributes.put(key, value);
+        return this;
+    }
+
+    public synchronized void finish() {
+        if (durationNanos < 0) {
+            durationNanos = System.nanoTime() - startNanos;
+        }
+    }
+
+    /**
+     * Step finished before has no way to fail.
+     */
+    public synchronized void fail() {
+        if (durationNanos < 0) {
+            failed = true;
+            finish();
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public synchronized long durationMillis() {
+        return (durationNanos < 0 ? System.nanoTime() - startNanos : durationNanos) / NANOS_IN_MILLISECOND;
+    }
+
+    synchronized String toJson() {
+        StringBuilder json = new StringBuilder("{\"name\":").append(Json.quote(name))
+                .append(",\"startTime\":").append(startTime)
+                .append(",\"durationMillis\":").append(durationMillis())
+                .append(",\"status\":").append(Json.quote(failed ? "failed" : durationNanos < 0 ? "running" : "success"));
+        for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+            json.append(',').append(Json.quote(attribute.getKey())).append(':').append(Json.value(attribute.getValue()));
+        }
+        return json.append('}').toString();
+    }
+}
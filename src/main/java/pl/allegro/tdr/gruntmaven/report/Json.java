@@ -0,0 +1,70 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+/**
+ * Minimal JSON encoding of values written by the plugin.
+ *
+ * @author Adam Dubiel
+ */
+public final class Json {
+
+    private Json() {
+    }
+
+    /**
+     * Numbers and booleans are written as they are, null as null, arrays of strings as arrays, anything else as string.
+     */
+    public static String value(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return value.toString();
+        }
+        if (value instanceof String[]) {
+            return array((String[]) value);
+        }
+        return quote(value.toString());
+    }
+
+    private static String array(String[] values) {
+        StringBuilder json = new StringBuilder("[");
+        for (int index = 0; index < values.length; ++index) {
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append(quote(values[index]));
+        }
+        return json.append(']').toString();
+    }
+
+    public static String quote(String value) {
+        StringBuilder json = new StringBuilder(value.length() + 2);
+        json.append('"');
+        for (int index = 0; index < value.length(); ++index) {
+            char character = value.charAt(index);
+            if (character == '"' || character == '\\') {
+                json.append('\\').append(character);
+            } else if (character < ' ') {
+                json.append(String.format("\\u%04x", (int) character));
+            } else {
+                json.append(character);
+            }
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Build steps of single module, written as JSON document.
+ *
+ * @author Adam Dubiel
+ */
+public class ModuleReport {
+
+    static final String GOAL_STEP_PREFIX = "goal:";
+
+    private final String module;
+
+    private final List<BuildStep> steps = new ArrayList<BuildStep>();
+
+    ModuleReport(String module) {
+        this.module = module;
+    }
+
+    public BuildStep start(String name) {
+        BuildStep step = new BuildStep(name);
+        synchronized (steps) {
+            steps.add(step);
+        }
+        return step;
+    }
+
+    /**
+     * Goal steps span whole execution of plugin goals, other steps are nested in them.
+     */
+    public BuildStep startGoal(String goal) {
+        return start(GOAL_STEP_PREFIX + goal);
+    }
+
+    public String module() {
+        return module;
+    }
+
+    List<BuildStep> steps() {
+        synchronized (steps) {
+            return new ArrayList<BuildStep>(steps);
+        }
+    }
+
+    public void write(File reportFile) throws IOException {
+        StringBuilder json = new StringBuilder("{\"module\":").append(Json.quote(module)).append(",\"steps\":[");
+        List<BuildStep> currentSteps = steps();
+        for (int index = 0; index < currentSteps.size(); ++index) {
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("\n  ").append(currentSteps.get(index).toJson());
+        }
+        json.append("\n]}\n");
+        FileUtils.writeStringToFile(reportFile, json.toString(), "UTF-8");
+    }
+}
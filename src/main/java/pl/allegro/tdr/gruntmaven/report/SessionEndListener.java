@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+
+/**
+ * Passes all events to original listener, runs tasks registered by plugin
+ * goals when session ends (ex. logs build report summary right before
+ * reactor summary). Single listener is installed per session, each task is
+ * registered once under its name.
+ *
+ * @author Adam Dubiel
+ */
+public class SessionEndListener implements ExecutionListener {
+
+    private final ExecutionListener delegate;
+
+    private final Map<String, Runnable> tasks = new LinkedHashMap<String, Runnable>();
+
+    SessionEndListener(ExecutionListener delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Run task when session ends, task registered earlier under the same name is kept.
+     */
+    public static void register(MavenSession session, String name, Runnable task) {
+        MavenExecutionRequest request = session.getRequest();
+        synchronized (request) {
+            if (!(request.getExecutionListener() instanceof SessionEndListener)) {
+                request.setExecutionListener(new SessionEndListener(request.getExecutionListener()));
+            }
+            ((SessionEndListener) request.getExecutionListener()).add(name, task);
+        }
+    }
+
+    private synchronized void add(String name, Runnable task) {
+        if (!tasks.containsKey(name)) {
+            tasks.put(name, task);
+        }
+    }
+
+    private synchronized List<Runnable> tasks() {
+        return new ArrayList<Runnable>(tasks.values());
+    }
+
+    @Override
+    public void projectDiscoveryStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectDiscoveryStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.sessionStarted(event);
+        }
+    }
+
+    @Override
+    public void sessionEnded(ExecutionEvent event) {
+        for (Runnable task : tasks()) {
+            task.run();
+        }
+        if (delegate != null) {
+            delegate.sessionEnded(event);
+        }
+    }
+
+    @Override
+    public void projectSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSkipped(event);
+        }
+    }
+
+    @Override
+    public void projectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectStarted(event);
+        }
+    }
+
+    @Override
+    public void projectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void projectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.projectFailed(event);
+        }
+    }
+
+    @Override
+    public void mojoSkipped(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSkipped(event);
+        }
+    }
+
+    @Override
+    public void mojoStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoStarted(event);
+        }
+    }
+
+    @Override
+    public void mojoSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoSucceeded(event);
+        }
+    }
+
+    @Override
+    public void mojoFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.mojoFailed(event);
+        }
+    }
+
+    @Override
+    public void forkStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkStarted(event);
+        }
+    }
+
+    @Override
+    public void forkSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkFailed(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectStarted(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectStarted(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectSucceeded(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectSucceeded(event);
+        }
+    }
+
+    @Override
+    public void forkedProjectFailed(ExecutionEvent event) {
+        if (delegate != null) {
+            delegate.forkedProjectFailed(event);
+        }
+    }
+}
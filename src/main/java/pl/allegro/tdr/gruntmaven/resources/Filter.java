@@ -15,24 +15,34 @@
  */
 package pl.allegro.tdr.gruntmaven.resources;
 
+import java.util.Collections;
+
 /**
+ * Value of single placeholder. Backslashes in value are changed to slashes,
+ * so that Windows paths can be used in JSON and JavaScript files.
  *
  * @author Adam Dubiel
  */
 class Filter {
 
-    private final String placeholderFormat = "\\$\\{%s\\}";
-
     private final String placeholder;
 
     private final String value;
 
     Filter(String placeholder, String value) {
-        this.placeholder = String.format(placeholderFormat, placeholder);
-        this.value = value.replaceAll("\\\\", "/");
+        this.placeholder = placeholder;
+        this.value = value.replace('\\', '/');
+    }
+
+    String placeholder() {
+        return placeholder;
+    }
+
+    String value() {
+        return value;
     }
 
     String filter(String text) {
-        return text.replaceAll(placeholder, value);
+        return Template.parse(placeholder, text).render(Collections.singletonMap(placeholder, value));
     }
 }
@@ -15,27 +15,39 @@
  */
 package pl.allegro.tdr.gruntmaven.resources;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringWriter;
-import java.util.HashSet;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.logging.Log;
 
 /**
+ * Classpath resource copied to file system with placeholders filtered.
+ * Resource is parsed into template once per class loader and rendered
+ * straight to target file.
  *
  * @author Adam Dubiel
  */
 public class Resource {
 
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final ConcurrentMap<String, Template> TEMPLATES = new ConcurrentHashMap<String, Template>();
+
     private final String resourceName;
 
-    private final Set<Filter> filters = new HashSet<Filter>();
+    private final Map<String, String> values = new HashMap<String, String>();
 
     private final Log logger;
 
@@ -49,7 +61,8 @@ public class Resource {
     }
 
     public Resource withFilter(String placeholder, String value) {
-        this.filters.add(new Filter(placeholder, value));
+        Filter filter = new Filter(placeholder, value);
+        this.values.put(filter.placeholder(), filter.value());
         return this;
     }
 
@@ -62,37 +75,49 @@ public class Resource {
     }
 
     private void copyResource(String targetPath, boolean overwrite) {
+        File targetFile = new File(targetPath);
+        if (targetFile.exists() && !overwrite) {
+            logger.debug("Not overwriting file " + targetPath);
+            return;
+        }
+
         try {
-            String contents = filter(read());
+            Template template = template();
+            Set<String> unresolved = template.unresolved(values);
+            if (!unresolved.isEmpty()) {
+                logger.warn("No values for placeholders " + unresolved + " in resource " + resourceName + ", leaving them as they are.");
+            }
 
-            File targetFile = new File(targetPath);
-            if (!targetFile.exists() || overwrite) {
-                FileUtils.copyInputStreamToFile(contentAsInputStream(contents), targetFile);
-            } else {
-                logger.debug("Not overwriting file " + targetPath);
+            Writer writer = new BufferedWriter(new OutputStreamWriter(FileUtils.openOutputStream(targetFile), UTF_8));
+            try {
+                template.render(values, writer);
+                writer.close();
+            } finally {
+                IOUtils.closeQuietly(writer);
             }
         } catch (IOException exception) {
             throw new ResourceCreationException(resourceName, targetPath, exception);
         }
     }
 
-    private InputStream contentAsInputStream(String content) {
-        return new ByteArrayInputStream(content.getBytes());
+    private Template template() throws IOException {
+        Template template = TEMPLATES.get(resourceName);
+        if (template == null) {
+            template = Template.parse(resourceName, read());
+            TEMPLATES.putIfAbsent(resourceName, template);
+        }
+        return template;
     }
 
     private String read() throws IOException {
         InputStream stream = Resource.class.getResourceAsStream(resourceName);
-        StringWriter contentsWriter = new StringWriter();
-
-        IOUtils.copy(stream, contentsWriter);
-        return contentsWriter.toString();
-    }
-
-    private String filter(String contents) {
-        String filteredContents = contents;
-        for (Filter filter : filters) {
-            filteredContents = filter.filter(filteredContents);
+        if (stream == null) {
+            throw new IOException("Resource " + resourceName + " not found on classpath.");
+        }
+        try {
+            return IOUtils.toString(stream, UTF_8);
+        } finally {
+            IOUtils.closeQuietly(stream);
         }
-        return filteredContents;
     }
 }
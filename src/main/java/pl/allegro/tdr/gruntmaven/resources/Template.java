@@ -0,0 +1,146 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.resources;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.output.StringBuilderWriter;
+import pl.allegro.tdr.gruntmaven.filtering.PlaceholderScanner;
+
+/**
+ * Text with
+ * <pre>${placeholder}</pre> expressions, parsed once by
+ * {@link PlaceholderScanner} (which defines placeholder syntax) into literal
+ * and placeholder segments and rendered in single pass. Values are inserted
+ * exactly as they are, placeholder preceded by backslash
+ * (<pre>\${placeholder}</pre>) is rendered as literal
+ * <pre>${placeholder}</pre>. Placeholders without value are left untouched.
+ * Template is immutable and can be shared between threads.
+ *
+ * @author Adam Dubiel
+ */
+final class Template {
+
+    private final String name;
+
+    /**
+     * Literal before each placeholder and one after last placeholder.
+     */
+    private final String[] literals;
+
+    private final String[] placeholders;
+
+    private final int literalsLength;
+
+    private Template(String name, List<String> literals, List<String> placeholders) {
+        this.name = name;
+        this.literals = literals.toArray(new String[literals.size()]);
+        this.placeholders = placeholders.toArray(new String[placeholders.size()]);
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    static Template parse(String name, String text) {
+        final List<String> literals = new ArrayList<String>();
+        final List<String> placeholders = new ArrayList<String>();
+        final StringBuilder literal = new StringBuilder();
+        try {
+            PlaceholderScanner.scan(new StringReader(text), new PlaceholderScanner.Segments() {
+                @Override
+                public void literal(CharSequence text) {
+                    literal.append(text);
+                }
+
+                @Override
+                public void placeholder(String name) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    placeholders.add(name);
+                }
+            });
+        } catch (IOException exception) {
+            throw new IllegalStateException("Reading from memory should not fail.", exception);
+        }
+        literals.add(literal.toString());
+
+        return new Template(name, literals, placeholders);
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * @return names of placeholders in order of first occurrence
+     */
+    Set<String> placeholders() {
+        Set<String> names = new LinkedHashSet<String>();
+        for (String placeholder : placeholders) {
+            names.add(placeholder);
+        }
+        return names;
+    }
+
+    /**
+     * @return placeholders that have no value and would be left untouched
+     */
+    Set<String> unresolved(Map<String, String> values) {
+        Set<String> unresolved = new LinkedHashSet<String>();
+        for (String placeholder : placeholders) {
+            if (!values.containsKey(placeholder)) {
+                unresolved.add(placeholder);
+            }
+        }
+        return unresolved;
+    }
+
+    String render(Map<String, String> values) {
+        int length = literalsLength;
+        for (String placeholder : placeholders) {
+            String value = values.get(placeholder);
+            length += value != null ? value.length() : PlaceholderScanner.expression(placeholder).length();
+        }
+        StringBuilderWriter output = new StringBuilderWriter(length);
+        try {
+            render(values, output);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Writing to memory should not fail.", exception);
+        }
+        return output.toString();
+    }
+
+    void render(Map<String, String> values, Writer output) throws IOException {
+        for (int index = 0; index < placeholders.length; ++index) {
+            output.write(literals[index]);
+            String value = values.get(placeholders[index]);
+            if (value != null) {
+                output.write(value);
+            } else {
+                output.write(PlaceholderScanner.expression(placeholders[index]));
+            }
+        }
+        output.write(literals[placeholders.length]);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.codehaus.plexus.util.AbstractScanner;
+import org.codehaus.plexus.util.SelectorUtils;
+
+/**
+ * Ant-style exclusion patterns matched against paths relative to staged
+ * directory, using '/' as separator. Default SCM excludes are always applied,
+ * just like in maven-resources-plugin.
+ *
+ * @author Adam Dubiel
+ */
+public class PathPatterns {
+
+    private static final String SEPARATOR = "/";
+
+    private static final String ANY_PATH = "**";
+
+    private final List<String> excludes = new ArrayList<String>();
+
+    public PathPatterns(String... excludes) {
+        addNormalized(Arrays.asList(AbstractScanner.DEFAULTEXCLUDES));
+        addNormalized(Arrays.asList(excludes));
+    }
+
+    private void addNormalized(List<String> patterns) {
+        for (String pattern : patterns) {
+            String normalized = pattern.trim().replace('\\', '/');
+            if (normalized.endsWith(SEPARATOR)) {
+                normalized += ANY_PATH;
+            }
+            excludes.add(normalized);
+        }
+    }
+
+    public boolean isExcluded(String path) {
+        for (String exclude : excludes) {
+            if (SelectorUtils.matchPath(exclude, path, SEPARATOR, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Directory can be skipped without descending into it, when one of the
+     * patterns excludes it together with everything inside.
+     */
+    public boolean isPrunable(String directoryPath) {
+        for (String exclude : excludes) {
+            if (exclude.endsWith(ANY_PATH) && SelectorUtils.matchPath(exclude, directoryPath, SEPARATOR, true)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.staging.StagingManifest.FileState;
+
+/**
+ * Incrementally mirrors source directory in target directory. Source tree is
+ * walked once, excluded directories are not entered at all. Only files which
+ * size or modification time differ from what was staged last time (or which
+ * staged copy has been changed) are copied, in parallel. Files removed from
+ * sources since last run are removed from target.
+ *
+ * In {@link StagingMode#LINK} mode files are hard linked instead of being
+ * copied. When hard link can't be created (i.e. target is on other file
+ * system) symbolic link is created and if that fails as well, file is copied.
+ * Changing staging mode causes all files to be staged again.
+ *
+ * When paths of changed files are known (i.e. reported by file system
+ * watcher), only those paths can be staged, without walking source tree.
+ *
+ * @author Adam Dubiel
+ */
+public class StagingEngine {
+
+    static final String MANIFEST_FILE_NAME = ".grunt-maven-resources";
+
+    private final Path sourceDirectory;
+
+    private final Path targetDirectory;
+
+    private final PathPatterns patterns;
+
+    private final StagingMode mode;
+
+    private final int threads;
+
+    private final Log logger;
+
+    public StagingEngine(File sourceDirectory, File targetDirectory, PathPatterns patterns, StagingMode mode, int threads, Log logger) {
+        this.sourceDirectory = sourceDirectory.toPath();
+        this.targetDirectory = targetDirectory.toPath();
+        this.patterns = patterns;
+        this.mode = mode;
+        this.threads = Math.max(threads, 1);
+        this.logger = logger;
+    }
+
+    public StagingStatistics stage() throws IOException {
+        long startTime = System.currentTimeMillis();
+        File manifestFile = targetDirectory.resolve(MANIFEST_FILE_NAME).toFile();
+        StagingManifest previousManifest = StagingManifest.load(manifestFile);
+        StagingManifest currentManifest = new StagingManifest(mode);
+
+        Files.createDirectories(targetDirectory);
+        ExecutorService copiers = Executors.newFixedThreadPool(threads);
+        StagingVisitor visitor = new StagingVisitor(previousManifest, currentManifest, copiers);
+        try {
+            Files.walkFileTree(sourceDirectory, visitor);
+            visitor.awaitCopies();
+        } finally {
+            copiers.shutdownNow();
+        }
+
+        long removedFiles = 0;
+        for (String path : previousManifest.paths()) {
+            if (currentManifest.get(path) == null && Files.deleteIfExists(targetDirectory.resolve(path))) {
+                logger.debug("removed staged file: " + path);
+                removedFiles++;
+            }
+        }
+        currentManifest.save(manifestFile);
+
+        return new StagingStatistics(visitor.stagedFiles, visitor.stagedBytes, visitor.unchangedFiles, removedFiles,
+                System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * Stage only given paths relative to source directory. Path missing in sources removes staged file or, if it was directory,
+     * all files staged from it. Falls back to staging everything if nothing was staged in current mode yet.
+     */
+    public StagingStatistics stage(Collection<String> paths) throws IOException {
+        long startTime = System.currentTimeMillis();
+        File manifestFile = targetDirectory.resolve(MANIFEST_FILE_NAME).toFile();
+        StagingManifest manifest = StagingManifest.load(manifestFile);
+        if (!manifest.stagedIn(mode)) {
+            return stage();
+        }
+
+        long stagedFiles = 0;
+        long stagedBytes = 0;
+        long unchangedFiles = 0;
+        long removedFiles = 0;
+        for (String path : new TreeSet<String>(paths)) {
+            Path source = sourceDirectory.resolve(path);
+            if (Files.isRegularFile(source)) {
+                if (patterns.isExcluded(path)) {
+                    continue;
+                }
+                BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+                FileState state = new FileState(attributes.size(), attributes.lastModifiedTime().toMillis());
+                Path target = targetDirectory.resolve(path);
+                if (state.equals(manifest.get(path)) && stagedCopyMatches(target, state)) {
+                    unchangedFiles++;
+                    continue;
+                }
+                Files.createDirectories(target.getParent());
+                new StageTask(source, target).call();
+                manifest.put(path, state);
+                stagedFiles++;
+                stagedBytes += attributes.size();
+            } else if (Files.notExists(source)) {
+                removedFiles += removeStaged(manifest, path);
+            }
+        }
+        manifest.save(manifestFile);
+
+        return new StagingStatistics(stagedFiles, stagedBytes, unchangedFiles, removedFiles, System.currentTimeMillis() - startTime);
+    }
+
+    private long removeStaged(StagingManifest manifest, String path) throws IOException {
+        long removedFiles = 0;
+        String directoryPrefix = path + "/";
+        for (String stagedPath : new ArrayList<String>(manifest.paths())) {
+            if (stagedPath.equals(path) || stagedPath.startsWith(directoryPrefix)) {
+                manifest.remove(stagedPath);
+                if (Files.deleteIfExists(targetDirectory.resolve(stagedPath))) {
+                    logger.debug("removed staged file: " + stagedPath);
+                    removedFiles++;
+                }
+            }
+        }
+        return removedFiles;
+    }
+
+    private String relativePath(Path path) {
+        return sourceDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private boolean stagedCopyMatches(Path target, FileState expectedState) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(target, BasicFileAttributes.class);
+            return expectedState.equals(new FileState(attributes.size(), attributes.lastModifiedTime().toMillis()));
+        } catch (NoSuchFileException exception) {
+            return false;
+        }
+    }
+
+    private final class StagingVisitor extends SimpleFileVisitor<Path> {
+
+        private final StagingManifest previousManifest;
+
+        private final StagingManifest currentManifest;
+
+        private final ExecutorService copiers;
+
+        private final List<Future<?>> copies = new ArrayList<Future<?>>();
+
+        private final Set<Path> createdDirectories = new HashSet<Path>();
+
+        private long stagedFiles;
+
+        private long stagedBytes;
+
+        private long unchangedFiles;
+
+        StagingVisitor(StagingManifest previousManifest, StagingManifest currentManifest, ExecutorService copiers) {
+            this.previousManifest = previousManifest;
+            this.currentManifest = currentManifest;
+            this.copiers = copiers;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+            if (!directory.equals(sourceDirectory) && patterns.isPrunable(relativePath(directory))) {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+            String path = relativePath(file);
+            if (!attributes.isRegularFile() || patterns.isExcluded(path)) {
+                return FileVisitResult.CONTINUE;
+            }
+
+            FileState state = new FileState(attributes.size(), attributes.lastModifiedTime().toMillis());
+            currentManifest.put(path, state);
+
+            Path target = targetDirectory.resolve(path);
+            if (previousManifest.stagedIn(mode) && state.equals(previousManifest.get(path)) && stagedCopyMatches(target, state)) {
+                unchangedFiles++;
+                return FileVisitResult.CONTINUE;
+            }
+
+            ensureDirectoryExists(target.getParent());
+            copies.add(copiers.submit(new StageTask(file, target)));
+            stagedFiles++;
+            stagedBytes += attributes.size();
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void ensureDirectoryExists(Path directory) throws IOException {
+            if (createdDirectories.add(directory)) {
+                Files.createDirectories(directory);
+            }
+        }
+
+        void awaitCopies() throws IOException {
+            try {
+                for (Future<?> copy : copies) {
+                    copy.get();
+                }
+            } catch (ExecutionException exception) {
+                throw new IOException("Failed to stage resources in " + targetDirectory, exception.getCause());
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while staging resources in " + targetDirectory, exception);
+            }
+        }
+    }
+
+    private final class StageTask implements Callable<Void> {
+
+        private final Path source;
+
+        private final Path target;
+
+        StageTask(Path source, Path target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            if (logger.isDebugEnabled()) {
+                logger.debug("staging file: " + source + " -> " + target);
+            }
+            if (mode != StagingMode.LINK || !link()) {
+                copy();
+            }
+            return null;
+        }
+
+        /**
+         * Copying over link staged in {@link StagingMode#LINK} mode would do nothing and leave source exposed to Grunt tasks,
+         * so link is removed first.
+         */
+        private void copy() throws IOException {
+            if (Files.exists(target) && Files.isSameFile(source, target)) {
+                Files.delete(target);
+            }
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+
+        private boolean link() throws IOException {
+            Files.deleteIfExists(target);
+            try {
+                Files.createLink(target, source);
+                return true;
+            } catch (IOException hardLinkException) {
+                logger.debug("Could not hard link " + target + ": " + hardLinkException.getMessage());
+            } catch (UnsupportedOperationException hardLinkException) {
+                logger.debug("Could not hard link " + target + ": " + hardLinkException.getMessage());
+            }
+            try {
+                Files.createSymbolicLink(target, source.toAbsolutePath());
+                return true;
+            } catch (IOException symbolicLinkException) {
+                logger.debug("Could not create symbolic link " + target + ": " + symbolicLinkException.getMessage());
+            } catch (UnsupportedOperationException symbolicLinkException) {
+                logger.debug("Could not create symbolic link " + target + ": " + symbolicLinkException.getMessage());
+            }
+            return false;
+        }
+    }
+}
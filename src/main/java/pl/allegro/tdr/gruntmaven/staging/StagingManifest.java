@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Size and modification time of each staged file, saved in Grunt build
+ * directory between builds. First line holds staging mode, each following
+ * line holds size, modification time and relative path of single file.
+ *
+ * @author Adam Dubiel
+ */
+class StagingManifest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String FIELD_SEPARATOR = " ";
+
+    private static final int FIELDS = 3;
+
+    private static final String MODE_PREFIX = "#mode ";
+
+    private final String mode;
+
+    private final Map<String, FileState> files;
+
+    StagingManifest(StagingMode mode) {
+        this(mode.name(), new HashMap<String, FileState>());
+    }
+
+    private StagingManifest(String mode, Map<String, FileState> files) {
+        this.mode = mode;
+        this.files = files;
+    }
+
+    static StagingManifest load(File manifestFile) throws IOException {
+        Map<String, FileState> files = new HashMap<String, FileState>();
+        if (!manifestFile.isFile()) {
+            return new StagingManifest(null, files);
+        }
+
+        String mode = null;
+        BufferedReader reader = Files.newBufferedReader(manifestFile.toPath(), UTF_8);
+        try {
+            String line = reader.readLine();
+            if (line != null && line.startsWith(MODE_PREFIX)) {
+                mode = line.substring(MODE_PREFIX.length());
+                line = reader.readLine();
+            }
+            while (line != null) {
+                String[] fields = line.split(FIELD_SEPARATOR, FIELDS);
+                if (fields.length == FIELDS) {
+                    files.put(fields[2], new FileState(Long.parseLong(fields[0]), Long.parseLong(fields[1])));
+                }
+                line = reader.readLine();
+            }
+        } catch (NumberFormatException exception) {
+            // corrupted manifest is as good as no manifest, everything will be staged again
+            files.clear();
+        } finally {
+            reader.close();
+        }
+        return new StagingManifest(mode, files);
+    }
+
+    void save(File manifestFile) throws IOException {
+        Path temporaryFile = new File(manifestFile.getPath() + ".tmp").toPath();
+        BufferedWriter writer = Files.newBufferedWriter(temporaryFile, UTF_8);
+        try {
+            writer.append(MODE_PREFIX).append(mode).append('\n');
+            for (Map.Entry<String, FileState> file : files.entrySet()) {
+                writer.append(Long.toString(file.getValue().size)).append(FIELD_SEPARATOR)
+                        .append(Long.toString(file.getValue().lastModified)).append(FIELD_SEPARATOR)
+                        .append(file.getKey()).append('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        Files.move(temporaryFile, manifestFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    boolean stagedIn(StagingMode stagingMode) {
+        return stagingMode.name().equals(mode);
+    }
+
+    FileState get(String path) {
+        return files.get(path);
+    }
+
+    void put(String path, FileState state) {
+        files.put(path, state);
+    }
+
+    void remove(String path) {
+        files.remove(path);
+    }
+
+    Set<String> paths() {
+        return files.keySet();
+    }
+
+    static final class FileState {
+
+        private final long size;
+
+        private final long lastModified;
+
+        FileState(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof FileState)) {
+                return false;
+            }
+            FileState other = (FileState) object;
+            return size == other.size && lastModified == other.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (size ^ lastModified);
+        }
+    }
+}
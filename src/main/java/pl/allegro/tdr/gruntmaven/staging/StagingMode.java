@@ -0,0 +1,48 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+import java.util.Locale;
+
+/**
+ * How create-resources goal puts sources in Grunt build directory.
+ *
+ * @author Adam Dubiel
+ */
+public enum StagingMode {
+
+    /**
+     * Copy all resources using maven-resources-plugin.
+     */
+    PLUGIN,
+    /**
+     * Copy only new and changed resources in-process, remove resources deleted from sources.
+     */
+    COPY,
+    /**
+     * Same as {@link #COPY}, but create hard links to resources (or symbolic links when hard links are not possible, or copies
+     * when links are not supported at all) instead of copying them.
+     */
+    LINK;
+
+    public static StagingMode fromString(String mode) {
+        try {
+            return valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalArgumentException("Unknown resources staging mode: " + mode + ", expected one of: plugin, copy, link.", exception);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+/**
+ * Summary of single staging run.
+ *
+ * @author Adam Dubiel
+ */
+public class StagingStatistics {
+
+    private final long stagedFiles;
+
+    private final long stagedBytes;
+
+    private final long unchangedFiles;
+
+    private final long removedFiles;
+
+    private final long elapsedMillis;
+
+    StagingStatistics(long stagedFiles, long stagedBytes, long unchangedFiles, long removedFiles, long elapsedMillis) {
+        this.stagedFiles = stagedFiles;
+        this.stagedBytes = stagedBytes;
+        this.unchangedFiles = unchangedFiles;
+        this.removedFiles = removedFiles;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long stagedFiles() {
+        return stagedFiles;
+    }
+
+    public long stagedBytes() {
+        return stagedBytes;
+    }
+
+    public long unchangedFiles() {
+        return unchangedFiles;
+    }
+
+    public long removedFiles() {
+        return removedFiles;
+    }
+
+    public long elapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d files staged (%d bytes), %d unchanged, %d removed in %d ms",
+                stagedFiles, stagedBytes, unchangedFiles, removedFiles, elapsedMillis);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.watch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.apache.maven.plugin.logging.Log;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+
+/**
+ * Watches source directory tree for changes using file system notifications,
+ * so idle watcher does not scan anything. Directories are registered
+ * recursively, directories created later are registered as soon as they
+ * appear, excluded directories are not registered at all. Changes are
+ * debounced: batch is returned when no new change came within debounce time
+ * (or when batch has been collected for {@value #MAX_BATCH_MILLIS} ms during
+ * stream of changes).
+ *
+ * @author Adam Dubiel
+ */
+public class SourceWatcher implements Closeable {
+
+    static final long MAX_BATCH_MILLIS = 1000;
+
+    private final Path sourceDirectory;
+
+    private final PathPatterns patterns;
+
+    private final long debounceMillis;
+
+    private final Log logger;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    public SourceWatcher(File sourceDirectory, PathPatterns patterns, long debounceMillis, Log logger) throws IOException {
+        this.sourceDirectory = sourceDirectory.toPath();
+        this.patterns = patterns;
+        this.debounceMillis = debounceMillis;
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerTree(this.sourceDirectory, null);
+    }
+
+    /**
+     * Block until something changes in sources.
+     */
+    public Changes awaitChanges() throws IOException, InterruptedException {
+        Changes changes = new Changes();
+        while (changes.isEmpty()) {
+            WatchKey key = watchService.take();
+            long deadline = System.currentTimeMillis() + MAX_BATCH_MILLIS;
+            while (key != null) {
+                collect(key, changes);
+                long remaining = deadline - System.currentTimeMillis();
+                key = remaining > 0 ? watchService.poll(Math.min(debounceMillis, remaining), TimeUnit.MILLISECONDS) : null;
+            }
+        }
+        return changes;
+    }
+
+    private void collect(WatchKey key, Changes changes) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                logger.warn("Too many changes in " + sourceDirectory + " to track them one by one, all sources will be checked.");
+                changes.overflow = true;
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+            Path changed = directory.resolve((Path) event.context());
+            String path = relativePath(changed);
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(changed)) {
+                if (!patterns.isPrunable(path)) {
+                    registerTree(changed, changes);
+                }
+            } else if (!patterns.isExcluded(path)) {
+                changes.paths.add(path);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    /**
+     * Files found in directories registered after they had been created are reported as changes, as events about them were
+     * never delivered.
+     */
+    private void registerTree(Path root, final Changes changes) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                if (!directory.equals(sourceDirectory) && patterns.isPrunable(relativePath(directory))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                directories.put(key, directory);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                String path = relativePath(file);
+                if (changes != null && !patterns.isExcluded(path)) {
+                    changes.paths.add(path);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        if (changes == null) {
+            logger.debug("Watching " + directories.size() + " directories in " + sourceDirectory);
+        }
+    }
+
+    private String relativePath(Path path) {
+        return sourceDirectory.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    /**
+     * Batch of changes in sources.
+     */
+    public static final class Changes {
+
+        private final Set<String> paths = new TreeSet<String>();
+
+        private boolean overflow;
+
+        /**
+         * @return paths of created, modified and removed files and directories, relative to source directory
+         */
+        public Set<String> paths() {
+            return Collections.unmodifiableSet(paths);
+        }
+
+        /**
+         * @return true if some changes were lost and all sources should be checked
+         */
+        public boolean overflow() {
+            return overflow;
+        }
+
+        boolean isEmpty() {
+            return paths.isEmpty() && !overflow;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/*
+ * Long-lived Grunt worker used by grunt-maven-plugin. Reads one JSON request
+ * per line from stdin: {"cwd": "...", "tasks": [...], "args": [...]}, runs
+ * Grunt from cwd/node_modules/grunt and writes DONE_MARKER followed by exit
+ * code to stdout when tasks finish. Worker exits when stdin is closed and
+ * all requests are done.
+ */
+'use strict';
+
+var path = require('path');
+var readline = require('readline');
+
+var DONE_MARKER = '\u0000grunt-maven-worker-done ';
+var exitProcess = process.exit;
+
+var requests = [];
+var busy = false;
+var closed = false;
+
+function parseOptions(args) {
+    var options = {};
+    args.forEach(function (arg) {
+        var match = /^--(no-)?([^=]+)(?:=(.*))?$/.exec(arg);
+        if (match) {
+            options[match[2]] = match[1] ? false : (match[3] === undefined ? true : match[3]);
+        }
+    });
+    return options;
+}
+
+function forgetGruntfile(cwd) {
+    Object.keys(require.cache).forEach(function (module) {
+        if (path.dirname(module) === cwd && /^Gruntfile\./i.test(path.basename(module))) {
+            delete require.cache[module];
+        }
+    });
+}
+
+function run(request, done) {
+    var grunt;
+    try {
+        process.chdir(request.cwd);
+        grunt = require(path.join(request.cwd, 'node_modules', 'grunt'));
+        forgetGruntfile(request.cwd);
+        grunt.task.clearQueue();
+
+        // Grunt exits process on failure, worker reports exit code and waits for next request instead
+        process.exit = function (code) {
+            grunt.task.clearQueue();
+            done(code || 0);
+        };
+
+        var options = parseOptions(request.args);
+        options.base = request.cwd;
+        grunt.tasks(request.tasks, options, function () {
+            done(0);
+        });
+    } catch (error) {
+        process.stderr.write(String(error && error.stack || error) + '\n');
+        done(1);
+    }
+}
+
+function next() {
+    if (busy) {
+        return;
+    }
+    if (requests.length === 0) {
+        if (closed) {
+            exitProcess.call(process, 0);
+        }
+        return;
+    }
+    busy = true;
+    var finished = false;
+    run(requests.shift(), function (code) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        process.exit = exitProcess;
+        process.stdout.write(DONE_MARKER + code + '\n');
+        busy = false;
+        next();
+    });
+}
+
+var input = readline.createInterface({input: process.stdin, terminal: false});
+input.on('line', function (line) {
+    if (line.trim().length > 0) {
+        requests.push(JSON.parse(line));
+        next();
+    }
+});
+input.on('close', function () {
+    closed = true;
+    next();
+});
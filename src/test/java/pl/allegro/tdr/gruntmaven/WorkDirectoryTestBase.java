@@ -0,0 +1,50 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.codehaus.plexus.util.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+
+/**
+ * Base for tests working on files, gives each test method fresh temporary
+ * work directory, deleted after the test.
+ *
+ * @author Adam Dubiel
+ */
+public abstract class WorkDirectoryTestBase {
+
+    protected File workDirectory;
+
+    @BeforeMethod
+    public void createWorkDirectory() {
+        workDirectory = Files.createTempDir();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deleteWorkDirectory() throws IOException {
+        FileUtils.forceDelete(workDirectory);
+    }
+
+    protected static void write(File file, String contents) throws IOException {
+        Files.createParentDirs(file);
+        Files.write(contents, file, Charsets.UTF_8);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ArchiveStampTest extends WorkDirectoryTestBase {
+
+    private static final String ENVIRONMENT = "node-v4.2.1";
+
+    private File archive;
+
+    private File stampFile;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        archive = new File(workDirectory, "node_modules.tar");
+        stampFile = new File(workDirectory, "stamp");
+    }
+
+    @Test
+    public void shouldDescribeArchiveAfterReadingSavedStamp() throws IOException {
+        // given
+        Files.write("modules", archive, Charsets.UTF_8);
+        ArchiveStamp.of(archive, ENVIRONMENT).write(stampFile);
+
+        // when
+        ArchiveStamp stamp = ArchiveStamp.read(stampFile);
+
+        // then
+        assertThat(stamp.describes(archive, ENVIRONMENT)).isTrue();
+    }
+
+    @Test
+    public void shouldNotDescribeTouchedArchiveButStillHaveSameContents() throws IOException {
+        // given
+        Files.write("modules", archive, Charsets.UTF_8);
+        ArchiveStamp stamp = ArchiveStamp.of(archive, ENVIRONMENT);
+        archive.setLastModified(archive.lastModified() + 10000);
+
+        // when
+        boolean describes = stamp.describes(archive, ENVIRONMENT);
+
+        // then
+        assertThat(describes).isFalse();
+        assertThat(stamp.sameContents(ArchiveStamp.of(archive, ENVIRONMENT))).isTrue();
+    }
+
+    @Test
+    public void shouldNotHaveSameContentsWhenArchiveChanged() throws IOException {
+        // given
+        Files.write("modules", archive, Charsets.UTF_8);
+        ArchiveStamp stamp = ArchiveStamp.of(archive, ENVIRONMENT);
+        Files.write("changed modules", archive, Charsets.UTF_8);
+
+        // when
+        boolean sameContents = stamp.sameContents(ArchiveStamp.of(archive, ENVIRONMENT));
+
+        // then
+        assertThat(sameContents).isFalse();
+    }
+
+    @Test
+    public void shouldNotDescribeArchiveInstalledInOtherEnvironment() throws IOException {
+        // given
+        Files.write("modules", archive, Charsets.UTF_8);
+        ArchiveStamp.of(archive, ENVIRONMENT).write(stampFile);
+        ArchiveStamp stamp = ArchiveStamp.read(stampFile);
+
+        // when
+        boolean describes = stamp.describes(archive, "node-v6.9.1");
+
+        // then
+        assertThat(describes).isFalse();
+        assertThat(stamp.sameContents(ArchiveStamp.of(archive, "node-v6.9.1"))).isFalse();
+    }
+
+    @Test
+    public void shouldReturnNullWhenThereIsNoStamp() throws IOException {
+        // when
+        ArchiveStamp stamp = ArchiveStamp.read(stampFile);
+
+        // then
+        assertThat(stamp).isNull();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import com.google.common.base.Strings;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class PackageExtractorTest extends WorkDirectoryTestBase {
+
+    private File nodeModules;
+
+    private File archive;
+
+    private File target;
+
+    @BeforeMethod
+    public void setUpEnv() throws IOException {
+        nodeModules = new File(workDirectory, "node_modules");
+        archive = new File(workDirectory, "node_modules.tar");
+        target = new File(workDirectory, "target-grunt");
+
+        write(new File(nodeModules, "express/package.json"), "{ \"name\": \"express\", \"dependencies\": { \"@types/node\": \"1.0.0\" } }");
+        write(new File(nodeModules, "express/index.js"), "express();");
+        write(new File(nodeModules, "express/node_modules/debug/index.js"), "debug();");
+        write(new File(nodeModules, "@types/node/package.json"), "{ \"name\": \"@types/node\" }");
+        write(new File(nodeModules, "@types/node/" + Strings.repeat("nested/", 20) + "index.d.ts"), "declare module;");
+        write(new File(nodeModules, "grunt/package.json"), "{ \"name\": \"grunt\", \"dependencies\": { \"express\": \"1.0.0\" } }");
+        write(new File(nodeModules, "grunt/lib/grunt.js"), "grunt();");
+        write(new File(nodeModules, ".bin/grunt"), "#!/usr/bin/env node");
+        new ReproducibleTarPacker(new PathPatterns(), ArchiveCompression.NONE, 2, mock(Log.class)).pack(nodeModules, archive);
+    }
+
+    @Test
+    public void shouldIndexEntriesByPackage() throws IOException {
+        // when
+        ArchiveIndex index = ArchiveIndex.of(archive);
+
+        // then
+        assertThat(index.packages()).containsOnly("node_modules", "node_modules/.bin", "node_modules/@types", "node_modules/@types/node",
+                "node_modules/express", "node_modules/grunt");
+        assertThat(new File(archive.getPath() + ArchiveIndex.FILE_EXTENSION)).exists();
+        assertThat(ArchiveIndex.load(new File(archive.getPath() + ArchiveIndex.FILE_EXTENSION), archive).packages())
+                .isEqualTo(index.packages());
+    }
+
+    @Test
+    public void shouldFindTransitiveDependenciesPresentInArchive() throws IOException {
+        // given
+        PackageExtractor extractor = new PackageExtractor(archive, ArchiveIndex.of(archive), 2, mock(Log.class));
+
+        // when
+        Set<String> packages = extractor.withDependencies(Arrays.asList("express", "missing"));
+
+        // then
+        assertThat(packages).containsOnly("node_modules/express", "node_modules/@types/node");
+    }
+
+    @Test
+    public void shouldFollowDependenciesOfNestedPackagesResolvingThemLikeNode() throws IOException {
+        // given
+        write(new File(nodeModules, "grunt/node_modules/chalk/package.json"),
+                "{ \"name\": \"chalk\", \"dependencies\": { \"ansi-styles\": \"1.0\", \"supports-color\": \"1.0\" } }");
+        write(new File(nodeModules, "grunt/node_modules/chalk/node_modules/supports-color/package.json"),
+                "{ \"name\": \"supports-color\" }");
+        write(new File(nodeModules, "grunt/test/fixtures/package.json"), "{ \"dependencies\": { \"fixture\": \"1.0\" } }");
+        write(new File(nodeModules, "ansi-styles/package.json"), "{ \"name\": \"ansi-styles\" }");
+        write(new File(nodeModules, "supports-color/package.json"), "{ \"name\": \"supports-color\" }");
+        write(new File(nodeModules, "fixture/package.json"), "{ \"name\": \"fixture\" }");
+        File hoistedArchive = new File(workDirectory, "hoisted.tar");
+        new ReproducibleTarPacker(new PathPatterns(), ArchiveCompression.NONE, 2, mock(Log.class)).pack(nodeModules, hoistedArchive);
+        PackageExtractor extractor = new PackageExtractor(hoistedArchive, ArchiveIndex.of(hoistedArchive), 2, mock(Log.class));
+
+        // when
+        Set<String> packages = extractor.withDependencies(Collections.singleton("grunt"));
+
+        // then
+        assertThat(packages).containsOnly("node_modules/grunt", "node_modules/express", "node_modules/@types/node",
+                "node_modules/ansi-styles");
+    }
+
+    @Test
+    public void shouldExtractOnlySelectedPackagesWithTheirDependencies() throws IOException {
+        // given
+        PackageExtractor extractor = new PackageExtractor(archive, ArchiveIndex.of(archive), 2, mock(Log.class));
+
+        // when
+        ExtractionStatistics statistics = extractor.extract(extractor.withDependencies(Collections.singleton("express")), target, null);
+
+        // then
+        assertThat(new File(target, "node_modules/express/index.js")).hasContent("express();");
+        assertThat(new File(target, "node_modules/express/node_modules/debug/index.js")).hasContent("debug();");
+        assertThat(new File(target, "node_modules/@types/node/" + Strings.repeat("nested/", 20) + "index.d.ts"))
+                .hasContent("declare module;");
+        assertThat(new File(target, "node_modules/.bin/grunt")).exists();
+        assertThat(new File(target, "node_modules/grunt")).doesNotExist();
+        assertThat(statistics.files()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldExtractWholeArchiveWhenItCantBeIndexed() throws IOException {
+        // given
+        File compressedArchive = new File(workDirectory, "node_modules.tar.gz");
+        new ReproducibleTarPacker(new PathPatterns(), ArchiveCompression.GZIP, 2, mock(Log.class)).pack(nodeModules, compressedArchive);
+
+        // when
+        TarUtil.untarPackages(compressedArchive, target, Collections.singleton("express"), 2, null, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/lib/grunt.js")).exists();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ReproducibleTarPackerTest extends WorkDirectoryTestBase {
+
+    private File nodeModules;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        nodeModules = new File(workDirectory, "node_modules");
+    }
+
+    @Test
+    public void shouldProduceIdenticalArchivesFromIdenticalFiles() throws IOException {
+        // given
+        write(new File(nodeModules, "grunt/package.json"), "{}");
+        write(new File(nodeModules, "grunt/lib/grunt.js"), "module.exports = {};");
+        File first = new File(workDirectory, "first.tar.gz");
+        File second = new File(workDirectory, "second.tar.gz");
+
+        // when
+        PackingStatistics firstStatistics = packer(ArchiveCompression.GZIP).pack(nodeModules, first);
+        new File(nodeModules, "grunt/package.json").setLastModified(System.currentTimeMillis() - 60000);
+        PackingStatistics secondStatistics = packer(ArchiveCompression.GZIP).pack(nodeModules, second);
+
+        // then
+        assertThat(Files.toByteArray(second)).isEqualTo(Files.toByteArray(first));
+        assertThat(secondStatistics.digest()).isEqualTo(firstStatistics.digest()).hasSize(64);
+        assertThat(secondStatistics.files()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldPackFilesWithLongNamesSoThatTheyCanBeExtracted() throws IOException {
+        // given
+        String longPath = "grunt/" + Strings.repeat("nested/", 20) + "grunt.js";
+        write(new File(nodeModules, longPath), "module.exports = {};");
+        File archive = new File(workDirectory, "node_modules.tar");
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        packer(ArchiveCompression.NONE).pack(nodeModules, archive);
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/" + longPath)).hasContent("module.exports = {};");
+    }
+
+    @Test
+    public void shouldNotPackExcludedFiles() throws IOException {
+        // given
+        write(new File(nodeModules, "grunt/lib/grunt.js"), "module.exports = {};");
+        write(new File(nodeModules, "grunt/test/grunt-test.js"), "test();");
+        write(new File(nodeModules, "grunt/README.md"), "# grunt");
+        File archive = new File(workDirectory, "node_modules.tar");
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        PackingStatistics statistics = new ReproducibleTarPacker(new PathPatterns("**/test/**", "**/*.md"), ArchiveCompression.NONE, 2,
+                mock(Log.class)).pack(nodeModules, archive);
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/lib/grunt.js")).exists();
+        assertThat(new File(target, "node_modules/grunt/test")).doesNotExist();
+        assertThat(new File(target, "node_modules/grunt/README.md")).doesNotExist();
+        assertThat(statistics.excluded()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldPackSelectedPathsRelativeToBaseDirectoryAndSkipMissingOnes() throws IOException {
+        // given
+        write(new File(workDirectory, "dist/app.js"), "app();");
+        write(new File(workDirectory, "build/Release/addon.node"), "addon");
+        write(new File(workDirectory, "build/Release/obj/addon.o"), "object");
+        File archive = new File(workDirectory, "outputs.tar");
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        PackingStatistics statistics = packer(ArchiveCompression.NONE)
+                .pack(workDirectory, Arrays.asList("missing", "dist", "build/Release/addon.node"), archive);
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "dist/app.js")).hasContent("app();");
+        assertThat(new File(target, "build/Release/addon.node")).hasContent("addon");
+        assertThat(new File(target, "build/Release/obj")).doesNotExist();
+        assertThat(statistics.files()).isEqualTo(2);
+    }
+
+    private ReproducibleTarPacker packer(ArchiveCompression compression) {
+        return new ReproducibleTarPacker(new PathPatterns(), compression, 2, mock(Log.class));
+    }
+}
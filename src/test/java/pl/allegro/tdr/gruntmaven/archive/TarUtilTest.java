@@ -0,0 +1,210 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.archive;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.xz.XZCompressorOutputStream;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static com.googlecode.catchexception.CatchException.catchException;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class TarUtilTest extends WorkDirectoryTestBase {
+
+    @Test
+    public void shouldExtractAllDirectoriesAndFilesFromArchive() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new FileOutputStream(archive));
+        addDirectory(output, "node_modules/");
+        addFile(output, "node_modules/grunt/package.json", "{}");
+        addFile(output, "node_modules/grunt/lib/grunt.js", "module.exports = {};");
+        output.close();
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        ExtractionStatistics statistics = TarUtil.untar(archive, target, 4, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/package.json")).hasContent("{}");
+        assertThat(new File(target, "node_modules/grunt/lib/grunt.js")).hasContent("module.exports = {};");
+        assertThat(statistics.files()).isEqualTo(2);
+        assertThat(statistics.directories()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldExtractEntriesBiggerThanWriteBuffer() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new FileOutputStream(archive));
+        byte[] contents = new byte[1024 * 1024];
+        addFile(output, "node_modules/phantomjs/bin/phantomjs", contents);
+        output.close();
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/phantomjs/bin/phantomjs").length()).isEqualTo(contents.length);
+    }
+
+    @Test
+    public void shouldHardLinkFilesWithIdenticalContentsWhenDeduplicating() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new FileOutputStream(archive));
+        addFile(output, "node_modules/grunt/LICENSE", "MIT");
+        addFile(output, "node_modules/grunt/package.json", "{}");
+        addFile(output, "node_modules/grunt/node_modules/glob/LICENSE", "MIT");
+        addFile(output, "node_modules/phantomjs/bin/phantomjs", new byte[1024 * 1024]);
+        addFile(output, "node_modules/karma/bin/phantomjs", new byte[1024 * 1024]);
+        output.close();
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        ExtractionStatistics statistics = TarUtil.untar(archive, target, 2, true, null, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/node_modules/glob/LICENSE")).hasContent("MIT");
+        assertThat(java.nio.file.Files.isSameFile(new File(target, "node_modules/grunt/LICENSE").toPath(),
+                new File(target, "node_modules/grunt/node_modules/glob/LICENSE").toPath())).isTrue();
+        assertThat(java.nio.file.Files.isSameFile(new File(target, "node_modules/phantomjs/bin/phantomjs").toPath(),
+                new File(target, "node_modules/karma/bin/phantomjs").toPath())).isTrue();
+        assertThat(statistics.deduplicatedFiles()).isEqualTo(2);
+        assertThat(statistics.deduplicatedBytes()).isEqualTo(3 + 1024 * 1024);
+    }
+
+    @Test
+    public void shouldDetectAndExtractGzipCompressedArchive() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar.gz");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new GzipCompressorOutputStream(new FileOutputStream(archive)));
+        addFile(output, "node_modules/grunt/package.json", "{}");
+        output.close();
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/package.json")).hasContent("{}");
+    }
+
+    @Test
+    public void shouldDetectAndExtractXzCompressedArchive() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar.xz");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new XZCompressorOutputStream(new FileOutputStream(archive)));
+        addFile(output, "node_modules/grunt/package.json", "{}");
+        output.close();
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/package.json")).hasContent("{}");
+    }
+
+    @Test
+    public void shouldPreserveSymbolicLinksAndExecutableFlagWhenPackingAndExtracting() throws IOException {
+        // given
+        File source = new File(workDirectory, "source");
+        File script = new File(source, "node_modules/grunt-cli/bin/grunt");
+        write(script, "#!/usr/bin/env node");
+        script.setExecutable(true);
+        File binDirectory = new File(source, "node_modules/.bin");
+        binDirectory.mkdirs();
+        java.nio.file.Files.createSymbolicLink(new File(binDirectory, "grunt").toPath(), new File("../grunt-cli/bin/grunt").toPath());
+        File archive = new File(workDirectory, "node_modules.tar");
+        File target = new File(workDirectory, "target-grunt");
+
+        // when
+        TarUtil.pack(source, Arrays.asList("node_modules"), archive, mock(Log.class));
+        TarUtil.untar(archive, target, 2, mock(Log.class));
+
+        // then
+        Path link = new File(target, "node_modules/.bin/grunt").toPath();
+        assertThat(java.nio.file.Files.isSymbolicLink(link)).isTrue();
+        assertThat(link.toFile()).hasContent("#!/usr/bin/env node");
+        assertThat(new File(target, "node_modules/grunt-cli/bin/grunt").canExecute()).isTrue();
+    }
+
+    @Test
+    public void shouldRefuseToExtractEntriesPointingOutsideOfTarget() throws IOException {
+        // given
+        File archive = new File(workDirectory, "node_modules.tar");
+        TarArchiveOutputStream output = new TarArchiveOutputStream(new FileOutputStream(archive));
+        addFile(output, "node_modules/../../evil.js", "evil");
+        output.close();
+
+        // when
+        catchException(new TarExtractionCall(archive, new File(workDirectory, "target-grunt"))).run();
+
+        // then
+        assertThat(caughtException()).isInstanceOf(IllegalStateException.class);
+        assertThat(new File(workDirectory.getParentFile(), "evil.js")).doesNotExist();
+    }
+
+    private void addDirectory(TarArchiveOutputStream output, String name) throws IOException {
+        output.putArchiveEntry(new TarArchiveEntry(name));
+        output.closeArchiveEntry();
+    }
+
+    private void addFile(TarArchiveOutputStream output, String name, String contents) throws IOException {
+        addFile(output, name, contents.getBytes("UTF-8"));
+    }
+
+    private void addFile(TarArchiveOutputStream output, String name, byte[] contents) throws IOException {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(contents.length);
+        output.putArchiveEntry(entry);
+        output.write(contents);
+        output.closeArchiveEntry();
+    }
+
+    public static class TarExtractionCall {
+
+        private final File archive;
+
+        private final File target;
+
+        public TarExtractionCall(File archive, File target) {
+            this.archive = archive;
+            this.target = target;
+        }
+
+        public void run() {
+            TarUtil.untar(archive, target, 1, mock(Log.class));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ArchiveCacheTest extends WorkDirectoryTestBase {
+
+    private File cacheDirectory;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        cacheDirectory = new File(workDirectory, "cache");
+    }
+
+    @Test
+    public void shouldRestoreStoredDirectories() throws IOException {
+        // given
+        ArchiveCache cache = new ArchiveCache(cacheDirectory, Long.MAX_VALUE, mock(Log.class));
+        File source = new File(workDirectory, "source");
+        write(new File(source, "node_modules/grunt/package.json"), "{}");
+        cache.store("key", source, Arrays.asList("node_modules"));
+        File target = new File(workDirectory, "target");
+
+        // when
+        cache.restore("key", target, 2);
+
+        // then
+        assertThat(new File(target, "node_modules/grunt/package.json")).hasContent("{}");
+    }
+
+    @Test
+    public void shouldReturnNullWhenRestoringMissingEntry() throws IOException {
+        // given
+        ArchiveCache cache = new ArchiveCache(cacheDirectory, Long.MAX_VALUE, mock(Log.class));
+
+        // when
+        Object statistics = cache.restore("missing", new File(workDirectory, "target"), 2);
+
+        // then
+        assertThat(statistics).isNull();
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedEntriesWhenCacheIsFull() throws IOException {
+        // given
+        File source = new File(workDirectory, "source");
+        write(new File(source, "node_modules/grunt/package.json"), "{}");
+        new ArchiveCache(cacheDirectory, Long.MAX_VALUE, mock(Log.class)).store("oldest", source, Arrays.asList("node_modules"));
+        new File(cacheDirectory, "oldest.tar").setLastModified(System.currentTimeMillis() - 60000);
+        long entrySize = new File(cacheDirectory, "oldest.tar").length();
+        ArchiveCache cache = new ArchiveCache(cacheDirectory, entrySize, mock(Log.class));
+
+        // when
+        cache.store("newest", source, Arrays.asList("node_modules"));
+
+        // then
+        assertThat(cache.contains("oldest")).isFalse();
+        assertThat(cache.contains("newest")).isTrue();
+    }
+}
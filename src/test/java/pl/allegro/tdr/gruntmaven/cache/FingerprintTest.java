@@ -0,0 +1,75 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class FingerprintTest extends WorkDirectoryTestBase {
+
+    private static final String[] INCLUDES = {"**/*.js"};
+
+    @Test
+    public void shouldHaveSameFileStatesHashWhenIncludedFilesDidNotChange() throws IOException {
+        // given
+        write(new File(workDirectory, "js/app.js"), "app();");
+        String hash = Fingerprint.create().withFileStates("inputs", workDirectory, INCLUDES, null).hash();
+        write(new File(workDirectory, "README.md"), "not included");
+
+        // when
+        String nextHash = Fingerprint.create().withFileStates("inputs", workDirectory, INCLUDES, null).hash();
+
+        // then
+        assertThat(nextHash).isEqualTo(hash);
+    }
+
+    @Test
+    public void shouldChangeFileStatesHashWhenIncludedFileIsTouched() throws IOException {
+        // given
+        File app = new File(workDirectory, "js/app.js");
+        write(app, "app();");
+        String hash = Fingerprint.create().withFileStates("inputs", workDirectory, INCLUDES, null).hash();
+        app.setLastModified(app.lastModified() + 10000);
+
+        // when
+        String nextHash = Fingerprint.create().withFileStates("inputs", workDirectory, INCLUDES, null).hash();
+
+        // then
+        assertThat(nextHash).isNotEqualTo(hash);
+    }
+
+    @Test
+    public void shouldNotChangeFileContentsHashWhenIncludedFileIsTouched() throws IOException {
+        // given
+        File app = new File(workDirectory, "js/app.js");
+        write(app, "app();");
+        String hash = Fingerprint.create().withFileContents("inputs", workDirectory, INCLUDES, null).hash();
+        app.setLastModified(app.lastModified() + 10000);
+
+        // when
+        String nextHash = Fingerprint.create().withFileContents("inputs", workDirectory, INCLUDES, null).hash();
+
+        // then
+        assertThat(nextHash).isEqualTo(hash);
+    }
+}
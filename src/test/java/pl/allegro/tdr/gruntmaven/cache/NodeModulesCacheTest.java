@@ -0,0 +1,111 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class NodeModulesCacheTest extends WorkDirectoryTestBase {
+
+    private File cacheDirectory;
+
+    private File buildDirectory;
+
+    private NodeModulesCache cache;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        cacheDirectory = new File(workDirectory, "cache");
+        buildDirectory = new File(workDirectory, "target-grunt");
+        cache = new NodeModulesCache(cacheDirectory, Long.MAX_VALUE, buildDirectory, mock(Log.class));
+    }
+
+    @Test
+    public void shouldReportMissWhenThereIsNoEntryForKey() throws IOException {
+        // given
+        write(new File(buildDirectory, "node_modules/grunt/package.json"), "{}");
+
+        // when
+        boolean restored = cache.restore("missing", 2);
+
+        // then
+        assertThat(restored).isFalse();
+        assertThat(new File(buildDirectory, "node_modules/grunt/package.json")).hasContent("{}");
+    }
+
+    @Test
+    public void shouldReplaceInstalledModulesWithStoredOnes() throws IOException {
+        // given
+        write(new File(buildDirectory, "node_modules/grunt/package.json"), "{ \"version\": \"0.4.5\" }");
+        cache.store("key");
+        cache.invalidate();
+        FileUtils.deleteDirectory(new File(buildDirectory, "node_modules"));
+        write(new File(buildDirectory, "node_modules/grunt/package.json"), "{ \"version\": \"1.0.0\" }");
+        write(new File(buildDirectory, "node_modules/grunt-contrib-less/package.json"), "{}");
+
+        // when
+        boolean restored = cache.restore("key", 2);
+
+        // then
+        assertThat(restored).isTrue();
+        assertThat(new File(buildDirectory, "node_modules/grunt/package.json")).hasContent("{ \"version\": \"0.4.5\" }");
+        assertThat(new File(buildDirectory, "node_modules/grunt-contrib-less")).doesNotExist();
+    }
+
+    @Test
+    public void shouldLeaveModulesUntouchedWhenTheyAreUpToDateWithEntry() throws IOException {
+        // given
+        write(new File(buildDirectory, "node_modules/grunt/package.json"), "{}");
+        cache.store("key");
+        write(new File(buildDirectory, "node_modules/grunt/marker"), "untouched");
+        FileUtils.deleteDirectory(cacheDirectory);
+
+        // when
+        boolean restored = cache.restore("key", 2);
+
+        // then
+        assertThat(restored).isTrue();
+        assertThat(new File(buildDirectory, "node_modules/grunt/marker")).hasContent("untouched");
+    }
+
+    @Test
+    public void shouldRestoreModulesAgainAfterInvalidation() throws IOException {
+        // given
+        write(new File(buildDirectory, "node_modules/grunt/package.json"), "{}");
+        cache.store("key");
+        cache.invalidate();
+        write(new File(buildDirectory, "node_modules/grunt/marker"), "modified");
+
+        // when
+        boolean restored = cache.restore("key", 2);
+
+        // then
+        assertThat(restored).isTrue();
+        assertThat(new File(buildDirectory, "node_modules/grunt/package.json")).hasContent("{}");
+        assertThat(new File(buildDirectory, "node_modules/grunt/marker")).doesNotExist();
+    }
+}
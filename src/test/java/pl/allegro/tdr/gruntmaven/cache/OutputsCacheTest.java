@@ -0,0 +1,96 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class OutputsCacheTest extends WorkDirectoryTestBase {
+
+    private static final String[] OUTPUTS = {"dist", "reports"};
+
+    private File buildDirectory;
+
+    private OutputsCache cache;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        buildDirectory = new File(workDirectory, "target-grunt");
+        cache = new OutputsCache(new File(workDirectory, "cache"), Long.MAX_VALUE, buildDirectory, mock(Log.class));
+    }
+
+    @Test
+    public void shouldLeaveOutputsUntouchedOnMiss() throws IOException {
+        // given
+        write(new File(buildDirectory, "dist/app.js"), "app();");
+
+        // when
+        boolean restored = cache.restore("missing", OUTPUTS, 2);
+
+        // then
+        assertThat(restored).isFalse();
+        assertThat(new File(buildDirectory, "dist/app.js")).hasContent("app();");
+    }
+
+    @Test
+    public void shouldReplaceExistingOutputsWithStoredOnes() throws IOException {
+        // given
+        write(new File(buildDirectory, "dist/app.js"), "app();");
+        cache.store("key", OUTPUTS);
+        FileUtils.deleteDirectory(new File(buildDirectory, "dist"));
+        write(new File(buildDirectory, "dist/app.js"), "changedApp();");
+        write(new File(buildDirectory, "dist/stale.js"), "stale();");
+        write(new File(buildDirectory, "reports/report.xml"), "<report/>");
+        write(new File(buildDirectory, "src/app.js"), "source();");
+
+        // when
+        boolean restored = cache.restore("key", OUTPUTS, 2);
+
+        // then
+        assertThat(restored).isTrue();
+        assertThat(new File(buildDirectory, "dist/app.js")).hasContent("app();");
+        assertThat(new File(buildDirectory, "dist/stale.js")).doesNotExist();
+        assertThat(new File(buildDirectory, "reports")).doesNotExist();
+        assertThat(new File(buildDirectory, "src/app.js")).hasContent("source();");
+    }
+
+    @Test
+    public void shouldStoreOnlyExistingOutputs() throws IOException {
+        // given
+        write(new File(buildDirectory, "dist/app.js"), "app();");
+        cache.store("key", OUTPUTS);
+        FileUtils.deleteDirectory(new File(buildDirectory, "dist"));
+
+        // when
+        boolean restored = cache.restore("key", OUTPUTS, 2);
+
+        // then
+        assertThat(restored).isTrue();
+        assertThat(new File(buildDirectory, "dist/app.js")).hasContent("app();");
+        assertThat(new File(buildDirectory, "reports")).doesNotExist();
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class PackageFilesTest extends WorkDirectoryTestBase {
+
+    @BeforeMethod
+    public void setUpEnv() throws IOException {
+        write(new File(workDirectory, "package.json"), "{}");
+        write(new File(workDirectory, "binding.gyp"), "{}");
+    }
+
+    @Test
+    public void shouldFindFilesProducedOutsideOfBuildDirectory() throws IOException {
+        // given
+        PackageFiles before = PackageFiles.of(workDirectory);
+        write(new File(workDirectory, "build/Release/addon.node"), "addon");
+        write(new File(workDirectory, "lib/binding/node-v46-linux-x64/addon.node"), "addon");
+        write(new File(workDirectory, "node_modules/nan/nan.h"), "nan");
+
+        // when
+        List<String> changed = PackageFiles.of(workDirectory).changedSince(before);
+
+        // then
+        assertThat(changed).containsExactly("build/Release/addon.node", "lib/binding/node-v46-linux-x64/addon.node");
+    }
+}
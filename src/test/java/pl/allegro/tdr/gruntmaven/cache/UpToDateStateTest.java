@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.cache;
+
+import java.io.File;
+import java.io.IOException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class UpToDateStateTest extends WorkDirectoryTestBase {
+
+    private UpToDateState state;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        state = new UpToDateState(new File(workDirectory, ".grunt-maven-state-default"));
+    }
+
+    @Test
+    public void shouldNotBeUpToDateWhenNothingWasSaved() throws IOException {
+        // when
+        boolean upToDate = state.isUpToDate("inputs", "outputs");
+
+        // then
+        assertThat(upToDate).isFalse();
+    }
+
+    @Test
+    public void shouldBeUpToDateWithSavedInputsAndOutputs() throws IOException {
+        // given
+        state.save("inputs", "outputs");
+
+        // when
+        boolean upToDate = new UpToDateState(new File(workDirectory, ".grunt-maven-state-default")).isUpToDate("inputs", "outputs");
+
+        // then
+        assertThat(upToDate).isTrue();
+    }
+
+    @Test
+    public void shouldNotBeUpToDateWhenInputsOrOutputsChanged() throws IOException {
+        // given
+        state.save("inputs", "outputs");
+
+        // when
+        boolean inputsChanged = state.isUpToDate("changed inputs", "outputs");
+        boolean outputsChanged = state.isUpToDate("inputs", "changed outputs");
+
+        // then
+        assertThat(inputsChanged).isFalse();
+        assertThat(outputsChanged).isFalse();
+    }
+
+    @Test
+    public void shouldNotBeUpToDateAfterInvalidation() throws IOException {
+        // given
+        state.save("inputs", "outputs");
+
+        // when
+        state.invalidate();
+
+        // then
+        assertThat(state.isUpToDate("inputs", "outputs")).isFalse();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.clean;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class DirectoryCleanerTest extends WorkDirectoryTestBase {
+
+    private static final long BACKGROUND_DELETION_TIMEOUT = 10000;
+
+    private File target;
+
+    @BeforeMethod
+    public void setUpEnv() throws IOException {
+        target = new File(workDirectory, "target-grunt");
+        write(new File(target, "Gruntfile.js"), "module.exports = {};");
+        write(new File(target, "node_modules/grunt/lib/grunt.js"), "grunt();");
+        write(new File(target, "node_modules/grunt/node_modules/lodash/lodash.js"), "lodash();");
+    }
+
+    @Test
+    public void shouldDeleteWholeTree() throws IOException {
+        // when
+        CleaningStatistics statistics = cleaner().delete(target);
+
+        // then
+        assertThat(target).doesNotExist();
+        assertThat(statistics.files()).isEqualTo(3);
+        assertThat(statistics.directories()).isEqualTo(6);
+    }
+
+    @Test
+    public void shouldNotFollowSymbolicLinks() throws IOException {
+        // given
+        File outside = new File(workDirectory, "outside");
+        write(new File(outside, "keep.js"), "keep();");
+        java.nio.file.Files.createSymbolicLink(new File(target, "linked").toPath(), outside.toPath());
+
+        // when
+        cleaner().delete(target);
+
+        // then
+        assertThat(target).doesNotExist();
+        assertThat(new File(outside, "keep.js")).exists();
+    }
+
+    @Test(timeOut = BACKGROUND_DELETION_TIMEOUT)
+    public void shouldMoveDirectoryIntoTrashDirectoryAndDeleteItInBackground() throws IOException, InterruptedException {
+        // given
+        File trashDirectory = new File(workDirectory, "target");
+        File leftover = new File(trashDirectory, ".target-grunt.deleting-1");
+        write(new File(leftover, "old.js"), "old();");
+        DirectoryCleaner cleaner = cleaner();
+
+        // when
+        File trash = cleaner.deleteInBackground(target, trashDirectory);
+
+        // then
+        assertThat(target).doesNotExist();
+        assertThat(trash.getParentFile()).isEqualTo(trashDirectory);
+        cleaner.awaitBackgroundDeletion();
+        assertThat(trash).doesNotExist();
+        assertThat(leftover).doesNotExist();
+        assertThat(workDirectory.list()).containsOnly("target");
+    }
+
+    @Test(timeOut = BACKGROUND_DELETION_TIMEOUT)
+    public void shouldCreateMissingTrashDirectory() throws IOException, InterruptedException {
+        // given
+        File trashDirectory = new File(workDirectory, "target");
+        DirectoryCleaner cleaner = cleaner();
+
+        // when
+        File trash = cleaner.deleteInBackground(target, trashDirectory);
+
+        // then
+        assertThat(trash.getParentFile()).isEqualTo(trashDirectory);
+        cleaner.awaitBackgroundDeletion();
+        assertThat(trashDirectory.list()).isEmpty();
+    }
+
+    private DirectoryCleaner cleaner() {
+        return new DirectoryCleaner(2, mock(Log.class));
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.twdata.maven.mojoexecutor.MojoExecutor.configuration;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ExecPluginConfigurationTest {
+
+    @Test
+    public void shouldRunExecutableViaCmdOnWindows() {
+        // given
+        Executable executable = new Executable("npm");
+        executable.addArgument("install");
+
+        // when
+        Xpp3Dom dom = configuration(ExecPluginConfiguration.of(executable, true, "target-grunt"));
+
+        // then
+        assertThat(dom.getChild("executable").getValue()).isEqualTo("cmd");
+        Xpp3Dom[] arguments = dom.getChild("arguments").getChildren();
+        assertThat(arguments).hasSize(3);
+        assertThat(arguments[0].getValue()).isEqualTo("/C");
+        assertThat(arguments[1].getValue()).isEqualTo("npm");
+        assertThat(arguments[2].getValue()).isEqualTo("install");
+        assertThat(dom.getChild("workingDirectory").getValue()).isEqualTo("target-grunt");
+    }
+
+    @Test
+    public void shouldAppendCustomSuccessCodes() {
+        // given
+        Executable executable = new Executable("grunt", new String[]{"0", "3"});
+
+        // when
+        Xpp3Dom dom = configuration(ExecPluginConfiguration.of(executable, false, "target-grunt"));
+
+        // then
+        assertThat(dom.getChild("executable").getValue()).isEqualTo("grunt");
+        assertThat(dom.getChild("successCodes").getChildren()).hasSize(2);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.Test;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static com.googlecode.catchexception.CatchException.catchException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ExecutableSchedulerTest {
+
+    @Test
+    public void shouldOrderExecutablesAfterTheirDependencies() {
+        // given
+        Executable install = new Executable("npm");
+        Executable rebuild = new Executable("npm");
+        Executable bower = new Executable("bower");
+        rebuild.dependsOn(install);
+
+        // when
+        List<Executable> ordered = ExecutableScheduler.inDependencyOrder(Arrays.asList(rebuild, bower, install));
+
+        // then
+        assertThat(ordered).containsExactly(install, rebuild, bower);
+    }
+
+    @Test
+    public void shouldRejectCyclicDependencies() {
+        // given
+        Executable first = new Executable("first");
+        Executable second = new Executable("second");
+        first.dependsOn(second);
+        second.dependsOn(first);
+
+        // when
+        catchException(this).order(first, second);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldRejectDependencyThatIsNotScheduled() {
+        // given
+        Executable first = new Executable("first");
+        first.dependsOn(new Executable("second"));
+
+        // when
+        catchException(this).order(first);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void shouldStopRunningExecutablesAfterFirstFailure() throws InterruptedException {
+        // given
+        Executable sleeping = shell("sleep 30");
+        Executable failing = shell("exit 2");
+        Executable dependent = shell("exit 0");
+        dependent.dependsOn(failing);
+        long startTime = System.currentTimeMillis();
+
+        // when
+        catchException(this).run(sleeping, failing, dependent);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ExecutableFailureException.class);
+        assertThat(caughtException().getMessage()).contains("'2'");
+        assertThat(System.currentTimeMillis() - startTime).isLessThan(20000);
+    }
+
+    @Test(timeOut = 20000)
+    public void shouldFailInsteadOfWaitingForeverWhenListenerThrowsException() throws InterruptedException {
+        // given
+        ExecutionListener listener = mock(ExecutionListener.class);
+        doThrow(new IllegalStateException("listener failure")).when(listener).executableStarted(any(Executable.class));
+
+        // when
+        catchException(this).run(listener, shell("sleep 30"));
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ExecutableFailureException.class);
+        assertThat(caughtException().getCause()).hasMessage("listener failure");
+    }
+
+    @Test
+    public void shouldTellWhenEveryExecutableExitedWithZero() throws InterruptedException {
+        // when
+        boolean allExitedWithZero = run(shell("exit 0"), shell("exit 0"));
+
+        // then
+        assertThat(allExitedWithZero).isTrue();
+    }
+
+    @Test
+    public void shouldTellWhenNonZeroExitCodeWasAcceptedAsSuccess() throws InterruptedException {
+        // given
+        Executable ignoringErrors = new Executable("sh", new String[]{"0", "3"});
+        ignoringErrors.addArgument("-c");
+        ignoringErrors.addArgument("exit 3");
+
+        // when
+        boolean allExitedWithZero = run(shell("exit 0"), ignoringErrors);
+
+        // then
+        assertThat(allExitedWithZero).isFalse();
+    }
+
+    @Test
+    public void shouldTakePermitForEachStartedProcess() throws InterruptedException {
+        // given
+        Executable first = shell("sleep 1");
+        first.ofKind("grunt");
+        Executable second = shell("sleep 1");
+        second.ofKind("grunt");
+        ExecutionLimits limits = new ExecutionLimits(Collections.singletonMap("grunt", "1"), "npm", null, mock(Log.class));
+        long startTime = System.currentTimeMillis();
+
+        // when
+        new ExecutableScheduler(new ProcessExecutor(new File("."), false, mock(Log.class)), 2, null, limits, mock(Log.class))
+                .execute(Arrays.asList(first, second));
+
+        // then
+        assertThat(System.currentTimeMillis() - startTime).isGreaterThanOrEqualTo(2000);
+    }
+
+    @Test
+    public void shouldPrefixOutputOfLabelledExecutables() throws InterruptedException {
+        // given
+        Log log = mock(Log.class);
+        Executable less = shell("echo done");
+        less.labelOutput("less");
+        Executable uglify = shell("echo done");
+        uglify.labelOutput("uglify");
+
+        // when
+        new ExecutableScheduler(new ProcessExecutor(new File("."), false, log), 2, mock(Log.class)).execute(Arrays.asList(less, uglify));
+
+        // then
+        verify(log).info("[less] done");
+        verify(log).info("[uglify] done");
+    }
+
+    public void run(ExecutionListener listener, Executable... executables) throws InterruptedException {
+        new ExecutableScheduler(new ProcessExecutor(new File("."), false, mock(Log.class)), 2, listener, mock(Log.class))
+                .execute(Arrays.asList(executables));
+    }
+
+    public boolean run(Executable... executables) throws InterruptedException {
+        return new ExecutableScheduler(new ProcessExecutor(new File("."), false, mock(Log.class)), 2, mock(Log.class))
+                .execute(Arrays.asList(executables));
+    }
+
+    private Executable shell(String command) {
+        Executable executable = new Executable("sh");
+        executable.addArgument("-c");
+        executable.addArgument(command);
+        return executable;
+    }
+
+    public List<Executable> order(Executable... executables) {
+        return ExecutableScheduler.inDependencyOrder(Arrays.asList(executables));
+    }
+}
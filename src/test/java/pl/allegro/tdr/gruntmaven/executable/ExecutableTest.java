@@ -0,0 +1,65 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ExecutableTest {
+
+    @Test
+    public void shouldNormalizeWhitespacedOptions() {
+        // given
+        Executable executable = new Executable("npm");
+
+        // when
+        executable.addArgument("install");
+        executable.addNormalizedArgument("--registry http://localhost", "=");
+
+        // then
+        assertThat(executable.commandLine()).containsExactly("npm", "install", "--registry=http://localhost");
+    }
+
+    @Test
+    public void shouldTreatOnlyZeroAsSuccessWhenNoSuccessCodesGiven() {
+        // given
+        Executable executable = new Executable("grunt");
+
+        // when
+        boolean success = executable.isSuccess(3);
+
+        // then
+        assertThat(success).isFalse();
+        assertThat(executable.isSuccess(0)).isTrue();
+    }
+
+    @Test
+    public void shouldUseCustomSuccessCodes() {
+        // given
+        Executable executable = new Executable("grunt", new String[]{"0", "3", "6"});
+
+        // when
+        boolean success = executable.isSuccess(3);
+
+        // then
+        assertThat(success).isTrue();
+        assertThat(executable.isSuccess(1)).isFalse();
+    }
+}
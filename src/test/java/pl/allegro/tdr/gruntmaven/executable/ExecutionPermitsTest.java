@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ExecutionPermitsTest {
+
+    private File lockDirectory;
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        lockDirectory = Files.createTempDir();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterMethod
+    public void tearDownEnv() throws IOException {
+        executor.shutdownNow();
+        FileUtils.forceDelete(lockDirectory);
+    }
+
+    @Test
+    public void shouldWaitForPermitUntilItIsReleased() throws Exception {
+        // given
+        ExecutionPermits.Permit permit = ExecutionPermits.acquire("test", 1, lockDirectory, mock(Log.class));
+        Future<ExecutionPermits.Permit> waitingPermit = executor.submit(new Callable<ExecutionPermits.Permit>() {
+            @Override
+            public ExecutionPermits.Permit call() throws Exception {
+                return ExecutionPermits.acquire("test", 1, lockDirectory, mock(Log.class));
+            }
+        });
+        assertNotDone(waitingPermit);
+
+        // when
+        permit.release();
+
+        // then
+        ExecutionPermits.Permit nextPermit = waitingPermit.get(5, TimeUnit.SECONDS);
+        assertThat(nextPermit).isNotNull();
+        nextPermit.release();
+    }
+
+    @Test
+    public void shouldShareSmallestLimitBetweenModulesConfiguringDifferentLimits() throws Exception {
+        // given
+        Log log = mock(Log.class);
+        ExecutionPermits.Permit permit = ExecutionPermits.acquire("shared", 2, null, log);
+        Future<ExecutionPermits.Permit> waitingPermit = executor.submit(new Callable<ExecutionPermits.Permit>() {
+            @Override
+            public ExecutionPermits.Permit call() throws Exception {
+                return ExecutionPermits.acquire("shared", 1, null, mock(Log.class));
+            }
+        });
+        assertNotDone(waitingPermit);
+
+        // when
+        permit.release();
+
+        // then
+        ExecutionPermits.Permit nextPermit = waitingPermit.get(5, TimeUnit.SECONDS);
+        assertThat(nextPermit).isNotNull();
+        nextPermit.release();
+    }
+
+    private void assertNotDone(Future<?> future) throws Exception {
+        try {
+            future.get(500, TimeUnit.MILLISECONDS);
+            fail("permit should not be granted");
+        } catch (TimeoutException exception) {
+            // expected
+        }
+    }
+}
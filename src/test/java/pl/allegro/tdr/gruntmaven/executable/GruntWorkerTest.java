@@ -0,0 +1,52 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class GruntWorkerTest extends WorkDirectoryTestBase {
+
+    @Test(timeOut = 10000)
+    public void shouldFinishWhenDoneMarkerFollowsOutputWithoutNewLine() throws IOException {
+        // given
+        File script = new File(workDirectory, "worker.sh");
+        Files.write("read request\nprintf 'partial output\\000grunt-maven-worker-done 3\\n'\n", script, Charsets.UTF_8);
+        Log log = mock(Log.class);
+        GruntWorker worker = GruntWorker.start("sh", script, log);
+
+        // when
+        int exitCode = worker.run(workDirectory, Collections.singletonList("default"), Collections.<String>emptyList(), log);
+
+        // then
+        assertThat(exitCode).isEqualTo(3);
+        verify(log).info("partial output");
+        worker.destroy();
+    }
+}
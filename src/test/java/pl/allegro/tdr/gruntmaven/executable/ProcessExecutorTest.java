@@ -0,0 +1,131 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.executable;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import static com.googlecode.catchexception.CatchException.caughtException;
+import static com.googlecode.catchexception.CatchException.catchException;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ProcessExecutorTest {
+
+    private File logDirectory;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        logDirectory = Files.createTempDir();
+    }
+
+    @AfterMethod
+    public void tearDownEnv() throws IOException {
+        FileUtils.forceDelete(logDirectory);
+    }
+
+    @Test
+    public void shouldWriteFullOutputToLogFileAndSummarizeItInLog() throws IOException, InterruptedException {
+        // given
+        Log log = mock(Log.class);
+        Executable executable = shell("for i in 1 2 3 4 5; do echo line$i; done");
+        executable.labelOutput("lines");
+        OutputSettings settings = new OutputSettings(OutputMode.SUMMARY, logDirectory, 2, 60000);
+
+        // when
+        int exitCode = new ProcessExecutor(new File("."), false, settings, log).execute(executable);
+
+        // then
+        assertThat(exitCode).isEqualTo(0);
+        assertThat(new File(logDirectory, "sh-lines.log")).hasContent("line1\nline2\nline3\nline4\nline5");
+        verify(log).info("[lines] (1 lines) line1");
+        verify(log, never()).info("[lines] (2 lines) line2");
+    }
+
+    @Test
+    public void shouldPrintLastLinesOfOutputWhenExecutableFails() throws IOException, InterruptedException {
+        // given
+        Log log = mock(Log.class);
+        Executable executable = shell("echo first; echo second; echo third; exit 3");
+        OutputSettings settings = new OutputSettings(OutputMode.FULL, logDirectory, 2, 0);
+
+        // when
+        int exitCode = new ProcessExecutor(new File("."), false, settings, log).execute(executable);
+
+        // then
+        assertThat(exitCode).isEqualTo(3);
+        verify(log).error("Last 2 lines of output:");
+        verify(log, never()).error("first");
+        verify(log).error("third");
+        verify(log).error("Full output written to " + new File(logDirectory, "sh--c.log"));
+    }
+
+    @Test
+    public void shouldKillExecutableWhichStoppedProducingOutput() throws IOException, InterruptedException {
+        // given
+        Executable executable = shell("echo started; exec sleep 30");
+        executable.stallTimeoutAfter(500);
+        long startTime = System.currentTimeMillis();
+
+        // when
+        catchException(this).execute(executable);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ExecutableTimeoutException.class);
+        assertThat(caughtException().getMessage()).contains("produced no output for");
+        assertThat(System.currentTimeMillis() - startTime).isLessThan(10000);
+    }
+
+    @Test
+    public void shouldStartExecutableAgainWhenKilledAfterTimeout() throws IOException, InterruptedException {
+        // given
+        File attempts = new File(logDirectory, "attempts");
+        Executable executable = shell("echo attempt >> " + attempts.getAbsolutePath() + "; exec sleep 30");
+        executable.timeoutAfter(500);
+        executable.retryOnTimeout(1);
+
+        // when
+        catchException(this).execute(executable);
+
+        // then
+        assertThat(caughtException()).isInstanceOf(ExecutableTimeoutException.class);
+        assertThat(caughtException().getMessage()).contains("did not finish within");
+        assertThat(Files.readLines(attempts, Charsets.UTF_8)).hasSize(2);
+    }
+
+    public int execute(Executable executable) throws IOException, InterruptedException {
+        return new ProcessExecutor(new File("."), false, mock(Log.class)).execute(executable);
+    }
+
+    private Executable shell(String command) {
+        Executable executable = new Executable("sh");
+        executable.addArgument("-c");
+        executable.addArgument(command);
+        return executable;
+    }
+}
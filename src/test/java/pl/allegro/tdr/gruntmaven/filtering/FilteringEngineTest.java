@@ -0,0 +1,159 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import com.google.common.base.Charsets;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class FilteringEngineTest extends WorkDirectoryTestBase {
+
+    private File source;
+
+    private File target;
+
+    private Map<String, String> values;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        source = new File(workDirectory, "static");
+        target = new File(workDirectory, "target-grunt");
+        values = new HashMap<String, String>();
+    }
+
+    @Test
+    public void shouldFilterOnlyIncludedFiles() throws IOException {
+        // given
+        values.put("project.version", "1.0");
+        write(new File(source, "index.html"), "version ${project.version}");
+        write(new File(source, "js/app.js"), "app(${project.version});");
+
+        // when
+        FilteringStatistics statistics = engine().filter();
+
+        // then
+        assertThat(new File(target, "index.html")).hasContent("version 1.0");
+        assertThat(new File(target, "js/app.js")).doesNotExist();
+        assertThat(statistics.filteredFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotFilterAgainWhenSourceAndUsedValuesDidNotChange() throws IOException {
+        // given
+        values.put("project.version", "1.0");
+        write(new File(source, "index.html"), "version ${project.version}");
+        engine().filter();
+        values.put("unused", "changed");
+
+        // when
+        FilteringStatistics statistics = engine().filter();
+
+        // then
+        assertThat(statistics.filteredFiles()).isEqualTo(0);
+        assertThat(statistics.unchangedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFilterAgainWhenUsedValueChanged() throws IOException {
+        // given
+        values.put("project.version", "1.0");
+        write(new File(source, "index.html"), "version ${project.version}");
+        engine().filter();
+        values.put("project.version", "2.0");
+
+        // when
+        FilteringStatistics statistics = engine().filter();
+
+        // then
+        assertThat(new File(target, "index.html")).hasContent("version 2.0");
+        assertThat(statistics.filteredFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldFilterAgainWhenFilteredFileWasOverwritten() throws IOException {
+        // given
+        write(new File(source, "index.html"), "version ${project.version}");
+        engine().filter();
+        File filtered = new File(target, "index.html");
+        write(filtered, "overwritten by Grunt");
+        filtered.setLastModified(filtered.lastModified() + 10000);
+
+        // when
+        FilteringStatistics statistics = engine().filter();
+
+        // then
+        assertThat(filtered).hasContent("version ${project.version}");
+        assertThat(statistics.filteredFiles()).isEqualTo(1);
+        assertThat(statistics.unresolvedPlaceholders()).containsOnly("project.version");
+    }
+
+    @Test
+    public void shouldRemoveFilteredCopiesOfRemovedAndNoLongerFilteredFiles() throws IOException {
+        // given
+        write(new File(source, "index.html"), "version ${project.version}");
+        write(new File(source, "removed.html"), "removed ${project.version}");
+        write(new File(source, "config.json"), "{ \"version\": \"${project.version}\" }");
+        engine("*.html", "*.json").filter();
+        new File(source, "removed.html").delete();
+
+        // when
+        FilteringStatistics statistics = engine("*.html").filter();
+
+        // then
+        assertThat(new File(target, "index.html")).exists();
+        assertThat(new File(target, "removed.html")).doesNotExist();
+        assertThat(new File(target, "config.json")).doesNotExist();
+        assertThat(statistics.removedFiles()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldNotRemoveFilteredCopyReplacedByOtherFile() throws IOException {
+        // given
+        write(new File(source, "index.html"), "version ${project.version}");
+        engine().filter();
+        File staged = new File(target, "index.html");
+        write(staged, "staged copy");
+        staged.setLastModified(staged.lastModified() + 10000);
+
+        // when
+        FilteringStatistics statistics = engine(new String[0]).filter();
+
+        // then
+        assertThat(staged).hasContent("staged copy");
+        assertThat(statistics.removedFiles()).isEqualTo(0);
+        assertThat(new File(target, FilteringEngine.MANIFEST_FILE_NAME)).doesNotExist();
+    }
+
+    private FilteringEngine engine() {
+        return engine("*.html");
+    }
+
+    private FilteringEngine engine(String... includes) {
+        return new FilteringEngine(source, target, includes, new String[0], values, Charsets.UTF_8, mock(Log.class));
+    }
+}
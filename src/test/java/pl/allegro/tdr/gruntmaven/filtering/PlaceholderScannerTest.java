@@ -0,0 +1,125 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.filtering;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class PlaceholderScannerTest {
+
+    @Test
+    public void shouldReplacePlaceholdersWithValuesLiterally() throws IOException {
+        // given
+        PlaceholderScanner scanner = new PlaceholderScanner(values("project.version", "1.0", "price", "$1 \\ $2"));
+
+        // when
+        String filtered = filter(scanner, new StringReader("version ${project.version} costs ${price}"));
+
+        // then
+        assertThat(filtered).isEqualTo("version 1.0 costs $1 \\ $2");
+    }
+
+    @Test
+    public void shouldHandlePlaceholdersSplitBetweenReads() throws IOException {
+        // given
+        PlaceholderScanner scanner = new PlaceholderScanner(values("name", "value"));
+
+        // when
+        String filtered = filter(scanner, new OneCharacterReader("a $ b ${name} c \\${name} d $${name} e \\\\${name}"));
+
+        // then
+        assertThat(filtered).isEqualTo("a $ b value c ${name} d $value e \\${name}");
+    }
+
+    @Test
+    public void shouldLeaveInvalidAndUnknownPlaceholdersUntouched() throws IOException {
+        // given
+        PlaceholderScanner scanner = new PlaceholderScanner(values());
+        StringWriter writer = new StringWriter();
+
+        // when
+        Set<String> placeholders = scanner.filter(new StringReader("${} ${not valid} ${unknown} ${unclosed"), writer);
+
+        // then
+        assertThat(writer.toString()).isEqualTo("${} ${not valid} ${unknown} ${unclosed");
+        assertThat(placeholders).containsOnly("unknown");
+    }
+
+    @Test
+    public void shouldTreatTooLongNameAsText() throws IOException {
+        // given
+        StringBuilder name = new StringBuilder();
+        for (int index = 0; index <= PlaceholderScanner.MAX_NAME_LENGTH; ++index) {
+            name.append('a');
+        }
+        PlaceholderScanner scanner = new PlaceholderScanner(values(name.toString(), "value"));
+
+        // when
+        String filtered = filter(scanner, new StringReader("${" + name + "}"));
+
+        // then
+        assertThat(filtered).isEqualTo("${" + name + "}");
+    }
+
+    private String filter(PlaceholderScanner scanner, Reader reader) throws IOException {
+        StringWriter writer = new StringWriter();
+        scanner.filter(reader, writer);
+        return writer.toString();
+    }
+
+    private Map<String, String> values(String... keysAndValues) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (int index = 0; index < keysAndValues.length; index += 2) {
+            values.put(keysAndValues[index], keysAndValues[index + 1]);
+        }
+        return values;
+    }
+
+    private static final class OneCharacterReader extends Reader {
+
+        private final String text;
+
+        private int position;
+
+        OneCharacterReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == text.length()) {
+                return -1;
+            }
+            buffer[offset] = text.charAt(position++);
+            return 1;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class NativePackageDetectorTest {
+
+    @Test
+    public void shouldDetectPackagesWithBindingGypIncludingScopedAndNestedOnes() {
+        // given
+        NativePackageDetector detector = new NativePackageDetector();
+
+        // when
+        detector.fileExtracted("node_modules/grunt/package.json");
+        detector.fileExtracted("node_modules/ws/binding.gyp");
+        detector.fileExtracted("node_modules/ws/src/binding.gyp");
+        detector.fileExtracted("node_modules/karma/node_modules/@scope/fsevents/binding.gyp");
+
+        // then
+        assertThat(detector.packages()).hasSize(2);
+        assertThat(detector.packages().get(0).name()).isEqualTo("@scope/fsevents");
+        assertThat(detector.packages().get(0).path()).isEqualTo("node_modules/karma/node_modules/@scope/fsevents");
+        assertThat(detector.packages().get(1).name()).isEqualTo("ws");
+    }
+}
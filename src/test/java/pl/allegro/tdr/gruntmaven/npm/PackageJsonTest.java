@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.npm;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class PackageJsonTest extends WorkDirectoryTestBase {
+
+    private static final String PACKAGE_JSON = "{\n"
+            + "  \"name\": \"app\",\n"
+            + "  \"engines\": { \"node\": \">=0.10\", \"version\": \"nested\" },\n"
+            + "  \"publishConfig\": { \"tag\": \"next\", \"nested\": { \"a\": [1, 2.5e3, true, null] } },\n"
+            + "  \"dependencies\": { \"grunt\": \"~0.4.5\", \"weird \\\"name\\\" \\u0041\": \"1.0\" },\n"
+            + "  \"devDependencies\": { \"karma\": \"*\" },\n"
+            + "  \"optionalDependencies\": { \"fsevents\": \"1.0\" },\n"
+            + "  \"version\": \"1.2.3\"\n"
+            + "}";
+
+    @BeforeMethod
+    public void setUpEnv() throws IOException {
+        write(new File(workDirectory, "package.json"), PACKAGE_JSON);
+    }
+
+    @Test
+    public void shouldReadTopLevelVersionIgnoringNestedOnes() throws IOException {
+        // when
+        String version = PackageJson.version(workDirectory);
+
+        // then
+        assertThat(version).isEqualTo("1.2.3");
+    }
+
+    @Test
+    public void shouldReadDependenciesAndOptionalDependenciesDeclaredAfterNestedObjects() throws IOException {
+        // when
+        Set<String> dependencies = PackageJson.dependencies(workDirectory);
+
+        // then
+        assertThat(dependencies).containsOnly("grunt", "weird \"name\" A", "fsevents");
+    }
+
+    @Test
+    public void shouldNotReadDependenciesNestedInOtherObjects() throws IOException {
+        // given
+        String contents = "{ \"config\": { \"dependencies\": { \"hidden\": \"1.0\" } }, \"dependencies\": {} }";
+
+        // when
+        Set<String> dependencies = PackageJson.dependencies(contents);
+
+        // then
+        assertThat(dependencies).isEmpty();
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void shouldFailOnMalformedPackageJson() throws IOException {
+        PackageJson.dependencies("{ \"dependencies\": { \"grunt\": ");
+    }
+}
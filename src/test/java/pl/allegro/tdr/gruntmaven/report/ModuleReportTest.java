@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.report;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class ModuleReportTest extends WorkDirectoryTestBase {
+
+    @Test
+    public void shouldWriteStepsWithAttributesAndStatus() throws IOException {
+        // given
+        ModuleReport report = BuildReports.detached("group:module");
+        report.startGoal("npm").finish();
+        report.start("exec:npm install").with("commandLine", new String[]{"npm", "install"}).with("exitCode", 1).fail();
+        report.start("untar").with("archive", "node_modules \"offline\".tar");
+        File reportFile = new File(workDirectory, "report.json");
+
+        // when
+        report.write(reportFile);
+
+        // then
+        String json = Files.toString(reportFile, Charsets.UTF_8);
+        assertThat(json).startsWith("{\"module\":\"group:module\",\"steps\":[")
+                .contains("\"name\":\"goal:npm\"")
+                .contains("\"status\":\"failed\",\"commandLine\":[\"npm\",\"install\"],\"exitCode\":1}")
+                .contains("\"status\":\"running\",\"archive\":\"node_modules \\\"offline\\\".tar\"}");
+    }
+
+    @Test
+    public void shouldNotFailFinishedStep() {
+        // given
+        BuildStep step = BuildReports.detached("group:module").start("npm-cache");
+        step.finish();
+
+        // when
+        step.fail();
+
+        // then
+        assertThat(step.toJson()).contains("\"status\":\"success\"");
+    }
+}
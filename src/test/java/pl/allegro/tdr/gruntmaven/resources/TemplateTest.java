@@ -0,0 +1,141 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.resources;
+
+import com.google.common.base.Strings;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.annotations.Test;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class TemplateTest {
+
+    @Test
+    public void shouldRenderAllPlaceholdersInSinglePass() {
+        // given
+        Template template = Template.parse("test", "{\"a\": \"${first}\", \"b\": \"${second}\", \"c\": \"${first}\"}");
+
+        // when
+        String rendered = template.render(values("first", "1", "second", "2"));
+
+        // then
+        assertThat(rendered).isEqualTo("{\"a\": \"1\", \"b\": \"2\", \"c\": \"1\"}");
+    }
+
+    @Test
+    public void shouldInsertValuesWithDollarsAndBackslashesLiterally() {
+        // given
+        Template template = Template.parse("test", "price: ${price}");
+
+        // when
+        String rendered = template.render(values("price", "$1 \\ $2"));
+
+        // then
+        assertThat(rendered).isEqualTo("price: $1 \\ $2");
+    }
+
+    @Test
+    public void shouldNotRenderValueOfPlaceholderInsertedByOtherValue() {
+        // given
+        Template template = Template.parse("test", "${first} ${second}");
+
+        // when
+        String rendered = template.render(values("first", "${second}", "second", "2"));
+
+        // then
+        assertThat(rendered).isEqualTo("${second} 2");
+    }
+
+    @Test
+    public void shouldRenderEscapedPlaceholderAsLiteral() {
+        // given
+        Template template = Template.parse("test", "\\${placeholder} is ${placeholder}");
+
+        // when
+        String rendered = template.render(values("placeholder", "value"));
+
+        // then
+        assertThat(rendered).isEqualTo("${placeholder} is value");
+        assertThat(template.placeholders()).containsOnly("placeholder");
+    }
+
+    @Test
+    public void shouldReportAndLeaveUntouchedPlaceholdersWithoutValue() {
+        // given
+        Template template = Template.parse("test", "${known} ${unknown}");
+        Map<String, String> values = values("known", "value");
+
+        // when
+        String rendered = template.render(values);
+
+        // then
+        assertThat(rendered).isEqualTo("value ${unknown}");
+        assertThat(template.unresolved(values)).containsOnly("unknown");
+    }
+
+    @Test
+    public void shouldTreatDollarBracketWithoutValidNameAsLiteral() {
+        // given
+        Template template = Template.parse("test", "${} ${not a placeholder} ${unclosed");
+
+        // when
+        String rendered = template.render(values());
+
+        // then
+        assertThat(rendered).isEqualTo("${} ${not a placeholder} ${unclosed");
+        assertThat(template.placeholders()).isEmpty();
+    }
+
+    @Test
+    public void shouldFollowSameNameRulesAsStreamingFilter() {
+        // given
+        String longName = Strings.repeat("a", 300);
+        Template template = Template.parse("test", "${" + longName + "} ${short}");
+
+        // when
+        String rendered = template.render(values(longName, "value", "short", "value"));
+
+        // then
+        assertThat(rendered).isEqualTo("${" + longName + "} value");
+    }
+
+    @Test
+    public void shouldRenderToWriter() throws IOException {
+        // given
+        Template template = Template.parse("test", "hello ${placeholder}!");
+        StringWriter writer = new StringWriter();
+
+        // when
+        template.render(values("placeholder", "world"), writer);
+
+        // then
+        assertThat(writer.toString()).isEqualTo("hello world!");
+    }
+
+    private Map<String, String> values(String... keysAndValues) {
+        Map<String, String> values = new HashMap<String, String>();
+        for (int index = 0; index < keysAndValues.length; index += 2) {
+            values.put(keysAndValues[index], keysAndValues[index + 1]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.staging;
+
+import com.google.common.io.Files;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class StagingEngineTest extends WorkDirectoryTestBase {
+
+    private File source;
+
+    private File target;
+
+    @BeforeMethod
+    public void setUpEnv() {
+        source = new File(workDirectory, "static");
+        target = new File(workDirectory, "target-grunt");
+    }
+
+    @Test
+    public void shouldCopyAllFilesOnFirstRun() throws IOException {
+        // given
+        write(new File(source, "Gruntfile.js"), "module.exports = {};");
+        write(new File(source, "js/app.js"), "app();");
+
+        // when
+        StagingStatistics statistics = engine().stage();
+
+        // then
+        assertThat(new File(target, "Gruntfile.js")).hasContent("module.exports = {};");
+        assertThat(new File(target, "js/app.js")).hasContent("app();");
+        assertThat(statistics.stagedFiles()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCopyOnlyChangedFilesOnNextRun() throws IOException {
+        // given
+        write(new File(source, "Gruntfile.js"), "module.exports = {};");
+        File app = new File(source, "js/app.js");
+        write(app, "app();");
+        engine().stage();
+        write(app, "changedApp();");
+        app.setLastModified(app.lastModified() + 10000);
+
+        // when
+        StagingStatistics statistics = engine().stage();
+
+        // then
+        assertThat(new File(target, "js/app.js")).hasContent("changedApp();");
+        assertThat(statistics.stagedFiles()).isEqualTo(1);
+        assertThat(statistics.unchangedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRemoveStagedFilesDeletedFromSources() throws IOException {
+        // given
+        write(new File(source, "Gruntfile.js"), "module.exports = {};");
+        File app = new File(source, "js/app.js");
+        write(app, "app();");
+        engine().stage();
+        app.delete();
+
+        // when
+        StagingStatistics statistics = engine().stage();
+
+        // then
+        assertThat(new File(target, "js/app.js")).doesNotExist();
+        assertThat(statistics.removedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotStageExcludedFiles() throws IOException {
+        // given
+        write(new File(source, "node_modules.tar"), "tar");
+        write(new File(source, "vendor/lib.js"), "lib();");
+        write(new File(source, "js/app.js"), "app();");
+
+        // when
+        new StagingEngine(source, target, new PathPatterns("**/node_modules.tar", "vendor/**"), StagingMode.COPY, 2, mock(Log.class)).stage();
+
+        // then
+        assertThat(new File(target, "node_modules.tar")).doesNotExist();
+        assertThat(new File(target, "vendor")).doesNotExist();
+        assertThat(new File(target, "js/app.js")).exists();
+    }
+
+    @Test
+    public void shouldLinkFilesInsteadOfCopyingThemInLinkMode() throws IOException {
+        // given
+        File app = new File(source, "js/app.js");
+        write(app, "app();");
+
+        // when
+        engine(StagingMode.LINK).stage();
+
+        // then
+        assertThat(new File(target, "js/app.js")).hasContent("app();");
+        assertThat(java.nio.file.Files.isSameFile(app.toPath(), new File(target, "js/app.js").toPath())).isTrue();
+    }
+
+    @Test
+    public void shouldStageAllFilesAgainWhenModeChanges() throws IOException {
+        // given
+        write(new File(source, "js/app.js"), "app();");
+        engine(StagingMode.LINK).stage();
+
+        // when
+        StagingStatistics statistics = engine(StagingMode.COPY).stage();
+
+        // then
+        assertThat(statistics.stagedFiles()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReplaceLinksWithCopiesWhenSwitchingFromLinkToCopyMode() throws IOException {
+        // given
+        File app = new File(source, "js/app.js");
+        write(app, "app();");
+        engine(StagingMode.LINK).stage();
+
+        // when
+        engine(StagingMode.COPY).stage();
+        write(new File(target, "js/app.js"), "changedByGrunt();");
+
+        // then
+        assertThat(app).hasContent("app();");
+        assertThat(java.nio.file.Files.isSameFile(app.toPath(), new File(target, "js/app.js").toPath())).isFalse();
+    }
+
+    @Test
+    public void shouldStageOnlyGivenPaths() throws IOException {
+        // given
+        write(new File(source, "js/app.js"), "app();");
+        write(new File(source, "js/lib/lib.js"), "lib();");
+        write(new File(source, "css/app.css"), "body {}");
+        engine().stage();
+        write(new File(source, "js/app.js"), "changedApp();");
+        write(new File(source, "css/app.css"), "body { color: red; }");
+        FileUtils.forceDelete(new File(source, "js/lib"));
+
+        // when
+        StagingStatistics statistics = engine().stage(Arrays.asList("js/app.js", "js/lib"));
+
+        // then
+        assertThat(new File(target, "js/app.js")).hasContent("changedApp();");
+        assertThat(new File(target, "js/lib/lib.js")).doesNotExist();
+        assertThat(new File(target, "css/app.css")).hasContent("body {}");
+        assertThat(statistics.stagedFiles()).isEqualTo(1);
+        assertThat(statistics.removedFiles()).isEqualTo(1);
+    }
+
+    private StagingEngine engine() {
+        return engine(StagingMode.COPY);
+    }
+
+    private StagingEngine engine(StagingMode mode) {
+        return new StagingEngine(source, target, new PathPatterns(), mode, 2, mock(Log.class));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Adam Dubiel.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package pl.allegro.tdr.gruntmaven.watch;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.maven.plugin.logging.Log;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import pl.allegro.tdr.gruntmaven.WorkDirectoryTestBase;
+import pl.allegro.tdr.gruntmaven.staging.PathPatterns;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ *
+ * @author Adam Dubiel
+ */
+public class SourceWatcherTest extends WorkDirectoryTestBase {
+
+    private SourceWatcher watcher;
+
+    @BeforeMethod
+    public void setUpEnv() throws IOException {
+        write(new File(workDirectory, "js/app.js"), "app();");
+        write(new File(workDirectory, "vendor/lib.js"), "lib();");
+        watcher = new SourceWatcher(workDirectory, new PathPatterns("vendor/**"), 50, mock(Log.class));
+    }
+
+    @AfterMethod
+    public void tearDownEnv() throws IOException {
+        watcher.close();
+    }
+
+    @Test(timeOut = 30000)
+    public void shouldReportChangedFilesInWatchedTree() throws Exception {
+        // given
+        write(new File(workDirectory, "js/app.js"), "changedApp();");
+        write(new File(workDirectory, "js/other.js"), "other();");
+
+        // when
+        SourceWatcher.Changes changes = watcher.awaitChanges();
+
+        // then
+        assertThat(changes.paths()).contains("js/app.js", "js/other.js");
+    }
+
+    @Test(timeOut = 30000)
+    public void shouldReportFilesInNewDirectoriesAndSkipExcludedOnes() throws Exception {
+        // given
+        write(new File(workDirectory, "vendor/lib.js"), "changedLib();");
+        write(new File(workDirectory, "css/themes/dark.css"), "body {}");
+
+        // when
+        SourceWatcher.Changes changes = watcher.awaitChanges();
+
+        // then
+        assertThat(changes.paths()).contains("css/themes/dark.css").doesNotContain("vendor/lib.js");
+    }
+}